@@ -1,6 +1,7 @@
 package com.agileapes.nemo.action;
 
 import com.agileapes.nemo.contract.Executable;
+import com.agileapes.nemo.exec.ClientEnvironment;
 
 import java.io.PrintStream;
 
@@ -86,4 +87,12 @@ public abstract class Action implements Executable {
         this.output = output;
     }
 
+    /**
+     * @return the environment of the client on whose behalf the action is being executed, through which its
+     * working directory, environment variables, and standard input should be accessed rather than through the system
+     */
+    public ClientEnvironment getEnvironment() {
+        return ClientEnvironment.current();
+    }
+
 }
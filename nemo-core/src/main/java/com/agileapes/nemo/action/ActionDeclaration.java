@@ -0,0 +1,169 @@
+package com.agileapes.nemo.action;
+
+import com.agileapes.couteau.context.error.FatalRegistryException;
+import com.agileapes.couteau.context.error.RegistryException;
+import com.agileapes.nemo.api.Command;
+import com.agileapes.nemo.contract.Supplier;
+import com.agileapes.nemo.option.OptionDescriptor;
+
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The action declaration stands in for an action which has not been instantiated yet. Registering a declaration
+ * with the {@link com.agileapes.nemo.action.impl.ActionContext} will make its target available to the application
+ * while deferring the instantiation and description of the action itself to the first time it is actually needed.
+ *
+ * Whatever is known about the action ahead of time (its flags, its metadata, and its options) can be exposed through
+ * the declaration, so that listing the available targets does not require every action to be loaded.
+ *
+ * The action itself is provided by a {@link Supplier}, which is only consulted when the action is resolved.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/15, 11:20)
+ */
+public class ActionDeclaration {
+
+    private final String type;
+    private final Supplier<?> supplier;
+    private final Properties metadata;
+    private boolean defaultAction;
+    private boolean internal;
+
+    /**
+     * Will declare an action of the given type, which will be instantiated through its default constructor.
+     * Should the type be annotated with {@link Command}, the default and internal flags of the action are read
+     * from the modifiers of the command, without the command itself being parsed.
+     * @param type    the type of the action
+     */
+    public ActionDeclaration(Class<?> type) {
+        this(type, new ClassSupplier(type));
+    }
+
+    /**
+     * Will declare an action of the given type, which will be provided by the supplier. The flags of the action
+     * are read from its {@link Command} the same way as they are for {@link #ActionDeclaration(Class)}.
+     * @param type        the type of the action
+     * @param supplier    the supplier which will provide the action once it is needed
+     */
+    public ActionDeclaration(Class<?> type, Supplier<?> supplier) {
+        this(type.getName(), supplier, null);
+        final Command command = type.getAnnotation(Command.class);
+        if (command != null) {
+            final String statement = command.value().trim();
+            defaultAction = statement.startsWith("#");
+            internal = statement.startsWith("!");
+        }
+    }
+
+    /**
+     * @param type           the binary name of the class of the action
+     * @param classLoader    the class loader through which the action should be loaded
+     * @param metadata       the metadata of the action, or {@code null} if it is not known in advance
+     */
+    public ActionDeclaration(String type, ClassLoader classLoader, Properties metadata) {
+        this(type, new ClassSupplier(type, classLoader), metadata);
+    }
+
+    /**
+     * @param type        a name describing the type of the action, used for reporting purposes
+     * @param supplier    the supplier which will provide the action once it is needed
+     * @param metadata    the metadata of the action, or {@code null} if it is not known in advance
+     */
+    public ActionDeclaration(String type, Supplier<?> supplier, Properties metadata) {
+        this.type = type;
+        this.supplier = supplier;
+        this.metadata = metadata;
+    }
+
+    /**
+     * @return the name of the type of the action
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return {@code true} if the declared action is the default action
+     */
+    public boolean isDefaultAction() {
+        return defaultAction;
+    }
+
+    public void setDefaultAction(boolean defaultAction) {
+        this.defaultAction = defaultAction;
+    }
+
+    /**
+     * @return {@code true} if the declared action is an internal action
+     */
+    public boolean isInternal() {
+        return internal;
+    }
+
+    public void setInternal(boolean internal) {
+        this.internal = internal;
+    }
+
+    /**
+     * @return the metadata of the action as known in advance, or {@code null} if the action must be
+     * described to find out
+     */
+    public Properties getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @return the options of the action as known in advance, or {@code null} if the action must be
+     * described to find out. The descriptors returned here carry no default values, and are served by
+     * {@link com.agileapes.nemo.action.impl.SmartAction#getOptions()} until the action is resolved.
+     */
+    public Set<? extends OptionDescriptor> getOptions() {
+        return null;
+    }
+
+    /**
+     * Will load and instantiate the declared action
+     * @return the new action instance
+     * @throws RegistryException if the action cannot be instantiated
+     */
+    public Object instantiate() throws RegistryException {
+        final Object action;
+        try {
+            action = supplier.get();
+        } catch (Exception e) {
+            throw new FatalRegistryException("Failed to instantiate action of type " + type, e);
+        }
+        if (action == null) {
+            throw new FatalRegistryException("No action was supplied for type " + type);
+        }
+        return action;
+    }
+
+    private static class ClassSupplier implements Supplier<Object> {
+
+        private final String name;
+        private final ClassLoader classLoader;
+        private Class<?> type;
+
+        private ClassSupplier(Class<?> type) {
+            this(type.getName(), type.getClassLoader());
+            this.type = type;
+        }
+
+        private ClassSupplier(String name, ClassLoader classLoader) {
+            this.name = name;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public Object get() throws Exception {
+            if (type == null) {
+                type = Class.forName(name, true, classLoader);
+            }
+            return type.newInstance();
+        }
+
+    }
+
+}
@@ -6,12 +6,15 @@ import com.agileapes.couteau.context.error.RegistryException;
 import com.agileapes.couteau.context.impl.AbstractThreadSafeContext;
 import com.agileapes.couteau.context.impl.BeanProcessorAdapter;
 import com.agileapes.nemo.action.Action;
+import com.agileapes.nemo.action.ActionDeclaration;
 import com.agileapes.nemo.disassemble.DisassembleStrategy;
 import com.agileapes.nemo.disassemble.impl.DisassembleStrategyContext;
 import com.agileapes.nemo.error.ActionDefinitionException;
 import com.agileapes.nemo.error.NoDefaultActionException;
 import com.agileapes.nemo.error.NoStrategyAttributedException;
 import com.agileapes.nemo.error.OptionDefinitionException;
+import com.agileapes.nemo.util.match.WordIndex;
+import com.agileapes.nemo.util.match.Match;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -26,6 +29,13 @@ import java.util.concurrent.CopyOnWriteArraySet;
  * gathering entity which is the reference entity for all the actions in the system. If there is an action that can be
  * referenced from the execution context it must be registered here and vice versa.
  *
+ * Registering an {@link ActionDeclaration} instead of an action will make the target available without loading
+ * the action, which will be resolved the first time it is accessed.
+ *
+ * The names of the targets are also indexed as they are registered, so that the target closest to a name which does
+ * not belong to any target can be found without going through all of them (see
+ * {@link #getClosestTarget(String, double)}).
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/10, 16:44)
  */
@@ -33,6 +43,7 @@ public class ActionContext extends AbstractThreadSafeContext<Object> {
 
     private final Set<Action> internalActions = new CopyOnWriteArraySet<Action>();
     private final Map<String, Action> actions = new ConcurrentHashMap<String, Action>();
+    private final WordIndex targetIndex = new WordIndex();
     private final static Log log = LogFactory.getLog(ActionContext.class);
     private Action defaultAction = null;
 
@@ -46,22 +57,28 @@ public class ActionContext extends AbstractThreadSafeContext<Object> {
         addBeanProcessor(new BeanProcessorAdapter<Object>(OrderedBean.HIGHEST_PRECEDENCE) {
             @Override
             public Object postProcessBeforeRegistration(Object bean, String beanName) throws RegistryException {
-                log.info("Registering action <" + beanName + "> of type " + bean.getClass());
-                final DisassembleStrategy<Object> strategy;
-                try {
-                    log.info("Attempting to discern action strategy for action " + beanName);
-                    strategy = strategyContext.getStrategy(bean);
-                } catch (NoStrategyAttributedException e) {
-                    throw new FatalRegistryException("Could not find a strategy matching the requirements of action: " + beanName, e);
-                }
                 final SmartAction<Object> action;
-                try {
-                    action = new SmartAction<Object>(bean, strategy);
-                } catch (OptionDefinitionException e) {
-                    throw new ActionDefinitionException("Could not define action", e);
+                if (bean instanceof ActionDeclaration) {
+                    log.info("Registering action <" + beanName + "> of type " + ((ActionDeclaration) bean).getType() + " for deferred resolution");
+                    action = new SmartAction<Object>((ActionDeclaration) bean, strategyContext);
+                } else {
+                    log.info("Registering action <" + beanName + "> of type " + bean.getClass());
+                    final DisassembleStrategy<Object> strategy;
+                    try {
+                        log.info("Attempting to discern action strategy for action " + beanName);
+                        strategy = strategyContext.getStrategy(bean);
+                    } catch (NoStrategyAttributedException e) {
+                        throw new FatalRegistryException("Could not find a strategy matching the requirements of action: " + beanName, e);
+                    }
+                    try {
+                        action = new SmartAction<Object>(bean, strategy);
+                    } catch (OptionDefinitionException e) {
+                        throw new ActionDefinitionException("Could not define action", e);
+                    }
                 }
                 action.setName(beanName);
                 actions.put(action.getName(), action);
+                targetIndex.add(action.getName());
                 if (action.isDefaultAction()) {
                     if (action.isInternal()) {
                         throw new ActionDefinitionException("Actions cannot be both internal and marked as default: " + action.getName());
@@ -119,4 +136,14 @@ public class ActionContext extends AbstractThreadSafeContext<Object> {
         return Collections.unmodifiableSet(actions.keySet());
     }
 
+    /**
+     * @param target     the name of the target, which does not need to be registered
+     * @param maximum    the highest acceptable score, being the edit distance between the two names divided by the
+     *                   length of the longer one
+     * @return the target closest to the given name, or {@code null} if there is no target close enough
+     */
+    public Match getClosestTarget(String target, double maximum) {
+        return targetIndex.getClosest(target, maximum);
+    }
+
 }
@@ -0,0 +1,204 @@
+package com.agileapes.nemo.action.impl;
+
+import com.agileapes.couteau.context.error.FatalRegistryException;
+import com.agileapes.couteau.context.error.RegistryException;
+import com.agileapes.nemo.action.ActionDeclaration;
+import com.agileapes.nemo.api.Help;
+import com.agileapes.nemo.error.OptionDefinitionException;
+import com.agileapes.nemo.option.OptionDescriptor;
+import com.agileapes.nemo.option.OptionSet;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * The registry index is the runtime counterpart of the index written at build time by the
+ * {@code com.agileapes.nemo.processor.RegistryIndexProcessor}. Every index found on the classpath under
+ * {@link #LOCATION} is read and turned into {@link ActionDeclaration}s, which can then be registered with the
+ * executor context without instantiating any of the actions.
+ *
+ * The index itself is a properties file, listing the targets under {@link #TARGETS} and describing each target
+ * through the keys given by the {@link Key} constants of this class.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/15, 11:45)
+ */
+public class RegistryIndex {
+
+    public static final String LOCATION = "META-INF/nemo/registry";
+    public static final String TARGETS = "targets";
+    public static final String SEPARATOR = ",";
+    public static final String DESCRIPTION = ".description";
+    public static final Key TYPE = new Key("type");
+    public static final Key DEFAULT = new Key("default");
+    public static final Key INTERNAL = new Key("internal");
+    public static final Key OPTIONS = new Key("options");
+    public static final Key HELP = new Key("help");
+    public static final Key OPTION_ALIAS = new Key("alias");
+    public static final Key OPTION_INDEX = new Key("index");
+    public static final Key OPTION_REQUIRED = new Key("required");
+    public static final Key OPTION_TYPE = new Key("type");
+    public static final Key OPTION_HELP = new Key("help");
+    private static final String HELP_METADATA = "@" + Help.class.getCanonicalName();
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+    private static final Log log = LogFactory.getLog(RegistryIndex.class);
+    private final Map<String, ActionDeclaration> declarations = new LinkedHashMap<String, ActionDeclaration>();
+
+    static {
+        for (Class<?> type : new Class[]{boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class}) {
+            PRIMITIVES.put(type.getName(), type);
+        }
+    }
+
+    /**
+     * Will read all the indices visible to the given class loader. Should a target be declared by more than one
+     * index, the first declaration will be kept.
+     * @param classLoader    the class loader
+     * @return the merged index
+     * @throws RegistryException if the indices cannot be read
+     */
+    public static RegistryIndex load(ClassLoader classLoader) throws RegistryException {
+        final RegistryIndex index = new RegistryIndex();
+        final Enumeration<URL> resources;
+        try {
+            resources = classLoader.getResources(LOCATION);
+        } catch (IOException e) {
+            throw new FatalRegistryException("Failed to look up the registry index", e);
+        }
+        while (resources.hasMoreElements()) {
+            final URL resource = resources.nextElement();
+            log.info("Reading registry index from " + resource);
+            final Properties properties = new Properties();
+            try {
+                final InputStream stream = resource.openStream();
+                try {
+                    properties.load(stream);
+                } finally {
+                    stream.close();
+                }
+            } catch (IOException e) {
+                throw new FatalRegistryException("Failed to read the registry index at " + resource, e);
+            }
+            for (String target : split(properties.getProperty(TARGETS))) {
+                if (index.declarations.containsKey(target)) {
+                    log.warn("Target <" + target + "> declared at " + resource + " has already been declared elsewhere");
+                    continue;
+                }
+                index.declarations.put(target, new IndexedActionDeclaration(target, properties, classLoader));
+            }
+        }
+        return index;
+    }
+
+    private static List<String> split(String value) {
+        if (value == null || value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(value.split(SEPARATOR));
+    }
+
+    private static Properties getHelp(Properties properties, String key) {
+        final Properties metadata = new Properties();
+        final String help = properties.getProperty(key);
+        if (help != null) {
+            final Map<String, Object> values = new HashMap<String, Object>();
+            values.put("value", help);
+            values.put("description", properties.getProperty(key + DESCRIPTION, ""));
+            metadata.put(HELP_METADATA, Collections.unmodifiableMap(values));
+        }
+        return metadata;
+    }
+
+    private RegistryIndex() {
+    }
+
+    /**
+     * @return a map of target names to the declarations of their actions, in the order of their appearance
+     */
+    public Map<String, ActionDeclaration> getDeclarations() {
+        return Collections.unmodifiableMap(declarations);
+    }
+
+    /**
+     * @param target    the target
+     * @return the prefix shared by the keys of all the properties describing the target and its options
+     */
+    public static String getPrefix(String target) {
+        return "target." + target + ".";
+    }
+
+    /**
+     * The key names the property holding a single piece of information about either a target or one of its
+     * options.
+     */
+    public static final class Key {
+
+        private final String name;
+
+        private Key(String name) {
+            this.name = name;
+        }
+
+        public String key(String target) {
+            return getPrefix(target) + name;
+        }
+
+        public String key(String target, String option) {
+            return getPrefix(target) + "option." + option + "." + name;
+        }
+
+    }
+
+    private static class IndexedActionDeclaration extends ActionDeclaration {
+
+        private final String target;
+        private final Properties properties;
+        private final ClassLoader classLoader;
+        private OptionSet<OptionDescriptor> options;
+
+        private IndexedActionDeclaration(String target, Properties properties, ClassLoader classLoader) {
+            super(properties.getProperty(TYPE.key(target)), classLoader, getHelp(properties, HELP.key(target)));
+            this.target = target;
+            this.properties = properties;
+            this.classLoader = classLoader;
+            setDefaultAction(Boolean.parseBoolean(properties.getProperty(DEFAULT.key(target))));
+            setInternal(Boolean.parseBoolean(properties.getProperty(INTERNAL.key(target))));
+        }
+
+        @Override
+        public synchronized Set<? extends OptionDescriptor> getOptions() {
+            if (options != null) {
+                return options;
+            }
+            final List<OptionDescriptor> descriptors = new ArrayList<OptionDescriptor>();
+            for (String option : split(properties.getProperty(OPTIONS.key(target)))) {
+                final String alias = properties.getProperty(OPTION_ALIAS.key(target, option));
+                final String index = properties.getProperty(OPTION_INDEX.key(target, option));
+                descriptors.add(new OptionDescriptor(option, alias == null ? null : alias.charAt(0),
+                        index == null ? null : Integer.parseInt(index),
+                        Boolean.parseBoolean(properties.getProperty(OPTION_REQUIRED.key(target, option))),
+                        getType(properties.getProperty(OPTION_TYPE.key(target, option))), null,
+                        RegistryIndex.getHelp(properties, OPTION_HELP.key(target, option))));
+            }
+            options = new OptionSet<OptionDescriptor>(descriptors);
+            return options;
+        }
+
+        private Class<?> getType(String name) {
+            if (PRIMITIVES.containsKey(name)) {
+                return PRIMITIVES.get(name);
+            }
+            try {
+                return Class.forName(name, false, classLoader);
+            } catch (ClassNotFoundException e) {
+                throw new OptionDefinitionException("Option type not found: " + name, e);
+            }
+        }
+
+    }
+
+}
@@ -1,17 +1,30 @@
 package com.agileapes.nemo.action.impl;
 
+import com.agileapes.couteau.context.error.FatalRegistryException;
+import com.agileapes.couteau.context.error.RegistryException;
 import com.agileapes.nemo.action.Action;
 import com.agileapes.nemo.action.ActionContextAware;
+import com.agileapes.nemo.action.ActionDeclaration;
 import com.agileapes.nemo.disassemble.DisassembleStrategy;
 import com.agileapes.nemo.disassemble.DisassemblerAware;
+import com.agileapes.nemo.disassemble.impl.DisassembleStrategyContext;
+import com.agileapes.nemo.error.ActionDefinitionException;
+import com.agileapes.nemo.error.NoStrategyAttributedException;
 import com.agileapes.nemo.error.NoSuchOptionException;
 import com.agileapes.nemo.error.OptionDefinitionException;
 import com.agileapes.nemo.error.RequiredOptionsMissingException;
 import com.agileapes.nemo.option.OptionDescriptor;
+import com.agileapes.nemo.util.Profiler;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
+import java.io.PrintStream;
 import java.util.HashSet;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The smart action class is an extension to the action class which is able to discern much information through
@@ -19,14 +32,23 @@ import java.util.Set;
  * adding a level of indirection will enable you to get access to much of the internally available data and metadata
  * associated with actions throughout the execution of the system.
  *
+ * Executions of the action should go through {@link #claim()}, which hands out an {@link Invocation} holding its own
+ * option state and bound to an instance of the action no other thread is using.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/10, 17:18)
  */
 public class SmartAction<A> extends Action implements DisassemblerAware<A>, ActionContextAware {
 
-    private final A action;
-    private final DisassembleStrategy<A> strategy;
-    private final Set<OptionDescriptor> required = new HashSet<OptionDescriptor>();
+    private static final Log log = LogFactory.getLog(SmartAction.class);
+    private final ActionDeclaration declaration;
+    private final DisassembleStrategyContext strategyContext;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Queue<A> idle = new ConcurrentLinkedQueue<A>();
+    private volatile A action;
+    private volatile boolean shared;
+    private DisassembleStrategy<A> strategy;
+    private ActionContext actionContext;
 
     /**
      * Will instantiate the smart action by getting the action to be wrapped and its associated strategy
@@ -34,75 +56,171 @@ public class SmartAction<A> extends Action implements DisassemblerAware<A>, Acti
      * @param strategy    the strategy
      */
     public SmartAction(A action, DisassembleStrategy<A> strategy) throws OptionDefinitionException {
-        this.action = action;
+        this.declaration = null;
+        this.strategyContext = null;
         this.strategy = strategy;
-        for (OptionDescriptor descriptor : strategy.getOptions(action)) {
-            if (descriptor.isRequired()) {
-                required.add(descriptor);
-            }
-        }
-
+        describe(action);
+        this.action = action;
     }
 
     /**
-     * Will set the option described by the {@code described} parameter
-     * @param descriptor    the descriptor
-     * @param value         the textual representation of the desired target value
-     * @throws NoSuchOptionException if the descriptor does not describe an option associated with this action
-     * @throws OptionDefinitionException if there is a problem with the definition of the option itself
+     * Will instantiate a deferred smart action, which will only instantiate and describe the declared action
+     * once it is accessed for the first time, or once it is {@link #resolve() resolved} explicitly. Until then,
+     * the flags and the metadata of the action are served from the declaration.
+     * @param declaration        the declaration of the action
+     * @param strategyContext    the context through which the strategy for the action will be determined
      */
-    private void setOption(OptionDescriptor descriptor, String value) throws NoSuchOptionException, OptionDefinitionException {
-        required.remove(descriptor);
-        strategy.setOption(action, descriptor, value);
+    public SmartAction(ActionDeclaration declaration, DisassembleStrategyContext strategyContext) {
+        this.declaration = declaration;
+        this.strategyContext = strategyContext;
+    }
+
+    private void describe(A action) throws OptionDefinitionException {
+        final Profiler.Phase phase = Profiler.start("describe " + action.getClass().getName());
+        try {
+            strategy.getOptions(action);
+        } finally {
+            phase.stop();
+        }
     }
 
     /**
-     * Will attempt to set the option by name
-     * @param option        the name of the option (--name)
-     * @param value         the textual representation of the desired target value
-     * @throws NoSuchOptionException
-     * @throws OptionDefinitionException
+     * @return {@code true} if the wrapped action has been instantiated and described
      */
-    public void setOption(String option, String value) throws NoSuchOptionException, OptionDefinitionException {
-        setOption(strategy.getOption(action, option), value);
+    public boolean isResolved() {
+        return action != null;
     }
 
     /**
-     * Will attempt to set the option value by alias
-     * @param alias         the alias of the option (-alias)
-     * @param value         the textual representation of the desired target value
-     * @throws NoSuchOptionException
-     * @throws OptionDefinitionException
+     * Will instantiate and describe the declared action, if this has not already been done.
+     * @throws RegistryException if the action cannot be instantiated, or if it cannot be described
      */
-    public void setOption(Character alias, String value) throws NoSuchOptionException, OptionDefinitionException {
-        setOption(strategy.getOption(action, alias), value);
+    @SuppressWarnings("unchecked")
+    public synchronized void resolve() throws RegistryException {
+        if (action != null) {
+            return;
+        }
+        log.info("Resolving action <" + getName() + "> of type " + declaration.getType());
+        final Object instance = declaration.instantiate();
+        try {
+            strategy = (DisassembleStrategy<A>) strategyContext.getStrategy(instance);
+        } catch (NoStrategyAttributedException e) {
+            throw new FatalRegistryException("Could not find a strategy matching the requirements of action: " + getName(), e);
+        }
+        prepare(instance);
+        try {
+            describe((A) instance);
+        } catch (OptionDefinitionException e) {
+            throw new ActionDefinitionException("Could not define action", e);
+        }
+        action = (A) instance;
+    }
+
+    private void prepare(Object instance) {
+        if (instance instanceof Action) {
+            if (declaration.isDefaultAction()) {
+                ((Action) instance).setDefaultAction(true);
+            }
+            if (declaration.isInternal()) {
+                ((Action) instance).setInternal(true);
+            }
+        }
+        if (actionContext != null && instance instanceof ActionContextAware) {
+            ((ActionContextAware) instance).setActionContext(actionContext);
+        }
     }
 
     /**
-     * Will attempt to set the option value by numerical index
-     * @param index         the index to the option (%index)
-     * @param value         the textual representation of the desired target value
-     * @throws NoSuchOptionException
-     * @throws OptionDefinitionException
+     * Will claim an instance of the action for a single invocation. The invocation holds its own option state, so
+     * that any number of invocations of the same action can be carried out in parallel, as long as they are each
+     * carried out on a single thread.
+     *
+     * The first invocation is handed the resolved action itself. Should that be in use by another thread, a new
+     * instance is taken from the declaration of the action (and later kept around for reuse) if the action was
+     * registered through one. Otherwise, or if the declaration keeps handing out the same instance (as is the case
+     * with singleton beans), the invocation will wait for the action to be released.
+     *
+     * Claims made while the same thread already holds the resolved action (as is the case with an action invoking
+     * itself) are handed a pooled or a new instance in the same manner, so that the options of the outer invocation
+     * are left alone. Only when no other instance can be had is the same instance handed out again.
+     *
+     * The invocation must be {@link Invocation#release() released} once it is over.
+     * @return the invocation
+     * @throws RegistryException if the action cannot be resolved, or a new instance of it cannot be created
      */
-    public void setOption(Integer index, String value) throws NoSuchOptionException, OptionDefinitionException {
-        setOption(strategy.getOption(action, index), value);
+    public Invocation claim() throws RegistryException {
+        if (action == null) {
+            resolve();
+        }
+        if (!lock.isHeldByCurrentThread() && lock.tryLock()) {
+            return new Invocation(action, true);
+        }
+        if (declaration != null && !shared) {
+            A instance = idle.poll();
+            if (instance == null) {
+                instance = create();
+            }
+            if (instance != null) {
+                return new Invocation(instance, false);
+            }
+        }
+        //waiting on the lock is re-entrant, so that a nested claim falls back on the instance already in use
+        lock.lock();
+        return new Invocation(action, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private A create() throws RegistryException {
+        final Object instance = declaration.instantiate();
+        if (instance == action) {
+            log.info("Action <" + getName() + "> is shared between invocations; these will be carried out one at a time");
+            shared = true;
+            return null;
+        }
+        log.debug("Creating a new instance of action <" + getName() + "> for a concurrent invocation");
+        prepare(instance);
+        try {
+            strategy.getOptions((A) instance);
+        } catch (OptionDefinitionException e) {
+            throw new ActionDefinitionException("Could not define action", e);
+        }
+        return (A) instance;
+    }
+
+    private A getResolvedAction() throws OptionDefinitionException {
+        if (action == null) {
+            try {
+                resolve();
+            } catch (RegistryException e) {
+                throw new OptionDefinitionException("Could not resolve action: " + getName(), e);
+            }
+        }
+        return action;
     }
 
     /**
-     * @return a set of all the options provided by the action
-     * @throws OptionDefinitionException
+     * @return the strategy of the action, resolving the action first if need be. Since the receiver of a call is
+     * evaluated ahead of its arguments, {@code getStrategy().method(action)} is guaranteed to see the resolved action.
      */
-    public Set<? extends OptionDescriptor> getOptions() throws OptionDefinitionException {
-        return strategy.getOptions(action);
+    private DisassembleStrategy<A> getStrategy() throws OptionDefinitionException {
+        getResolvedAction();
+        return strategy;
     }
 
     /**
-     * Will reset all option values to the defaults designated by action developers.
+     * @return a set of all the options provided by the action. For deferred actions whose options are known in
+     * advance this will not cause the action to be resolved, although the descriptors will then carry no default
+     * values.
      * @throws OptionDefinitionException
      */
-    public void reset() throws OptionDefinitionException {
-        strategy.reset(action);
+    public Set<? extends OptionDescriptor> getOptions() throws OptionDefinitionException {
+        if (action == null) {
+            final Set<? extends OptionDescriptor> options = declaration.getOptions();
+            if (options != null) {
+                return options;
+            }
+        }
+        return getStrategy().getOptions(action);
     }
 
     /**
@@ -111,6 +229,9 @@ public class SmartAction<A> extends Action implements DisassemblerAware<A>, Acti
      */
     @Override
     public boolean isDefaultAction() {
+        if (action == null) {
+            return declaration.isDefaultAction();
+        }
         return strategy.isDefaultAction(action);
     }
 
@@ -121,6 +242,9 @@ public class SmartAction<A> extends Action implements DisassemblerAware<A>, Acti
      */
     @Override
     public boolean isInternal() {
+        if (action == null) {
+            return declaration.isInternal();
+        }
         return strategy.isInternal(action);
     }
 
@@ -129,7 +253,7 @@ public class SmartAction<A> extends Action implements DisassemblerAware<A>, Acti
      */
     @Override
     public DisassembleStrategy<A> getDisassembler() {
-        return strategy;
+        return getStrategy();
     }
 
     /**
@@ -137,38 +261,165 @@ public class SmartAction<A> extends Action implements DisassemblerAware<A>, Acti
      * non-deterministic manner.
      */
     public A getAction() {
-        return action;
+        return getResolvedAction();
     }
 
     /**
-     * @return the metadata associated with this action
+     * @return the metadata associated with this action. For deferred actions whose metadata is known in advance
+     * this will not cause the action to be resolved.
      */
     public Properties getMetadata() {
-        return strategy.getMetadata(action);
+        if (action == null && declaration.getMetadata() != null) {
+            return declaration.getMetadata();
+        }
+        return getStrategy().getMetadata(action);
     }
 
     /**
-     * Will execute the action after determining that all of its required options have been set.
-     * @throws RequiredOptionsMissingException if one or more of the required options have not been set.
-     * Remember that marking an option as required is at odds with providing a default value for it. Options
-     * that are required will be marked as not-set even if they have default values so long as they have not
-     * been configured externally
+     * Will execute the action through an invocation of its own, with all of its options reset to their defaults.
+     * Options are set per invocation, so in order to execute the action with any options set, {@link #claim()} an
+     * invocation and set them through it instead.
+     * @throws RequiredOptionsMissingException if the action has any required options
      * @throws Exception
      */
     @Override
     public void execute() throws Exception {
-        if (!required.isEmpty()) {
-            throw new RequiredOptionsMissingException(required.toArray(new OptionDescriptor[required.size()]));
+        final Invocation invocation = claim();
+        try {
+            invocation.reset();
+            invocation.setOutput(getOutput());
+            invocation.execute();
+        } finally {
+            invocation.release();
         }
-        strategy.setOutput(action, getOutput());
-        strategy.getExecutable(action).execute();
     }
 
     @Override
-    public void setActionContext(ActionContext actionContext) {
+    public synchronized void setActionContext(ActionContext actionContext) {
+        this.actionContext = actionContext;
         if (action instanceof ActionContextAware) {
             ((ActionContextAware) action).setActionContext(actionContext);
         }
     }
 
+    /**
+     * The invocation is a single run of the action, bound to an instance of the action which no other thread is
+     * using at the same time. It keeps track of the options that are required but have not been set yet.
+     */
+    public class Invocation {
+
+        private final A instance;
+        private final boolean primary;
+        private final Set<OptionDescriptor> required = new HashSet<OptionDescriptor>();
+        private PrintStream output;
+        private boolean released;
+
+        private Invocation(A instance, boolean primary) throws ActionDefinitionException {
+            this.instance = instance;
+            this.primary = primary;
+            try {
+                findRequired();
+            } catch (OptionDefinitionException e) {
+                release();
+                throw new ActionDefinitionException("Could not define action", e);
+            }
+        }
+
+        private void findRequired() throws OptionDefinitionException {
+            required.clear();
+            for (OptionDescriptor descriptor : strategy.getOptions(instance)) {
+                if (descriptor.isRequired()) {
+                    required.add(descriptor);
+                }
+            }
+        }
+
+        /**
+         * @return the instance of the action this invocation has been bound to
+         */
+        public A getAction() {
+            return instance;
+        }
+
+        public void setOutput(PrintStream output) {
+            this.output = output;
+        }
+
+        /**
+         * Will reset all option values of the bound instance to their defaults
+         * @throws OptionDefinitionException
+         */
+        public void reset() throws OptionDefinitionException {
+            strategy.reset(instance);
+            findRequired();
+        }
+
+        private void setOption(OptionDescriptor descriptor, String value) throws NoSuchOptionException, OptionDefinitionException {
+            required.remove(descriptor);
+            strategy.setOption(instance, descriptor, value);
+        }
+
+        public void setOption(String option, String value) throws NoSuchOptionException, OptionDefinitionException {
+            setOption(strategy.getOption(instance, option), value);
+        }
+
+        public void setOption(Character alias, String value) throws NoSuchOptionException, OptionDefinitionException {
+            setOption(strategy.getOption(instance, alias), value);
+        }
+
+        public void setOption(Integer index, String value) throws NoSuchOptionException, OptionDefinitionException {
+            setOption(strategy.getOption(instance, index), value);
+        }
+
+        /**
+         * @return the positional option taking all positional values from its index onward, or {@code null} if the
+         * action has no such option
+         * @throws OptionDefinitionException
+         * @see OptionDescriptor#isSequence()
+         */
+        public OptionDescriptor getSequence() throws OptionDefinitionException {
+            OptionDescriptor sequence = null;
+            for (OptionDescriptor descriptor : strategy.getOptions(instance)) {
+                if (descriptor.isSequence() && (sequence == null || descriptor.getIndex() < sequence.getIndex())) {
+                    sequence = descriptor;
+                }
+            }
+            return sequence;
+        }
+
+        public void setValues(OptionDescriptor descriptor, Iterable<String> values) throws NoSuchOptionException, OptionDefinitionException {
+            required.remove(descriptor);
+            strategy.setValues(instance, descriptor, values);
+        }
+
+        /**
+         * Will execute the bound instance after determining that all of its required options have been set.
+         * @throws RequiredOptionsMissingException if one or more of the required options have not been set.
+         * @throws Exception
+         */
+        public void execute() throws Exception {
+            if (!required.isEmpty()) {
+                throw new RequiredOptionsMissingException(required.toArray(new OptionDescriptor[required.size()]));
+            }
+            strategy.setOutput(instance, output);
+            strategy.getExecutable(instance).execute();
+        }
+
+        /**
+         * Will hand the bound instance back to the action. Calling this method more than once has no effect.
+         */
+        public void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (primary) {
+                lock.unlock();
+            } else {
+                idle.offer(instance);
+            }
+        }
+
+    }
+
 }
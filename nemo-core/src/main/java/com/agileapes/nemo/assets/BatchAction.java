@@ -0,0 +1,89 @@
+package com.agileapes.nemo.assets;
+
+import com.agileapes.nemo.action.Action;
+import com.agileapes.nemo.api.Disassembler;
+import com.agileapes.nemo.api.Help;
+import com.agileapes.nemo.api.Option;
+import com.agileapes.nemo.disassemble.impl.AnnotatedFieldsDisassembleStrategy;
+import com.agileapes.nemo.error.FatalExecutionException;
+import com.agileapes.nemo.exec.BatchRunner;
+import com.agileapes.nemo.exec.ClientEnvironment;
+import com.agileapes.nemo.exec.ExecutorContext;
+
+import java.io.*;
+
+/**
+ * The batch action hands the invocations read from a file, or from the standard input, over to a {@link BatchRunner},
+ * so that any number of invocations can be run through the context that is already up and running. Since it needs the
+ * context, this action has to be registered as an instance:
+ *
+ * <pre>
+ *     context.addAction("batch", new BatchAction(context));
+ * </pre>
+ *
+ * The outcome of each invocation, as well as the summary of the batch, is written to the standard error of the client,
+ * so that it does not mix with the output of the invocations themselves.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/19, 16:00)
+ */
+@Help(
+        value = "Runs the invocations listed in a file, one per line",
+        description = "Each line is either a shell-style command line, or a JSON array of arguments. " +
+                "Leave the file unset, or set it to '-', to read the invocations from the standard input."
+)
+@Disassembler(AnnotatedFieldsDisassembleStrategy.class)
+public class BatchAction extends Action {
+
+    private static final String STDIN = "-";
+    private final ExecutorContext context;
+
+    @Option(index = 0)
+    @Help("The file listing the invocations")
+    private String file = STDIN;
+
+    @Option(alias = 'k')
+    @Help("Goes on with the rest of the batch once an invocation has failed")
+    private boolean keepGoing = false;
+
+    @Option(alias = 'p')
+    @Help(value = "The number of invocations to run at the same time",
+            description = "Invocations running at the same time must not depend on one another")
+    private int parallel = 1;
+
+    @Option
+    @Help("Reports invocations run in parallel as soon as they complete, rather than in the order of the batch")
+    private boolean completionOrder = false;
+
+    public BatchAction(ExecutorContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void execute() throws Exception {
+        final ClientEnvironment environment = context.getEnvironment();
+        final Reader reader;
+        if (file == null || file.isEmpty() || STDIN.equals(file)) {
+            reader = new InputStreamReader(environment.getInput());
+        } else {
+            reader = new InputStreamReader(new FileInputStream(environment.resolve(file)), "UTF-8");
+        }
+        final BatchRunner runner = new BatchRunner(context);
+        runner.setKeepGoing(keepGoing);
+        runner.setParallelism(Math.max(1, parallel));
+        runner.setOrdered(!completionOrder);
+        final BatchRunner.Summary summary;
+        try {
+            summary = runner.run(reader, output, environment.getError());
+        } finally {
+            if (!STDIN.equals(file)) {
+                reader.close();
+            }
+        }
+        environment.getError().println(summary);
+        if (!summary.isSuccessful()) {
+            throw new FatalExecutionException(summary.getFailed() + " of " + summary.getTotal() + " invocation(s) failed");
+        }
+    }
+
+}
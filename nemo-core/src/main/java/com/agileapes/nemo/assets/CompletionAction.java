@@ -0,0 +1,55 @@
+package com.agileapes.nemo.assets;
+
+import com.agileapes.nemo.action.Action;
+import com.agileapes.nemo.action.ActionContextAware;
+import com.agileapes.nemo.action.impl.ActionContext;
+import com.agileapes.nemo.api.Disassembler;
+import com.agileapes.nemo.api.Help;
+import com.agileapes.nemo.api.Option;
+import com.agileapes.nemo.disassemble.impl.AnnotatedFieldsDisassembleStrategy;
+import com.agileapes.nemo.util.CompletionScript;
+
+/**
+ * The completion action writes a static completion script for the application to its output (see
+ * {@link CompletionScript}), so that, once the script has been installed, completing a command line never requires
+ * running the application. For instance, for bash:
+ *
+ * <pre>
+ *     app completion bash --program app > /etc/bash_completion.d/app
+ * </pre>
+ *
+ * The script reflects the targets and options registered at the time it is written, and needs to be written again
+ * once they change, which makes the build a good place for writing it.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/20, 16:10)
+ */
+@Help(
+        value = "Writes a shell completion script for the application",
+        description = "The script can be written for 'bash', 'zsh', or 'fish', and should be installed wherever " +
+                "the shell expects to find completion scripts."
+)
+@Disassembler(AnnotatedFieldsDisassembleStrategy.class)
+public class CompletionAction extends Action implements ActionContextAware {
+
+    private ActionContext actionContext;
+
+    @Option(index = 0)
+    @Help("The shell for which the script is written: bash, zsh, or fish")
+    private CompletionScript.Shell shell = CompletionScript.Shell.BASH;
+
+    @Option(alias = 'n', required = true)
+    @Help("The name under which the application is invoked from the shell")
+    private String program;
+
+    @Override
+    public void setActionContext(ActionContext actionContext) {
+        this.actionContext = actionContext;
+    }
+
+    @Override
+    public void execute() throws Exception {
+        new CompletionScript(actionContext, program).write(shell, output);
+    }
+
+}
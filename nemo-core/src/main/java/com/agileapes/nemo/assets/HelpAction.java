@@ -12,6 +12,7 @@ import com.agileapes.nemo.disassemble.impl.AnnotatedFieldsDisassembleStrategy;
 import com.agileapes.nemo.error.NoSuchOptionException;
 import com.agileapes.nemo.option.OptionDescriptor;
 import com.agileapes.nemo.util.output.Grid;
+import com.agileapes.nemo.util.output.GridLayout;
 
 import java.util.*;
 
@@ -35,6 +36,7 @@ import static com.agileapes.couteau.basics.collections.CollectionWrapper.with;
 public class HelpAction extends Action implements ActionContextAware {
 
     private static final String ALL = "*";
+    private static final GridLayout ACTIONS = GridLayout.compile(" c3 * w60");
     public static final String HELP = "@" + Help.class.getCanonicalName();
     private ActionContext actionContext;
 
@@ -63,7 +65,7 @@ public class HelpAction extends Action implements ActionContextAware {
         if (ALL.equals(target) && ALL.equals(option)) {
             //we need help for all the available actions
             final List<String> names = with(actionContext.getActions().keySet()).sort().list();
-            final Grid grid = new Grid(" c3 * w60");
+            final Grid grid = new Grid(ACTIONS);
             grid.add("[x]", "Name", "Description");
             grid.line();
             int length = 0;
@@ -115,15 +117,17 @@ public class HelpAction extends Action implements ActionContextAware {
             //we want help for a specific option under a specific target
             final SmartAction action = (SmartAction) actionContext.get(target);
             OptionDescriptor descriptor = null;
+            NoSuchOptionException missing = null;
             try {
                 descriptor = action.getDisassembler().getOption(action.getAction(), option);
-            } catch (NoSuchOptionException ignored) {
+            } catch (NoSuchOptionException e) {
+                missing = e;
             }
             if (descriptor == null && option.length() == 1) {
                 descriptor = action.getDisassembler().getOption(action.getAction(), option.charAt(0));
             }
             if (descriptor == null) {
-                throw new NoSuchOptionException(option);
+                throw missing != null ? missing : new NoSuchOptionException(option);
             }
             output.print("Usage: " + target + " --" + descriptor.getName());
             if (!descriptor.isFlag()) {
@@ -0,0 +1,104 @@
+package com.agileapes.nemo.assets;
+
+import com.agileapes.nemo.action.Action;
+import com.agileapes.nemo.api.Disassembler;
+import com.agileapes.nemo.api.Help;
+import com.agileapes.nemo.api.Option;
+import com.agileapes.nemo.disassemble.impl.AnnotatedFieldsDisassembleStrategy;
+import com.agileapes.nemo.error.BatchSyntaxException;
+import com.agileapes.nemo.exec.BatchRunner;
+import com.agileapes.nemo.exec.ClientEnvironment;
+import com.agileapes.nemo.exec.Completer;
+import com.agileapes.nemo.exec.ExecutorContext;
+import com.agileapes.nemo.util.ExceptionMessage;
+import com.agileapes.nemo.util.LineReader;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * The shell action reads command lines in a loop and runs each of them through the context that is already up and
+ * running, so that only the first command pays for starting the application. Since it needs the context, this action
+ * has to be registered as an instance:
+ *
+ * <pre>
+ *     context.addAction("shell", new ShellAction(context));
+ * </pre>
+ *
+ * Command lines follow the same shell-style syntax as the lines of a batch (see {@link BatchRunner}). When attached to
+ * a terminal, the targets and options of the application can be completed with the tab key (see {@link Completer}),
+ * and previously run commands can be brought back with the arrow keys. The history is kept across sessions in the file
+ * designated by the {@link #HISTORY_PROPERTY} system property, which defaults to {@code ~/.nemo_history}.
+ *
+ * Besides the targets of the application, the shell understands {@code history}, which lists the history, and
+ * {@code exit} (or {@code quit}), which ends the session.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/20, 12:30)
+ */
+@Help(
+        value = "Starts an interactive shell for running targets one after the other",
+        description = "Type 'exit' or press Ctrl-D to leave the shell, and 'history' to see previous commands."
+)
+@Disassembler(AnnotatedFieldsDisassembleStrategy.class)
+public class ShellAction extends Action {
+
+    public static final String HISTORY_PROPERTY = "nemo.shell.history";
+    private static final int HISTORY_LIMIT = 1000;
+    private final ExecutorContext context;
+
+    @Option(alias = 'p')
+    @Help("The prompt shown before each command")
+    private String prompt = "> ";
+
+    public ShellAction(ExecutorContext context) {
+        this.context = context;
+    }
+
+    private static File getHistoryFile() {
+        final String path = System.getProperty(HISTORY_PROPERTY);
+        if (path != null && !path.isEmpty()) {
+            return new File(path);
+        }
+        return new File(System.getProperty("user.home"), ".nemo_history");
+    }
+
+    @Override
+    public void execute() throws Exception {
+        final ClientEnvironment environment = context.getEnvironment();
+        final File historyFile = getHistoryFile();
+        final List<String> history = LineReader.loadHistory(historyFile, HISTORY_LIMIT);
+        final boolean terminal = System.console() != null && environment.getInput() == System.in;
+        final LineReader reader = new LineReader(environment.getInput(), output,
+                new Completer(context.getActionContext()), history, terminal);
+        try {
+            String line;
+            while ((line = reader.readLine(prompt)) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if ("exit".equals(line) || "quit".equals(line)) {
+                    break;
+                }
+                if ("history".equals(line)) {
+                    for (int i = 0; i < history.size(); i++) {
+                        output.println(String.format("%5d  %s", i + 1, history.get(i)));
+                    }
+                    continue;
+                }
+                try {
+                    context.execute(environment, output, BatchRunner.split(line));
+                } catch (BatchSyntaxException e) {
+                    environment.getError().println("error: " + e.getMessage());
+                } catch (Throwable e) {
+                    environment.getError().println("error: " + new ExceptionMessage(e).getMessage());
+                }
+                output.flush();
+            }
+        } finally {
+            LineReader.saveHistory(historyFile, history, HISTORY_LIMIT);
+        }
+    }
+
+}
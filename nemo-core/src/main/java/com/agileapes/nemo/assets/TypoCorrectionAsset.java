@@ -1,17 +1,19 @@
 package com.agileapes.nemo.assets;
 
-import com.agileapes.couteau.basics.api.Filter;
-import com.agileapes.couteau.basics.api.Processor;
-import com.agileapes.couteau.basics.api.Transformer;
 import com.agileapes.couteau.context.contract.EventListener;
+import com.agileapes.nemo.action.Action;
+import com.agileapes.nemo.action.impl.ActionContext;
+import com.agileapes.nemo.action.impl.SmartAction;
 import com.agileapes.nemo.event.impl.events.ExecutionStartedEvent;
-import org.apache.commons.lang.StringUtils;
+import com.agileapes.nemo.option.OptionDescriptor;
+import com.agileapes.nemo.option.OptionSet;
+import com.agileapes.nemo.option.Options;
+import com.agileapes.nemo.util.Profiler;
+import com.agileapes.nemo.util.match.Match;
 
 import java.io.PrintStream;
-import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
-
-import static com.agileapes.couteau.basics.collections.CollectionWrapper.with;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This class is an event listener which is capable of determining whether or not a certain
@@ -21,6 +23,15 @@ import static com.agileapes.couteau.basics.collections.CollectionWrapper.with;
  * threshold of accepted closeness between the intended and the actual action names, suggest
  * an action names that is close to the one given by the user.
  *
+ * Closeness is measured as the edit distance between the two names divided by the length of the longer one, and the
+ * closest target is looked up in the index kept by the {@link ActionContext}, rather than by comparing the name
+ * against every target.
+ *
+ * Once the target is known, the names of the options given as {@code --name} are corrected in the same manner, using
+ * the {@link OptionSet} of the action. Names which are not close enough to any option to be corrected are left alone,
+ * so that the action fails on them with a {@link com.agileapes.nemo.error.NoSuchOptionException} suggesting the options
+ * closest to them.
+ *
  * This listener is not included by default in the context, and in case the developer wishes
  * to provide such a facility to its users, it can be added to the context as an event listener
  * via {@link com.agileapes.nemo.exec.ExecutorContext#addEventListener(com.agileapes.couteau.context.contract.EventListener)}
@@ -30,104 +41,84 @@ import static com.agileapes.couteau.basics.collections.CollectionWrapper.with;
  */
 public class TypoCorrectionAsset implements EventListener<ExecutionStartedEvent> {
 
+    /**
+     * The highest score (i.e. edit distance divided by the length of the longer name) at which a target is still
+     * considered for suggestion
+     */
+    private static final double MAXIMUM_SCORE = 0.6;
+
     private final double threshold;
 
     public TypoCorrectionAsset(double threshold) {
         this.threshold = threshold;
     }
 
-    private static Map.Entry<Double, String> getClosestTarget(final String target, Set<String> names) {
-        final AtomicLong factor = new AtomicLong(0);
-        try {
-            with(names).each(new Processor<String>() {
-                @Override
-                public void process(String item) {
-                    factor.set(Math.max(item.length(), target.length()));
-                }
-            });
-        } catch (Exception ignored) {
-            return null;
-        }
-        List<Map.Entry<Double,String>> list;
-        try {
-            list = with(names).transform(new Transformer<String, Map.Entry<Double, String>>() {
-                @Override
-                public Map.Entry<Double, String> map(String item) {
-                    return new AbstractMap.SimpleEntry<Double, String>((double) StringUtils.getLevenshteinDistance(item, target) / factor.get(), item);
-                }
-            }).list();
-        } catch (Exception e) {
-            return null;
-        }
-        final Set<Double> rejected = new HashSet<Double>();
-        for (Map.Entry<Double, String> entry : list) {
-            if (entry.getKey() > 0.6) {
-                rejected.add(entry.getKey());
-            }
-        }
-        try {
-            //noinspection unchecked
-            list = with(list).keep(new Filter<Map.Entry<Double, String>>() {
-                @Override
-                public boolean accepts(Map.Entry<Double, String> doubleStringEntry) {
-                    return !rejected.contains(doubleStringEntry.getKey());
-                }
-            }).list();
-        } catch (Exception e) {
-            return null;
-        }
-        if (list.isEmpty()) {
-            return null;
-        }
-        final Double distance;
-        try {
-            distance = with(list).transform(new Transformer<Map.Entry<Double, String>, Double>() {
-                @Override
-                public Double map(Map.Entry<Double, String> doubleStringEntry) {
-                    return doubleStringEntry.getKey();
-                }
-            }).sort().first();
-        } catch (Exception e) {
-            return null;
-        }
-        final String entry;
+    @Override
+    public void onEvent(ExecutionStartedEvent event) {
+        final Profiler.Phase phase = Profiler.start("typo correction");
         try {
-            //noinspection unchecked
-            entry = with(list).keep(new Filter<Map.Entry<Double, String>>() {
-                @Override
-                public boolean accepts(Map.Entry<Double, String> doubleStringEntry) {
-                    return doubleStringEntry.getKey().equals(distance);
-                }
-            }).first().getValue();
-        } catch (Exception e) {
-            return null;
+            correct(event);
+        } finally {
+            phase.stop();
         }
-        return new AbstractMap.SimpleEntry<Double, String>(distance, entry);
     }
 
-    @Override
-    public void onEvent(ExecutionStartedEvent event) {
+    private void correct(ExecutionStartedEvent event) {
         final String[] arguments = event.getArguments();
         if (arguments.length == 0 || arguments[0] == null || arguments[0].isEmpty() || arguments[0].startsWith("-")) {
             return;
         }
         final String target = arguments[0];
-        final Set<String> names = event.getExecutorContext().getActionContext().getActions().keySet();
-        if (names.contains(target)) {
+        final ActionContext actionContext = event.getExecutorContext().getActionContext();
+        if (actionContext.getActions().containsKey(target)) {
+            correctOptions(event, actionContext.getActions().get(target));
             return;
         }
-        final Map.Entry<Double, String> closestTarget = getClosestTarget(target, names);
+        final Match closestTarget = actionContext.getClosestTarget(target, MAXIMUM_SCORE);
         if (closestTarget == null) {
             return;
         }
-        if (closestTarget.getKey() < threshold) {
+        if (closestTarget.getScore() < threshold) {
             final PrintStream output = event.getExecutorContext().getOutput();
-            output.println("No such target '" + target + "', we will assume you meant: " + closestTarget.getValue());
+            output.println("No such target '" + target + "', we will assume you meant: " + closestTarget.getWord());
             output.println();
-            arguments[0] = closestTarget.getValue();
+            arguments[0] = closestTarget.getWord();
+            correctOptions(event, actionContext.getActions().get(closestTarget.getWord()));
+            return;
+        }
+        throw new RuntimeException("No such target '" + target + "', did you mean '" + closestTarget.getWord() + "'?");
+    }
+
+    private void correctOptions(ExecutionStartedEvent event, Action action) {
+        if (!(action instanceof SmartAction)) {
+            return;
+        }
+        final Set<? extends OptionDescriptor> descriptors = ((SmartAction<?>) action).getOptions();
+        if (!(descriptors instanceof OptionSet)) {
             return;
         }
-        throw new RuntimeException("No such target '" + target + "', did you mean '" + closestTarget.getValue() + "'?");
+        final OptionSet<?> options = (OptionSet<?>) descriptors;
+        final String[] arguments = event.getArguments();
+        for (int i = 1; i < arguments.length; i++) {
+            final String argument = arguments[i];
+            if (argument == null || argument.length() <= Options.Builder.OPTION_PREFIX.length()
+                    || !argument.startsWith(Options.Builder.OPTION_PREFIX)) {
+                continue;
+            }
+            final String name = argument.substring(Options.Builder.OPTION_PREFIX.length());
+            if (options.get(name) != null) {
+                continue;
+            }
+            final List<Match> matches = options.getMatches(name, MAXIMUM_SCORE, 1);
+            if (matches.isEmpty() || matches.get(0).getScore() >= threshold) {
+                continue;
+            }
+            final String option = matches.get(0).getWord();
+            final PrintStream output = event.getExecutorContext().getOutput();
+            output.println("No such option '" + argument + "', we will assume you meant: " + Options.Builder.OPTION_PREFIX + option);
+            output.println();
+            arguments[i] = Options.Builder.OPTION_PREFIX + option;
+        }
     }
 
 }
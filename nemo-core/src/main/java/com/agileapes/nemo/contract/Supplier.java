@@ -0,0 +1,18 @@
+package com.agileapes.nemo.contract;
+
+/**
+ * The supplier is in charge of providing an object on demand, so that its creation can be put off until the
+ * object is actually needed.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/16, 10:10)
+ */
+public interface Supplier<T> {
+
+    /**
+     * @return the supplied object
+     * @throws Exception if the object cannot be provided
+     */
+    T get() throws Exception;
+
+}
@@ -0,0 +1,18 @@
+package com.agileapes.nemo.disassemble;
+
+import com.agileapes.nemo.disassemble.impl.DescriptorSnapshot;
+
+/**
+ * Entities implementing this interface will be handed the descriptor snapshot of the application, if there is one.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/17, 9:40)
+ */
+public interface DescriptorSnapshotAware {
+
+    /**
+     * @param snapshot    the snapshot, or {@code null} if snapshots have been disabled
+     */
+    void setDescriptorSnapshot(DescriptorSnapshot snapshot);
+
+}
@@ -67,6 +67,19 @@ public interface DisassembleStrategy<A> {
      */
     void setOption(A action, OptionDescriptor descriptor, String value) throws NoSuchOptionException, OptionDefinitionException;
 
+    /**
+     * This method will hand a sequence of positional values to an option taking all positional values from its index
+     * onward (see {@link OptionDescriptor#isSequence()}). Options of the type {@link Iterable} are handed the sequence
+     * itself, so that the values are only read as the action walks through them, while collections are filled with all
+     * the values before they are handed to the action.
+     * @param action        the action for which the option is being set
+     * @param descriptor    the descriptor for the option
+     * @param values        the values
+     * @throws NoSuchOptionException
+     * @throws OptionDefinitionException
+     */
+    void setValues(A action, OptionDescriptor descriptor, Iterable<String> values) throws NoSuchOptionException, OptionDefinitionException;
+
     /**
      * This method will reset all the options for this action to their default values
      * @param action    the action
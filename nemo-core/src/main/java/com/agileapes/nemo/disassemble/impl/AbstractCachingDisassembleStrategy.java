@@ -3,68 +3,189 @@ package com.agileapes.nemo.disassemble.impl;
 import com.agileapes.couteau.context.value.ValueReader;
 import com.agileapes.couteau.context.value.ValueReaderAware;
 import com.agileapes.nemo.contract.Cache;
+import com.agileapes.nemo.disassemble.DescriptorSnapshotAware;
 import com.agileapes.nemo.disassemble.DisassembleStrategy;
 import com.agileapes.nemo.error.InvalidArgumentSyntaxException;
 import com.agileapes.nemo.error.NoSuchOptionException;
 import com.agileapes.nemo.error.OptionDefinitionException;
 import com.agileapes.nemo.error.WrappedError;
 import com.agileapes.nemo.option.OptionDescriptor;
+import com.agileapes.nemo.option.OptionSet;
+import com.agileapes.nemo.option.PrimitiveOptionAccessor;
+import com.agileapes.nemo.value.ValueConverter;
+import com.agileapes.nemo.value.ValueConverters;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * This is an abstract implementation of the {@link DisassembleStrategy} interface which is capable of caching the
  * outcome of a disassembly once it has been carried out, so that the expensive process does not need to be performed
  * each time for the same action
  *
+ * The options of each action are kept in an {@link OptionSet}, so that looking an option up by its name, alias, or
+ * index does not involve going through all of the options of the action. Likewise, a {@link ValueConverter} is
+ * compiled for the type of each option as soon as the action is described, so that binding a value does not involve
+ * looking for a value reader able to handle it. Options of the types {@code int}, {@code long}, {@code double}, and
+ * {@code boolean} whose descriptors provide a {@link PrimitiveOptionAccessor} are parsed and written without being
+ * boxed at all.
+ *
+ * Should the strategy be handed a {@link DescriptorSnapshot}, descriptors will also be carried over from previous runs
+ * of the application. Strategies wishing to take part in this must provide a binding for each of their descriptors
+ * through {@link #getBinding(OptionDescriptor)} and must be able to reattach the recorded options to new instances
+ * through {@link #bind(Object, DescriptorSnapshot.Option)}.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/10, 18:27)
  */
-public abstract class AbstractCachingDisassembleStrategy<A, D extends OptionDescriptor> implements DisassembleStrategy<A>, Cache<A, Set<D>>, ValueReaderAware {
+public abstract class AbstractCachingDisassembleStrategy<A, D extends OptionDescriptor> implements DisassembleStrategy<A>, Cache<A, Set<D>>, ValueReaderAware, DescriptorSnapshotAware {
 
-    private final Map<A, Set<D>> cache = new ConcurrentHashMap<A, Set<D>>();
+    private static final Log log = LogFactory.getLog(AbstractCachingDisassembleStrategy.class);
+    private final Map<A, OptionSet<D>> cache = new ConcurrentHashMap<A, OptionSet<D>>();
+    private final Map<Class<?>, ValueConverter> converters = new ConcurrentHashMap<Class<?>, ValueConverter>();
     private ValueReader valueReader;
+    private DescriptorSnapshot snapshot;
 
     protected abstract Set<D> describe(A action) throws OptionDefinitionException;
 
     protected abstract void setOption(A action, D target, Object converted);
 
+    /**
+     * @param descriptor    the descriptor
+     * @return the binding through which the option can later be reattached to an instance of the action, or
+     * {@code null} if the option cannot be recorded in the snapshot
+     */
+    protected String getBinding(D descriptor) {
+        return null;
+    }
+
+    /**
+     * Will reattach an option recorded in the snapshot to the given action. The default value of the option
+     * is expected to be read from the action itself.
+     * @param action    the action
+     * @param option    the recorded option
+     * @return the descriptor, or {@code null} if the option cannot be bound, in which case the action will be
+     * described from scratch
+     * @throws Exception
+     */
+    protected D bind(A action, DescriptorSnapshot.Option option) throws Exception {
+        return null;
+    }
+
+    /**
+     * @param descriptor    the descriptor
+     * @return the accessor through which values of primitive options can be written without being boxed, or
+     * {@code null} if values of the option should always be written through {@link #setOption(Object, OptionDescriptor, Object)}
+     */
+    protected PrimitiveOptionAccessor<? super A> getPrimitiveAccessor(D descriptor) {
+        return null;
+    }
+
+    /**
+     * This method is called once all the options of the action have been bound from the snapshot, in place
+     * of {@link #describe(Object)}
+     * @param action    the action
+     */
+    protected void restored(A action) {
+    }
+
     @Override
     public void setValueReader(ValueReader valueReader) {
-        this.valueReader = valueReader;
+        if (this.valueReader != valueReader) {
+            this.valueReader = valueReader;
+            converters.clear();
+        }
+    }
+
+    @Override
+    public void setDescriptorSnapshot(DescriptorSnapshot snapshot) {
+        this.snapshot = snapshot;
     }
 
     @Override
     public void write(A key, Set<D> value) {
-        if (cache.containsKey(key)) {
-            cache.remove(key);
-        }
-        cache.put(key, value);
+        cache.put(key, value instanceof OptionSet ? (OptionSet<D>) value : new OptionSet<D>(value));
     }
 
     @Override
-    public Set<D> read(A key) {
-        if (has(key)) {
-            return cache.get(key);
+    public OptionSet<D> read(A key) {
+        final OptionSet<D> cached = cache.get(key);
+        if (cached != null) {
+            return cached;
         }
-        Set<D> described;
+        Set<D> described = restore(key);
+        if (described == null) {
+            try {
+                described = describe(key);
+            } catch (OptionDefinitionException e) {
+                throw new WrappedError(e);
+            }
+            record(key, described);
+        }
+        final OptionSet<D> options = new OptionSet<D>(described);
+        for (D descriptor : options) {
+            getConverter(descriptor.getType());
+        }
+        write(key, options);
+        return options;
+    }
+
+    private ValueConverter getConverter(Class<?> type) {
+        ValueConverter converter = converters.get(type);
+        if (converter == null) {
+            converter = ValueConverters.compile(type, valueReader);
+            converters.put(type, converter);
+        }
+        return converter;
+    }
+
+    private Set<D> restore(A action) {
+        final DescriptorSnapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return null;
+        }
+        final List<DescriptorSnapshot.Option> options = snapshot.getOptions(action.getClass(), getClass().getCanonicalName());
+        if (options == null) {
+            return null;
+        }
+        final Set<D> descriptors = new HashSet<D>();
         try {
-            described = describe(key);
-        } catch (OptionDefinitionException e) {
-            throw new WrappedError(e);
+            for (DescriptorSnapshot.Option option : options) {
+                final D descriptor = bind(action, option);
+                if (descriptor == null) {
+                    return null;
+                }
+                descriptors.add(descriptor);
+            }
+        } catch (Throwable e) {
+            log.warn("Could not restore the options of " + action.getClass().getCanonicalName() + " from the snapshot: " + e);
+            return null;
         }
-        if (!(described instanceof CopyOnWriteArrayList)) {
-            described = new CopyOnWriteArraySet<D>(described);
+        log.debug("Restored the options of " + action.getClass().getCanonicalName() + " from the snapshot");
+        restored(action);
+        return descriptors;
+    }
+
+    private void record(A action, Set<D> descriptors) {
+        final DescriptorSnapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return;
         }
-        write(key, described);
-        return described;
+        final List<DescriptorSnapshot.Option> options = new ArrayList<DescriptorSnapshot.Option>();
+        for (D descriptor : descriptors) {
+            final String binding = getBinding(descriptor);
+            if (binding == null) {
+                return;
+            }
+            options.add(new DescriptorSnapshot.Option(descriptor.getName(), descriptor.getAlias(), descriptor.getIndex(),
+                    descriptor.isRequired(), descriptor.getType(), binding, descriptor.getMetadata()));
+        }
+        snapshot.setOptions(action.getClass(), getClass().getCanonicalName(), options);
     }
 
-    public Set<D> readItem(A key) throws OptionDefinitionException {
+    public OptionSet<D> readItem(A key) throws OptionDefinitionException {
         try {
             return read(key);
         } catch (WrappedError e) {
@@ -79,64 +200,119 @@ public abstract class AbstractCachingDisassembleStrategy<A, D extends OptionDesc
 
     @Override
     public OptionDescriptor getOption(A action, String option) throws NoSuchOptionException, OptionDefinitionException {
-        final Set<D> descriptors = readItem(action);
-        for (OptionDescriptor descriptor : descriptors) {
-            if (descriptor.getName().equals(option)) {
-                return descriptor;
-            }
+        final OptionSet<D> options = readItem(action);
+        final D descriptor = options.get(option);
+        if (descriptor == null) {
+            throw new NoSuchOptionException(option, options.getSuggestions(option));
         }
-        throw new NoSuchOptionException(option);
+        return descriptor;
     }
 
     @Override
     public OptionDescriptor getOption(A action, Character alias) throws NoSuchOptionException, OptionDefinitionException {
-        final Set<D> descriptors = readItem(action);
-        for (OptionDescriptor descriptor : descriptors) {
-            if (descriptor.hasAlias() && descriptor.getAlias().equals(alias)) {
-                return descriptor;
-            }
+        final D descriptor = alias == null ? null : readItem(action).get(alias.charValue());
+        if (descriptor == null) {
+            throw new NoSuchOptionException(alias);
         }
-        throw new NoSuchOptionException(alias);
+        return descriptor;
     }
 
     @Override
     public OptionDescriptor getOption(A action, Integer index) throws NoSuchOptionException, OptionDefinitionException {
-        final Set<D> descriptors = readItem(action);
-        for (OptionDescriptor descriptor : descriptors) {
-            if (descriptor.hasIndex() && descriptor.getIndex().equals(index)) {
-                return descriptor;
-            }
+        final D descriptor = index == null ? null : readItem(action).get(index.intValue());
+        if (descriptor == null) {
+            throw new NoSuchOptionException(index);
         }
-        throw new NoSuchOptionException(index);
+        return descriptor;
     }
 
     @Override
-    public Set<D> getOptions(A action) throws OptionDefinitionException {
+    public OptionSet<D> getOptions(A action) throws OptionDefinitionException {
         return readItem(action);
     }
 
-    @Override
-    public void setOption(A action, OptionDescriptor descriptor, String value) throws NoSuchOptionException, OptionDefinitionException {
-        final Set<D> descriptors = readItem(action);
-        D target = null;
-        for (D optionDescriptor : descriptors) {
-            if (optionDescriptor.getName().equals(descriptor.getName())) {
-                target = optionDescriptor;
-                break;
-            }
+    private D getTarget(A action, OptionDescriptor descriptor) throws NoSuchOptionException, OptionDefinitionException {
+        final OptionSet<D> descriptors = readItem(action);
+        if (descriptors.owns(descriptor)) {
+            //noinspection unchecked
+            return (D) descriptor;
         }
+        final D target = descriptors.get(descriptor.getName());
         if (target == null) {
             throw new NoSuchOptionException(descriptor.getName());
         }
+        return target;
+    }
+
+    @Override
+    public void setOption(A action, OptionDescriptor descriptor, String value) throws NoSuchOptionException, OptionDefinitionException {
+        final D target = getTarget(action, descriptor);
+        if (target.getType().isPrimitive() && setPrimitive(action, target, value)) {
+            return;
+        }
         final Object converted;
         try {
-            converted = valueReader.read(value, target.getType());
+            converted = getConverter(target.getType()).convert(value);
         } catch (Throwable e) {
             throw new InvalidArgumentSyntaxException(target.getName(), value);
         }
         setOption(action, target, converted);
     }
 
+    @Override
+    public void setValues(A action, OptionDescriptor descriptor, Iterable<String> values) throws NoSuchOptionException, OptionDefinitionException {
+        final D target = getTarget(action, descriptor);
+        if (!target.isSequence()) {
+            throw new OptionDefinitionException("Option --" + target.getName() + " cannot take a sequence of values");
+        }
+        if (Iterable.class.equals(target.getType())) {
+            setOption(action, target, values);
+            return;
+        }
+        final List<String> collected = new ArrayList<String>();
+        for (String value : values) {
+            collected.add(value);
+        }
+        setOption(action, target, collected);
+    }
+
+    /**
+     * Will parse and write the value of a primitive option without boxing it
+     * @param action    the action
+     * @param target    the descriptor of the option
+     * @param value     the textual value
+     * @return {@code true} if the value was taken care of, or {@code false} if it should be converted as any other
+     * value would, either because there is no primitive accessor for the option, or because the value could not be
+     * parsed here
+     */
+    private boolean setPrimitive(A action, D target, String value) {
+        final PrimitiveOptionAccessor<? super A> accessor = getPrimitiveAccessor(target);
+        if (accessor == null || value == null) {
+            return false;
+        }
+        final Class<?> type = target.getType();
+        try {
+            if (int.class.equals(type)) {
+                accessor.setInt(action, Integer.parseInt(value));
+            } else if (long.class.equals(type)) {
+                accessor.setLong(action, Long.parseLong(value));
+            } else if (double.class.equals(type)) {
+                accessor.setDouble(action, Double.parseDouble(value));
+            } else if (boolean.class.equals(type) && "true".equalsIgnoreCase(value)) {
+                accessor.setBoolean(action, true);
+            } else if (boolean.class.equals(type) && "false".equalsIgnoreCase(value)) {
+                accessor.setBoolean(action, false);
+            } else {
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        } catch (Exception ignored) {
+            //failing to write the value is ignored here just as it is when writing any other value
+        }
+        return true;
+    }
+
     @Override
     public void reset(A action) throws OptionDefinitionException {
         final Set<D> options = readItem(action);
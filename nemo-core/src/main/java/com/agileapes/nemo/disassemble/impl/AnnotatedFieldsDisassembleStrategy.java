@@ -11,7 +11,10 @@ import com.agileapes.nemo.api.Option;
 import com.agileapes.nemo.contract.Executable;
 import com.agileapes.nemo.error.OptionDefinitionException;
 import com.agileapes.nemo.error.WrappedError;
+import com.agileapes.nemo.option.OptionAccessor;
 import com.agileapes.nemo.option.OptionDescriptor;
+import com.agileapes.nemo.option.OptionTable;
+import com.agileapes.nemo.option.PrimitiveOptionAccessor;
 import com.agileapes.nemo.util.AnnotationPropertyBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -20,8 +23,10 @@ import java.io.PrintStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.agileapes.couteau.basics.collections.CollectionWrapper.with;
 import static com.agileapes.couteau.reflection.util.ReflectionUtils.withFields;
@@ -31,16 +36,55 @@ import static com.agileapes.couteau.reflection.util.ReflectionUtils.withFields;
  * class being a descendant of {@link Action}. This strategy will then easily work through reflection to manage the task
  * of discerning options
  *
+ * Should the action class have been processed by the {@code nemo-processor} module at compile time, the
+ * generated {@link OptionTable} will be used instead, and no reflection will take place. Otherwise, options recorded
+ * in a {@link DescriptorSnapshot} are bound directly to their fields by name, without scanning the action.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/10, 17:59)
  */
 public class AnnotatedFieldsDisassembleStrategy extends AbstractCachingDisassembleStrategy<Action, AnnotatedFieldsDisassembleStrategy.FieldOptionDescriptor> {
 
     private static final Log log = LogFactory.getLog(AnnotatedFieldsDisassembleStrategy.class);
+    private static final Object NO_TABLE = new Object();
+    private final Map<Class<?>, Object> tables = new ConcurrentHashMap<Class<?>, Object>();
+
+    /**
+     * Looks up the option table generated for the given action type at compile time
+     * @param type    the type of the action
+     * @return the option table or {@code null} if none was generated
+     */
+    @SuppressWarnings("unchecked")
+    private OptionTable<Action> getTable(Class<?> type) {
+        Object table = tables.get(type);
+        if (table == null) {
+            try {
+                table = Class.forName(type.getName() + OptionTable.SUFFIX, true, type.getClassLoader()).newInstance();
+                log.info("Found compile-time option table for " + type.getCanonicalName());
+            } catch (ClassNotFoundException e) {
+                table = NO_TABLE;
+            } catch (Exception e) {
+                log.warn("Failed to load the option table for " + type.getCanonicalName() + "; falling back to reflection");
+                table = NO_TABLE;
+            }
+            tables.put(type, table);
+        }
+        return table instanceof OptionTable ? (OptionTable<Action>) table : null;
+    }
 
     @Override
     protected Set<FieldOptionDescriptor> describe(final Action action) throws OptionDefinitionException {
         log.info("Attempting to extrapolate options for action: " + action);
+        final OptionTable<Action> table = getTable(action.getClass());
+        if (table != null) {
+            final OptionDescriptor[] options = table.describe(action);
+            final HashSet<FieldOptionDescriptor> descriptors = new HashSet<FieldOptionDescriptor>();
+            for (int i = 0; i < options.length; i++) {
+                final OptionDescriptor option = options[i];
+                descriptors.add(new FieldOptionDescriptor(option.getName(), option.getAlias(), option.getIndex(), option.isRequired(), option.getType(), option.getDefaultValue(), new TableAccessor(table, i), option.getMetadata()));
+            }
+            return descriptors;
+        }
         final HashSet<FieldOptionDescriptor> descriptors = new HashSet<FieldOptionDescriptor>();
         log.info("Scanning fields for annotation @Option");
         //noinspection unchecked
@@ -75,14 +119,45 @@ public class AnnotatedFieldsDisassembleStrategy extends AbstractCachingDisassemb
         return descriptors;
     }
 
+    @Override
+    protected String getBinding(FieldOptionDescriptor descriptor) {
+        final Field field = descriptor.getField();
+        return field == null ? null : field.getDeclaringClass().getName() + "#" + field.getName();
+    }
+
+    @Override
+    protected FieldOptionDescriptor bind(Action action, DescriptorSnapshot.Option option) throws Exception {
+        if (getTable(action.getClass()) != null) {
+            return null;
+        }
+        final String binding = option.getBinding();
+        final String declaringClass = binding.substring(0, binding.indexOf('#'));
+        Class<?> type = action.getClass();
+        while (type != null && !type.getName().equals(declaringClass)) {
+            type = type.getSuperclass();
+        }
+        if (type == null) {
+            return null;
+        }
+        final Field field = type.getDeclaredField(binding.substring(binding.indexOf('#') + 1));
+        field.setAccessible(true);
+        return new FieldOptionDescriptor(option.getName(), option.getAlias(), option.getIndex(), option.isRequired(), option.getType(), field.get(action), field, option.getMetadata());
+    }
+
     @Override
     protected void setOption(Action action, FieldOptionDescriptor target, Object converted) {
         try {
-            target.getField().set(action, converted);
+            target.getAccessor().set(action, converted);
         } catch (Exception ignored) {
         }
     }
 
+    @Override
+    protected PrimitiveOptionAccessor<? super Action> getPrimitiveAccessor(FieldOptionDescriptor descriptor) {
+        final OptionAccessor<Action> accessor = descriptor.getAccessor();
+        return accessor instanceof PrimitiveOptionAccessor ? (PrimitiveOptionAccessor<Action>) accessor : null;
+    }
+
     @Override
     public boolean isDefaultAction(Action action) {
         return action.isDefaultAction();
@@ -112,6 +187,10 @@ public class AnnotatedFieldsDisassembleStrategy extends AbstractCachingDisassemb
 
     @Override
     public Properties getMetadata(Action action) {
+        final OptionTable<Action> table = getTable(action.getClass());
+        if (table != null) {
+            return table.getMetadata();
+        }
         final Properties properties = new Properties();
         try {
             with(action.getClass().getAnnotations())
@@ -129,16 +208,116 @@ public class AnnotatedFieldsDisassembleStrategy extends AbstractCachingDisassemb
     public final static class FieldOptionDescriptor extends OptionDescriptor {
 
         private final Field field;
+        private final OptionAccessor<Action> accessor;
 
         public FieldOptionDescriptor(String name, Character alias, Integer index, boolean required, Class<?> type, Object defaultValue, Field field, Properties properties) throws OptionDefinitionException {
+            this(name, alias, index, required, type, defaultValue, field, new FieldAccessor(field), properties);
+        }
+
+        public FieldOptionDescriptor(String name, Character alias, Integer index, boolean required, Class<?> type, Object defaultValue, OptionAccessor<Action> accessor, Properties properties) throws OptionDefinitionException {
+            this(name, alias, index, required, type, defaultValue, null, accessor, properties);
+        }
+
+        private FieldOptionDescriptor(String name, Character alias, Integer index, boolean required, Class<?> type, Object defaultValue, Field field, OptionAccessor<Action> accessor, Properties properties) throws OptionDefinitionException {
             super(name, alias, index, required, type, defaultValue, properties);
             this.field = field;
+            this.accessor = accessor;
         }
 
+        /**
+         * @return the field backing this option, or {@code null} if the option was described through a
+         * compile-time option table
+         */
         public Field getField() {
             return field;
         }
 
+        public OptionAccessor<Action> getAccessor() {
+            return accessor;
+        }
+
+    }
+
+    private static class FieldAccessor implements PrimitiveOptionAccessor<Action> {
+
+        private final Field field;
+
+        private FieldAccessor(Field field) {
+            this.field = field;
+        }
+
+        @Override
+        public Object get(Action action) throws Exception {
+            return field.get(action);
+        }
+
+        @Override
+        public void set(Action action, Object value) throws Exception {
+            field.set(action, value);
+        }
+
+        @Override
+        public void setInt(Action action, int value) throws Exception {
+            field.setInt(action, value);
+        }
+
+        @Override
+        public void setLong(Action action, long value) throws Exception {
+            field.setLong(action, value);
+        }
+
+        @Override
+        public void setDouble(Action action, double value) throws Exception {
+            field.setDouble(action, value);
+        }
+
+        @Override
+        public void setBoolean(Action action, boolean value) throws Exception {
+            field.setBoolean(action, value);
+        }
+
+    }
+
+    private static class TableAccessor implements PrimitiveOptionAccessor<Action> {
+
+        private final OptionTable<Action> table;
+        private final int position;
+
+        private TableAccessor(OptionTable<Action> table, int position) {
+            this.table = table;
+            this.position = position;
+        }
+
+        @Override
+        public Object get(Action action) {
+            return table.get(action, position);
+        }
+
+        @Override
+        public void set(Action action, Object value) {
+            table.set(action, position, value);
+        }
+
+        @Override
+        public void setInt(Action action, int value) {
+            table.setInt(action, position, value);
+        }
+
+        @Override
+        public void setLong(Action action, long value) {
+            table.setLong(action, position, value);
+        }
+
+        @Override
+        public void setDouble(Action action, double value) {
+            table.setDouble(action, position, value);
+        }
+
+        @Override
+        public void setBoolean(Action action, boolean value) {
+            table.setBoolean(action, position, value);
+        }
+
     }
 
 }
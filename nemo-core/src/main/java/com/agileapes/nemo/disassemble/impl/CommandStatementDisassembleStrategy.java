@@ -9,20 +9,18 @@ import com.agileapes.nemo.api.Disassembler;
 import com.agileapes.nemo.contract.Executable;
 import com.agileapes.nemo.error.CommandSyntaxError;
 import com.agileapes.nemo.error.OptionDefinitionException;
-import com.agileapes.nemo.error.WrappedError;
 import com.agileapes.nemo.option.OptionDescriptor;
+import com.agileapes.nemo.option.PrimitiveOptionAccessor;
 import com.agileapes.nemo.util.AnnotationPropertyBuilder;
 
 import java.io.PrintStream;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Properties;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.agileapes.couteau.basics.collections.CollectionWrapper.with;
 import static com.agileapes.couteau.reflection.util.ReflectionUtils.withFields;
@@ -50,13 +48,21 @@ import static com.agileapes.couteau.reflection.util.ReflectionUtils.withMethods;
  * getter and setter for this property, the one from the {@link Action} will be used, which might not be
  * what you intended originally.
  *
+ * Everything that is found through reflection (the accessors for the options, the {@code execute()} method and the
+ * {@code PrintStream} the output is written to) is looked up once per action type, and kept in an invocation plan
+ * which is consulted for every subsequent execution of an action of that type.
+ *
+ * Options recorded in a {@link DescriptorSnapshot} are bound back to the very members through which they were
+ * accessed when first described, so that neither the command nor the hierarchy of the action need to be looked at.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (6/15/13, 4:53 PM)
  */
 public class CommandStatementDisassembleStrategy extends AbstractCachingDisassembleStrategy<Object, CommandStatementDisassembleStrategy.AccessibleFieldOptionDescriptor> {
 
-    private Object defaultAction = null;
-    private Set<Object> internalActions = new CopyOnWriteArraySet<Object>();
+    private final Map<Class<?>, InvocationPlan> plans = new ConcurrentHashMap<Class<?>, InvocationPlan>();
+    private volatile Class<?> defaultAction = null;
+    private final Set<Class<?>> internalActions = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
 
     @Override
     protected Set<AccessibleFieldOptionDescriptor> describe(Object action) throws OptionDefinitionException {
@@ -64,20 +70,13 @@ public class CommandStatementDisassembleStrategy extends AbstractCachingDisassem
         final List<OptionDescriptor> options;
         try {
             final CommandParser parser = new CommandParser(action.getClass().getAnnotation(Command.class));
-            if (parser.isDefaultAction()) {
-                if (defaultAction != null) {
-                    throw new OptionDefinitionException("Cannot have more than one default action");
-                }
-                defaultAction = action;
-            } else if (parser.isInternal()) {
-                internalActions.add(action);
-            }
+            track(action.getClass(), parser.isDefaultAction(), parser.isInternal());
             options = parser.getOptions();
         } catch (CommandSyntaxError e) {
             throw new OptionDefinitionException("Could not parse command definition", e);
         }
         for (OptionDescriptor option : options) {
-            final Accessor<?> accessor = getAccessor(action.getClass(), option.getName());
+            final Accessor<?> accessor = getAccessor(getPlan(action.getClass()), action.getClass(), option.getName());
             final Properties properties = new Properties();
             try {
                 with(accessor.getAnnotations()).each(new Processor<Annotation>() {
@@ -98,7 +97,85 @@ public class CommandStatementDisassembleStrategy extends AbstractCachingDisassem
        return descriptors;
     }
 
-    private Accessor<?> getAccessor(Class type, String property) throws OptionDefinitionException {
+    /**
+     * Records the flags of the action type. The flags are kept per type rather than per instance, since further
+     * instances of the same action are described as they are created for concurrent invocations.
+     */
+    private synchronized void track(Class<?> type, boolean defaultAction, boolean internal) throws OptionDefinitionException {
+        if (defaultAction) {
+            if (this.defaultAction != null && !this.defaultAction.equals(type)) {
+                throw new OptionDefinitionException("Cannot have more than one default action");
+            }
+            this.defaultAction = type;
+        } else if (internal) {
+            internalActions.add(type);
+        }
+    }
+
+    @Override
+    protected void restored(Object action) {
+        final String statement = action.getClass().getAnnotation(Command.class).value().trim();
+        track(action.getClass(), statement.startsWith("#"), statement.startsWith("!"));
+    }
+
+    @Override
+    protected String getBinding(AccessibleFieldOptionDescriptor descriptor) {
+        return getBinding(descriptor.getAccessor().getReader()) + ";" + getBinding(descriptor.getAccessor().getWriter());
+    }
+
+    private static String getBinding(Member member) {
+        return (member instanceof Field ? "f:" : "m:") + member.getDeclaringClass().getName() + ":" + member.getName();
+    }
+
+    @Override
+    protected AccessibleFieldOptionDescriptor bind(Object action, DescriptorSnapshot.Option option) throws Exception {
+        final InvocationPlan plan = getPlan(action.getClass());
+        Accessor<?> accessor = plan.getAccessor(option.getName());
+        if (accessor == null) {
+            final String[] members = option.getBinding().split(";");
+            final Member reader = getMember(action.getClass(), members[0], 0);
+            final Member writer = getMember(action.getClass(), members[1], 1);
+            if (reader == null || writer == null) {
+                return null;
+            }
+            accessor = new Accessor<Object>(reader, writer);
+            plan.setAccessor(option.getName(), accessor);
+        }
+        //noinspection unchecked
+        return new AccessibleFieldOptionDescriptor(option.getName(), option.getAlias(), option.getIndex(), option.isRequired(), accessor.getType(), accessor.get(action), option.getMetadata(), accessor);
+    }
+
+    private static Member getMember(Class<?> type, String binding, int parameters) throws NoSuchFieldException {
+        final String[] parts = binding.split(":", 3);
+        while (type != null && !type.getName().equals(parts[1])) {
+            type = type.getSuperclass();
+        }
+        if (type == null) {
+            return null;
+        }
+        if (parts[0].equals("f")) {
+            return type.getDeclaredField(parts[2]);
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.getName().equals(parts[2]) && method.getParameterTypes().length == parameters) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private Accessor<?> getAccessor(InvocationPlan plan, Class type, String property) throws OptionDefinitionException {
+        Accessor<?> accessor = plan.getAccessor(property);
+        if (accessor == null) {
+            accessor = findAccessor(type, property);
+            if (accessor != null) {
+                plan.setAccessor(property, accessor);
+            }
+        }
+        return accessor;
+    }
+
+    private static Accessor<?> findAccessor(Class type, String property) throws OptionDefinitionException {
         final Object[] fields;
         final Object[] getters;
         final Object[] setters;
@@ -131,7 +208,7 @@ public class CommandStatementDisassembleStrategy extends AbstractCachingDisassem
         if (writer == null) {
             throw new OptionDefinitionException("No writer found for option: " + property);
         }
-        return new Accessor<Object>(reader, writer);
+        return new Accessor<Object>((Member) reader, (Member) writer);
     }
 
     @Override
@@ -143,79 +220,97 @@ public class CommandStatementDisassembleStrategy extends AbstractCachingDisassem
         }
     }
 
+    @Override
+    protected PrimitiveOptionAccessor<? super Object> getPrimitiveAccessor(AccessibleFieldOptionDescriptor descriptor) {
+        return descriptor.getAccessor().getPrimitiveWriter();
+    }
+
     @Override
     public boolean isDefaultAction(Object action) {
-        return action.equals(defaultAction);
+        return action.getClass().equals(defaultAction);
     }
 
     @Override
     public boolean isInternal(Object action) {
-        return internalActions.contains(action);
+        return internalActions.contains(action.getClass());
     }
 
     @Override
     public void setOutput(final Object action, final PrintStream output) {
-        CollectionWrapper<Field> fields = null;
-        try {
-            fields = withFields(action.getClass()).keep(new FieldTypeFilter(PrintStream.class));
-            if (fields.count() > 1) {
-                fields = fields.keep(new MemberNameFilter("output"));
-            }
-        } catch (Exception ignored) {
+        final Writer writer = getPlan(action.getClass()).getOutput();
+        if (writer == null) {
+            return;
         }
-        assert fields != null;
-        if (fields.count() > 0) {
-            final Field field = fields.first();
-            try {
-                field.setAccessible(true);
-                field.set(action, output);
-            } catch (IllegalAccessException ignored) {
-            }
-        } else {
-            try {
-                withMethods(action.getClass())
-                        .keep(new SetterMethodFilter())
-                        .keep(new MethodArgumentsFilter(PrintStream.class))
-                        .keep(new PropertyAccessorFilter("output"))
-                        .each(new Processor<Method>() {
-                            @Override
-                            public void process(Method item) {
-                                try {
-                                    item.invoke(action, output);
-                                } catch (Exception e) {
-                                    throw new WrappedError(e);
-                                }
-                            }
-                        });
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+        try {
+            writer.set(action, output);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
     }
 
     @Override
     public Executable getExecutable(final Object action) {
-        CollectionWrapper<Method> wrapper;
-        try {
-            wrapper = withMethods(action.getClass())
-                    .keep(new MemberNameFilter("execute"))
-                    .keep(new MethodReturnTypeFilter(void.class))
-                    .keep(new MethodArgumentsFilter());
-        } catch (Exception e) {
-            wrapper = with(new Method[0]);
-        }
-        if (wrapper.isEmpty()) {
+        final Method method = getPlan(action.getClass()).getExecutable();
+        if (method == null) {
             throw new RuntimeException("Action has no executable method");
         }
-        final CollectionWrapper<Method> finalWrapper = wrapper;
         return new Executable() {
             @Override
             public void execute() throws Exception {
-                finalWrapper.first().invoke(action);
+                method.invoke(action);
             }
         };
     }
 
+    private InvocationPlan getPlan(Class<?> type) {
+        InvocationPlan plan = plans.get(type);
+        if (plan == null) {
+            plan = new InvocationPlan(findExecutable(type), findOutput(type));
+            plans.put(type, plan);
+        }
+        return plan;
+    }
+
+    private static Method findExecutable(Class<?> type) {
+        final CollectionWrapper<Method> wrapper;
+        try {
+            wrapper = withMethods(type)
+                    .keep(new MemberNameFilter("execute"))
+                    .keep(new MethodReturnTypeFilter(void.class))
+                    .keep(new MethodArgumentsFilter());
+            if (wrapper.isEmpty()) {
+                return null;
+            }
+            final Method method = wrapper.first();
+            method.setAccessible(true);
+            return method;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Writer findOutput(Class<?> type) {
+        try {
+            CollectionWrapper<Field> fields = withFields(type).keep(new FieldTypeFilter(PrintStream.class));
+            if (fields.count() > 1) {
+                fields = fields.keep(new MemberNameFilter("output"));
+            }
+            if (fields.count() > 0) {
+                return new FieldWriter(fields.first());
+            }
+            final CollectionWrapper<Method> setters = withMethods(type)
+                    .keep(new SetterMethodFilter())
+                    .keep(new MethodArgumentsFilter(PrintStream.class))
+                    .keep(new PropertyAccessorFilter("output"));
+            if (setters.count() > 0) {
+                return new MethodWriter(setters.first());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return null;
+    }
+
     @Override
     public Properties getMetadata(Object action) {
         final Properties properties = new Properties();
@@ -253,99 +348,204 @@ public class CommandStatementDisassembleStrategy extends AbstractCachingDisassem
 
     }
 
-    private static class Annotated {
+    /**
+     * Reads the value of an option through the member it was bound to when the option was described
+     */
+    private static interface Reader {
+
+        Object get(Object target) throws Exception;
+
+    }
+
+    /**
+     * Writes the value of an option through the member it was bound to when the option was described
+     */
+    private static interface Writer {
+
+        void set(Object target, Object value) throws Exception;
+
+    }
+
+    private static class FieldReader implements Reader {
 
-        private final Object object;
+        private final Field field;
 
-        private Annotated(Object object) {
-            this.object = object;
+        private FieldReader(Field field) {
+            field.setAccessible(true);
+            this.field = field;
         }
 
-        public Annotation[] getAnnotations() {
-            if (object instanceof Method) {
-                return ((Method) object).getAnnotations();
-            } else if (object instanceof Field) {
-                return ((Field) object).getAnnotations();
-            }
-            throw new IllegalStateException();
+        @Override
+        public Object get(Object target) throws Exception {
+            return field.get(target);
         }
 
     }
 
-    private static class ReaderAccessor<T> {
+    private static class MethodReader implements Reader {
 
-        private final Object delegate;
+        private final Method method;
 
-        public ReaderAccessor(Object delegate) {
-            this.delegate = delegate;
+        private MethodReader(Method method) {
+            method.setAccessible(true);
+            this.method = method;
         }
 
-        @SuppressWarnings("unchecked")
-        public T get(Object target) throws IllegalAccessException, InvocationTargetException {
-            if (delegate instanceof Field) {
-                final Field field = (Field) delegate;
-                field.setAccessible(true);
-                return (T) field.get(target);
-            } else if (delegate instanceof Method) {
-                final Method method = (Method) delegate;
-                method.setAccessible(true);
-                return (T) method.invoke(target);
-            }
-            throw new IllegalStateException();
+        @Override
+        public Object get(Object target) throws Exception {
+            return method.invoke(target);
         }
 
-        @SuppressWarnings("unchecked")
-        public Class<T> getType() {
-            if (delegate instanceof Field) {
-                return (Class<T>) ((Field) delegate).getType();
-            } else if (delegate instanceof Method) {
-                return (Class<T>) ((Method) delegate).getReturnType();
-            }
-            throw new IllegalStateException();
+    }
+
+    /**
+     * Since values written through fields can be written without boxing them, the field writer is also the primitive
+     * accessor for options bound to a field
+     */
+    private static class FieldWriter implements Writer, PrimitiveOptionAccessor<Object> {
+
+        private final Field field;
+
+        private FieldWriter(Field field) {
+            field.setAccessible(true);
+            this.field = field;
         }
 
-    }
+        @Override
+        public Object get(Object target) throws Exception {
+            return field.get(target);
+        }
 
-    private static class WriterAccessor<T> {
+        @Override
+        public void set(Object target, Object value) throws Exception {
+            field.set(target, value);
+        }
 
-        private final Object delegate;
+        @Override
+        public void setInt(Object target, int value) throws Exception {
+            field.setInt(target, value);
+        }
 
-        public WriterAccessor(Object delegate) {
-            this.delegate = delegate;
+        @Override
+        public void setLong(Object target, long value) throws Exception {
+            field.setLong(target, value);
         }
 
-        public void set(Object target, T value) throws IllegalAccessException, InvocationTargetException {
-            if (delegate instanceof Field) {
-                ((Field) delegate).set(target, value);
-            } else if (delegate instanceof Method) {
-                ((Method) delegate).invoke(target, value);
-            }
-            throw new IllegalStateException();
+        @Override
+        public void setDouble(Object target, double value) throws Exception {
+            field.setDouble(target, value);
+        }
+
+        @Override
+        public void setBoolean(Object target, boolean value) throws Exception {
+            field.setBoolean(target, value);
         }
 
     }
 
-    private static class Accessor<T> extends Annotated {
+    private static class MethodWriter implements Writer {
+
+        private final Method method;
 
-        private final ReaderAccessor<T> reader;
-        private final WriterAccessor<T> writer;
+        private MethodWriter(Method method) {
+            method.setAccessible(true);
+            this.method = method;
+        }
 
-        public Accessor(Object reader, Object writer) {
-            super(reader);
-            this.reader = new ReaderAccessor<T>(reader);
-            this.writer = new WriterAccessor<T>(writer);
+        @Override
+        public void set(Object target, Object value) throws Exception {
+            method.invoke(target, value);
         }
 
-        public T get(Object target) throws InvocationTargetException, IllegalAccessException {
-            return reader.get(target);
+    }
+
+    /**
+     * The accessor binds an option to its reader and its writer once, as the option is being described, so that
+     * reading and writing the option later on will not have to figure out what kind of member it is dealing with.
+     */
+    private static class Accessor<T> {
+
+        private final Member readerMember;
+        private final Member writerMember;
+        private final Reader reader;
+        private final Writer writer;
+
+        public Accessor(Member reader, Member writer) {
+            this.readerMember = reader;
+            this.writerMember = writer;
+            this.reader = reader instanceof Field ? new FieldReader((Field) reader) : new MethodReader((Method) reader);
+            this.writer = writer instanceof Field ? new FieldWriter((Field) writer) : new MethodWriter((Method) writer);
         }
 
-        public void set(Object target, T value) throws InvocationTargetException, IllegalAccessException {
+        public Annotation[] getAnnotations() {
+            return ((AnnotatedElement) readerMember).getAnnotations();
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(Object target) throws Exception {
+            return (T) reader.get(target);
+        }
+
+        public void set(Object target, T value) throws Exception {
             writer.set(target, value);
         }
 
+        @SuppressWarnings("unchecked")
         public Class<T> getType() {
-            return reader.getType();
+            if (readerMember instanceof Field) {
+                return (Class<T>) ((Field) readerMember).getType();
+            }
+            return (Class<T>) ((Method) readerMember).getReturnType();
+        }
+
+        public Member getReader() {
+            return readerMember;
+        }
+
+        public Member getWriter() {
+            return writerMember;
+        }
+
+        /**
+         * @return the accessor through which primitive values can be written without boxing them, or {@code null}
+         * if the option is written through a setter method
+         */
+        public PrimitiveOptionAccessor<Object> getPrimitiveWriter() {
+            return writer instanceof FieldWriter ? (FieldWriter) writer : null;
+        }
+
+    }
+
+    /**
+     * The invocation plan holds everything needed to run an action of a given type, bound once for the type:
+     * the method through which the action is executed, the writer through which its output is set, and the
+     * accessors for its options.
+     */
+    private static class InvocationPlan {
+
+        private final Method executable;
+        private final Writer output;
+        private final Map<String, Accessor<?>> accessors = new ConcurrentHashMap<String, Accessor<?>>();
+
+        private InvocationPlan(Method executable, Writer output) {
+            this.executable = executable;
+            this.output = output;
+        }
+
+        public Method getExecutable() {
+            return executable;
+        }
+
+        public Writer getOutput() {
+            return output;
+        }
+
+        public Accessor<?> getAccessor(String property) {
+            return accessors.get(property);
+        }
+
+        public void setAccessor(String property, Accessor<?> accessor) {
+            accessors.put(property, accessor);
         }
 
     }
@@ -0,0 +1,767 @@
+package com.agileapes.nemo.disassemble.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * The descriptor snapshot persists the outcome of disassembling actions across separate runs of the application,
+ * so that a short-lived process does not have to discover the same options through reflection every single time.
+ *
+ * For each action type, the snapshot records the strategy that was chosen for it and, should the strategy support
+ * it, the name, alias, index, type, and metadata of each of its options along with an opaque binding through which
+ * the strategy can reattach the option to the members of the action (see
+ * {@link AbstractCachingDisassembleStrategy#bind(Object, Option)}).
+ *
+ * The snapshot is a compact binary file which is memory-mapped when first accessed and whose entries are only
+ * decoded once they are asked for. Snapshots created via {@link #forClasspath()} are kept under the cache directory
+ * of the user and are keyed by a fingerprint of the classpath, so replacing any of the archives of the application
+ * results in a fresh snapshot. Each entry also records the modification date of the class file of its action
+ * (unless the class comes from an archive) and is discarded once the class has been recompiled.
+ *
+ * Once anything has been recorded, the snapshot is written out when the JVM shuts down, so that long-running
+ * applications carrying out many executions write it only once. It can be written out earlier through
+ * {@link #flush()}. Snapshots persisted to the same file share a single shutdown hook, which writes them out one
+ * after another, and a snapshot finding its file rewritten by another since it was loaded reads it again before
+ * writing it out, so that the entries recorded by either are kept.
+ *
+ * The snapshots kept for other classpaths under the same cache directory are removed once they have gone unused for
+ * thirty days, so that the cache does not grow with every build of the application.
+ *
+ * Snapshots can be disabled by setting the system property {@value #ENABLED_PROPERTY} to {@code false}, and their
+ * location can be changed through {@value #DIRECTORY_PROPERTY}.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/17, 9:45)
+ */
+public class DescriptorSnapshot {
+
+    public static final String ENABLED_PROPERTY = "nemo.snapshot";
+    public static final String DIRECTORY_PROPERTY = "nemo.snapshot.dir";
+    private static final String EXTENSION = ".snapshot";
+    private static final int MAGIC = 0x4e454d4f;
+    private static final int VERSION = 2;
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+    private static final Log log = LogFactory.getLog(DescriptorSnapshot.class);
+    private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{16}");
+    private static final long MAX_AGE = 30L * 24 * 60 * 60 * 1000;
+    private static final Map<File, Set<DescriptorSnapshot>> pending = new HashMap<File, Set<DescriptorSnapshot>>();
+    private final File directory;
+    private final String classpath;
+    private final Map<String, ByteBuffer> stored = new HashMap<String, ByteBuffer>();
+    private final Map<String, byte[]> written = new HashMap<String, byte[]>();
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    private File file;
+    private MappedByteBuffer mapping;
+    private boolean loaded;
+    private long loadedModified;
+    private long loadedLength;
+
+    static {
+        for (Class<?> type : new Class[]{boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class}) {
+            PRIMITIVES.put(type.getName(), type);
+        }
+    }
+
+    /**
+     * @return the snapshot for the current classpath, or {@code null} if snapshots have been disabled
+     */
+    public static DescriptorSnapshot forClasspath() {
+        if ("false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY))) {
+            return null;
+        }
+        final String classpath = System.getProperty("java.class.path", "");
+        final String location = System.getProperty(DIRECTORY_PROPERTY);
+        final File root = location == null ? getCacheDirectory() : new File(location);
+        return new DescriptorSnapshot(new File(root, digest(classpath)), classpath);
+    }
+
+    /**
+     * Will create a snapshot persisted to the given file. No fingerprinting takes place in this case, and it is up
+     * to the caller to make sure the file is discarded once the actions change.
+     * @param file    the file
+     */
+    public DescriptorSnapshot(File file) {
+        this(null, null);
+        this.file = file;
+    }
+
+    private DescriptorSnapshot(File directory, String classpath) {
+        this.directory = directory;
+        this.classpath = classpath;
+    }
+
+    /**
+     * @param type    the action type
+     * @return the name of the strategy recorded for the action type, or {@code null}
+     */
+    public String getStrategy(Class<?> type) {
+        final Entry entry = getEntry(type);
+        return entry == null ? null : entry.strategy;
+    }
+
+    /**
+     * @param type        the action type
+     * @param strategy    the name of the strategy
+     * @return the options recorded for the action type by the given strategy, or {@code null} if there are none
+     */
+    public List<Option> getOptions(Class<?> type, String strategy) {
+        final Entry entry = getEntry(type);
+        if (entry == null || !entry.strategy.equals(strategy)) {
+            return null;
+        }
+        return entry.options;
+    }
+
+    /**
+     * Records the strategy chosen for the action type
+     * @param type        the action type
+     * @param strategy    the name of the strategy
+     */
+    public synchronized void setStrategy(Class<?> type, String strategy) {
+        final Entry entry = getEntry(type);
+        if (entry == null || !entry.strategy.equals(strategy)) {
+            setEntry(type, new Entry(strategy, getStamp(type), null));
+        }
+    }
+
+    /**
+     * Records the options of the action type as described by the given strategy
+     * @param type        the action type
+     * @param strategy    the name of the strategy
+     * @param options     the options
+     */
+    public synchronized void setOptions(Class<?> type, String strategy, List<Option> options) {
+        setEntry(type, new Entry(strategy, getStamp(type), Collections.unmodifiableList(new ArrayList<Option>(options))));
+    }
+
+    private synchronized Entry getEntry(Class<?> type) {
+        load();
+        final String key = type.getName();
+        if (entries.containsKey(key)) {
+            return entries.get(key);
+        }
+        Entry entry = null;
+        if (stored.containsKey(key)) {
+            try {
+                entry = readEntry(stored.get(key).duplicate(), type.getClassLoader());
+            } catch (Exception e) {
+                log.debug("Ignoring snapshot entry for " + key + " which can no longer be read", e);
+            }
+            if (entry != null && entry.stamp != getStamp(type)) {
+                log.debug("Ignoring snapshot entry for " + key + " whose class has changed since");
+                entry = null;
+            }
+        }
+        entries.put(key, entry);
+        return entry;
+    }
+
+    private void setEntry(Class<?> type, Entry entry) {
+        final String key = type.getName();
+        final byte[] bytes;
+        try {
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            final DataOutputStream output = new DataOutputStream(buffer);
+            writeEntry(output, entry);
+            output.flush();
+            bytes = buffer.toByteArray();
+        } catch (IOException e) {
+            log.debug("Action type " + key + " cannot be recorded in the snapshot: " + e.getMessage());
+            return;
+        }
+        entries.put(key, entry);
+        if (!written.containsKey(key) && stored.containsKey(key) && stored.get(key).duplicate().equals(ByteBuffer.wrap(bytes))) {
+            return;
+        }
+        written.put(key, bytes);
+        schedule();
+    }
+
+    /**
+     * Will have the snapshot written out once the JVM shuts down, through the hook shared by all the snapshots
+     * persisted to the same file
+     */
+    private void schedule() {
+        final File target = file.getAbsoluteFile();
+        synchronized (pending) {
+            Set<DescriptorSnapshot> snapshots = pending.get(target);
+            if (snapshots == null) {
+                snapshots = new LinkedHashSet<DescriptorSnapshot>();
+                pending.put(target, snapshots);
+                Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        flushPending(target);
+                    }
+                }, "nemo-snapshot"));
+            }
+            snapshots.add(this);
+        }
+    }
+
+    private static void flushPending(File target) {
+        final List<DescriptorSnapshot> snapshots;
+        synchronized (pending) {
+            snapshots = new ArrayList<DescriptorSnapshot>(pending.get(target));
+        }
+        for (DescriptorSnapshot snapshot : snapshots) {
+            try {
+                snapshot.flush();
+            } catch (IOException e) {
+                log.warn("Failed to write the descriptor snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if anything has been recorded since the snapshot was loaded or last written out
+     */
+    public synchronized boolean isDirty() {
+        return !written.isEmpty();
+    }
+
+    /**
+     * Will persist the snapshot, if anything has been recorded since it was loaded
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+        if (written.isEmpty()) {
+            return;
+        }
+        if (loaded && (file.lastModified() != loadedModified || file.length() != loadedLength)) {
+            log.debug("Descriptor snapshot " + file + " has been written out by another snapshot since it was loaded");
+            stored.clear();
+            release();
+            loaded = false;
+        }
+        load();
+        final Map<String, byte[]> payloads = new TreeMap<String, byte[]>();
+        for (Map.Entry<String, ByteBuffer> entry : stored.entrySet()) {
+            final ByteBuffer buffer = entry.getValue().duplicate();
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            payloads.put(entry.getKey(), bytes);
+        }
+        payloads.putAll(written);
+        //the payloads are all on the heap now, so the file can be let go of before it is replaced
+        stored.clear();
+        for (Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+            stored.put(entry.getKey(), ByteBuffer.wrap(entry.getValue()));
+        }
+        release();
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        final File temporary = File.createTempFile(file.getName(), ".tmp", parent);
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(payloads.size());
+            for (Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+                writeString(output, entry.getKey());
+                output.writeInt(entry.getValue().length);
+                output.write(entry.getValue());
+            }
+        } finally {
+            output.close();
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            temporary.delete();
+            throw new IOException("Could not replace snapshot " + file);
+        }
+        log.info("Wrote " + payloads.size() + " action(s) to descriptor snapshot " + file);
+        loadedModified = file.lastModified();
+        loadedLength = file.length();
+        written.clear();
+        synchronized (pending) {
+            final Set<DescriptorSnapshot> snapshots = pending.get(file.getAbsoluteFile());
+            if (snapshots != null) {
+                snapshots.remove(this);
+            }
+        }
+        if (directory != null) {
+            final File[] files = directory.listFiles();
+            for (File stale : files == null ? new File[0] : files) {
+                if (stale.getName().endsWith(EXTENSION) && !stale.equals(file) && !stale.delete()) {
+                    log.debug("Could not remove stale snapshot " + stale);
+                }
+            }
+            prune(directory.getAbsoluteFile());
+        }
+    }
+
+    /**
+     * Will remove the directories holding the snapshots of other classpaths, which have not been used for
+     * {@link #MAX_AGE} milliseconds. Only directories named after a digest, and holding nothing but snapshots, are
+     * removed, since the cache directory may well have been pointed elsewhere through {@link #DIRECTORY_PROPERTY}.
+     * @param directory    the directory of the current classpath
+     */
+    private static void prune(File directory) {
+        final File[] siblings = directory.getParentFile().listFiles();
+        final long threshold = System.currentTimeMillis() - MAX_AGE;
+        for (File sibling : siblings == null ? new File[0] : siblings) {
+            if (sibling.equals(directory) || !sibling.isDirectory() || !DIGEST.matcher(sibling.getName()).matches()
+                    || sibling.lastModified() >= threshold) {
+                continue;
+            }
+            final File[] files = sibling.listFiles();
+            boolean removed = files != null;
+            for (File entry : files == null ? new File[0] : files) {
+                final String name = entry.getName();
+                removed &= (name.endsWith(EXTENSION) || name.endsWith(".tmp")) && entry.delete();
+            }
+            if (removed && sibling.delete()) {
+                log.info("Removed the descriptor snapshot of an unused classpath at " + sibling);
+            } else {
+                log.debug("Could not remove the descriptor snapshot of an unused classpath at " + sibling);
+            }
+        }
+    }
+
+    /**
+     * Unmaps the snapshot file right away, rather than once the mapping has been garbage collected, since a mapped
+     * file cannot be replaced on some platforms (notably Windows). None of the buffers taken from the mapping may be
+     * used afterwards. Should the JVM offer no way of doing so, the mapping is merely dropped.
+     */
+    private void release() {
+        final MappedByteBuffer mapping = this.mapping;
+        this.mapping = null;
+        if (mapping == null) {
+            return;
+        }
+        try {
+            final Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafe.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field instance = unsafe.getDeclaredField("theUnsafe");
+            instance.setAccessible(true);
+            invokeCleaner.invoke(instance.get(null), mapping);
+            return;
+        } catch (NoSuchMethodException e) {
+            //prior to Java 9, the cleaner is reached through the buffer itself
+        } catch (Exception e) {
+            log.debug("Could not unmap descriptor snapshot " + file + ": " + e);
+            return;
+        }
+        try {
+            final Method getCleaner = mapping.getClass().getMethod("cleaner");
+            getCleaner.setAccessible(true);
+            final Object cleaner = getCleaner.invoke(mapping);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            log.debug("Could not unmap descriptor snapshot " + file + ": " + e);
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (file == null) {
+            file = new File(directory, fingerprint(classpath) + EXTENSION);
+        }
+        if (directory != null && directory.isDirectory()) {
+            //marks the snapshots of this classpath as being in use, so that they are not pruned
+            directory.setLastModified(System.currentTimeMillis());
+        }
+        loadedModified = file.lastModified();
+        loadedLength = file.length();
+        if (!file.isFile()) {
+            log.info("No descriptor snapshot found at " + file);
+            return;
+        }
+        try {
+            final RandomAccessFile access = new RandomAccessFile(file, "r");
+            try {
+                final MappedByteBuffer buffer = access.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, access.length());
+                mapping = buffer;
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                    log.warn("Ignoring descriptor snapshot of unknown format at " + file);
+                    return;
+                }
+                final int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    final String key = readString(buffer);
+                    final int length = buffer.getInt();
+                    final ByteBuffer payload = buffer.slice();
+                    payload.limit(length);
+                    buffer.position(buffer.position() + length);
+                    stored.put(key, payload);
+                }
+            } finally {
+                access.close();
+            }
+            log.info("Loaded descriptor snapshot from " + file);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable descriptor snapshot at " + file, e);
+            stored.clear();
+            release();
+        }
+    }
+
+    private static void writeEntry(DataOutputStream output, Entry entry) throws IOException {
+        writeString(output, entry.strategy);
+        output.writeLong(entry.stamp);
+        output.writeBoolean(entry.options != null);
+        if (entry.options == null) {
+            return;
+        }
+        output.writeInt(entry.options.size());
+        for (Option option : entry.options) {
+            writeString(output, option.name);
+            output.writeBoolean(option.alias != null);
+            if (option.alias != null) {
+                output.writeChar(option.alias);
+            }
+            output.writeBoolean(option.index != null);
+            if (option.index != null) {
+                output.writeInt(option.index);
+            }
+            output.writeBoolean(option.required);
+            writeString(output, option.type.getName());
+            writeString(output, option.binding);
+            output.writeInt(option.metadata == null ? -1 : option.metadata.size());
+            if (option.metadata != null) {
+                for (Map.Entry<Object, Object> item : option.metadata.entrySet()) {
+                    writeString(output, (String) item.getKey());
+                    writeValue(output, item.getValue());
+                }
+            }
+        }
+    }
+
+    private static Entry readEntry(ByteBuffer buffer, ClassLoader classLoader) throws ClassNotFoundException {
+        final String strategy = readString(buffer);
+        final long stamp = buffer.getLong();
+        if (buffer.get() == 0) {
+            return new Entry(strategy, stamp, null);
+        }
+        final int count = buffer.getInt();
+        final List<Option> options = new ArrayList<Option>(count);
+        for (int i = 0; i < count; i++) {
+            final String name = readString(buffer);
+            final Character alias = buffer.get() != 0 ? buffer.getChar() : null;
+            final Integer index = buffer.get() != 0 ? buffer.getInt() : null;
+            final boolean required = buffer.get() != 0;
+            final Class<?> type = getType(readString(buffer), classLoader);
+            final String binding = readString(buffer);
+            final int size = buffer.getInt();
+            Properties metadata = null;
+            if (size >= 0) {
+                metadata = new Properties();
+                for (int j = 0; j < size; j++) {
+                    metadata.put(readString(buffer), readValue(buffer, classLoader));
+                }
+            }
+            options.add(new Option(name, alias, index, required, type, binding, metadata));
+        }
+        return new Entry(strategy, stamp, Collections.unmodifiableList(options));
+    }
+
+    private static void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value == null) {
+            output.writeByte('N');
+        } else if (value instanceof String) {
+            output.writeByte('S');
+            writeString(output, (String) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte('Z');
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            output.writeByte('C');
+            output.writeChar((Character) value);
+        } else if (value instanceof Byte) {
+            output.writeByte('B');
+            output.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            output.writeByte('T');
+            output.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            output.writeByte('I');
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte('J');
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte('F');
+            output.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            output.writeByte('D');
+            output.writeDouble((Double) value);
+        } else if (value instanceof Class) {
+            output.writeByte('L');
+            writeString(output, ((Class<?>) value).getName());
+        } else if (value instanceof Enum) {
+            output.writeByte('E');
+            writeString(output, ((Enum<?>) value).getDeclaringClass().getName());
+            writeString(output, ((Enum<?>) value).name());
+        } else if (value instanceof Map) {
+            output.writeByte('M');
+            output.writeInt(((Map<?, ?>) value).size());
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writeString(output, (String) entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        } else if (value.getClass().isArray()) {
+            output.writeByte('A');
+            writeString(output, value.getClass().getComponentType().getName());
+            final int length = Array.getLength(value);
+            output.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(output, Array.get(value, i));
+            }
+        } else {
+            throw new NotSerializableException(value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer, ClassLoader classLoader) throws ClassNotFoundException {
+        final byte tag = buffer.get();
+        switch (tag) {
+            case 'N':
+                return null;
+            case 'S':
+                return readString(buffer);
+            case 'Z':
+                return buffer.get() != 0;
+            case 'C':
+                return buffer.getChar();
+            case 'B':
+                return buffer.get();
+            case 'T':
+                return buffer.getShort();
+            case 'I':
+                return buffer.getInt();
+            case 'J':
+                return buffer.getLong();
+            case 'F':
+                return buffer.getFloat();
+            case 'D':
+                return buffer.getDouble();
+            case 'L':
+                return getType(readString(buffer), classLoader);
+            case 'E':
+                return getEnum(getType(readString(buffer), classLoader), readString(buffer));
+            case 'M': {
+                final int size = buffer.getInt();
+                final Map<String, Object> map = new HashMap<String, Object>();
+                for (int i = 0; i < size; i++) {
+                    map.put(readString(buffer), readValue(buffer, classLoader));
+                }
+                return Collections.unmodifiableMap(map);
+            }
+            case 'A': {
+                final Class<?> component = getType(readString(buffer), classLoader);
+                final int length = buffer.getInt();
+                final Object array = Array.newInstance(component, length);
+                for (int i = 0; i < length; i++) {
+                    Array.set(array, i, readValue(buffer, classLoader));
+                }
+                return array;
+            }
+            default:
+                throw new IllegalStateException("Unknown value tag: " + tag);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object getEnum(Class<?> type, String name) {
+        return Enum.valueOf((Class) type, name);
+    }
+
+    private static Class<?> getType(String name, ClassLoader classLoader) throws ClassNotFoundException {
+        if (PRIMITIVES.containsKey(name)) {
+            return PRIMITIVES.get(name);
+        }
+        return Class.forName(name, false, classLoader);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static File getCacheDirectory() {
+        final String os = System.getProperty("os.name", "").toLowerCase();
+        final String home = System.getProperty("user.home");
+        if (os.startsWith("windows") && System.getenv("LOCALAPPDATA") != null) {
+            return new File(new File(System.getenv("LOCALAPPDATA"), "nemo"), "cache");
+        }
+        if (os.startsWith("mac")) {
+            return new File(new File(new File(home, "Library"), "Caches"), "nemo");
+        }
+        final String cache = System.getenv("XDG_CACHE_HOME");
+        return new File(cache == null || cache.isEmpty() ? new File(home, ".cache") : new File(cache), "nemo");
+    }
+
+    /**
+     * The fingerprint takes into account the size and the modification date of every archive on the classpath, and
+     * the modification date of every directory on it, so that replacing any of the archives will result in a
+     * different fingerprint. The contents of the directories are not looked into, since the entries of the snapshot
+     * keep track of the class files of their own actions (see {@link #getStamp(Class)}).
+     */
+    private static String fingerprint(String classpath) {
+        final MessageDigest digest = getDigest();
+        update(digest, classpath);
+        for (String entry : classpath.split(File.pathSeparator)) {
+            final File file = new File(entry);
+            update(digest, file.getPath() + ":" + (file.isDirectory() ? "" : file.length()) + ":" + file.lastModified());
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @return the modification date of the class file of the type, or {@code 0} if the type has not been loaded from
+     * a class file of its own (e.g. it has been loaded from an archive, which is covered by the fingerprint)
+     */
+    private static long getStamp(Class<?> type) {
+        final ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null) {
+            return 0;
+        }
+        final URL resource = classLoader.getResource(type.getName().replace('.', '/') + ".class");
+        if (resource == null || !"file".equals(resource.getProtocol())) {
+            return 0;
+        }
+        try {
+            return new File(resource.toURI()).lastModified();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        try {
+            digest.update(value.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String digest(String value) {
+        final MessageDigest digest = getDigest();
+        update(digest, value);
+        return toHex(digest.digest()).substring(0, 16);
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    private static class Entry {
+
+        private final String strategy;
+        private final long stamp;
+        private final List<Option> options;
+
+        private Entry(String strategy, long stamp, List<Option> options) {
+            this.strategy = strategy;
+            this.stamp = stamp;
+            this.options = options;
+        }
+
+    }
+
+    /**
+     * A single option as recorded in the snapshot. The binding is written and read back by the strategy which
+     * described the option, and is meaningless to anyone else.
+     */
+    public static final class Option {
+
+        private final String name;
+        private final Character alias;
+        private final Integer index;
+        private final boolean required;
+        private final Class<?> type;
+        private final String binding;
+        private final Properties metadata;
+
+        public Option(String name, Character alias, Integer index, boolean required, Class<?> type, String binding, Properties metadata) {
+            this.name = name;
+            this.alias = alias;
+            this.index = index;
+            this.required = required;
+            this.type = type;
+            this.binding = binding;
+            this.metadata = metadata;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Character getAlias() {
+            return alias;
+        }
+
+        public Integer getIndex() {
+            return index;
+        }
+
+        public boolean isRequired() {
+            return required;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public String getBinding() {
+            return binding;
+        }
+
+        public Properties getMetadata() {
+            return metadata;
+        }
+
+    }
+
+}
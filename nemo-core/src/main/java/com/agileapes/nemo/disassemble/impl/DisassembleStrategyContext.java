@@ -6,6 +6,7 @@ import com.agileapes.couteau.context.error.NoSuchItemException;
 import com.agileapes.couteau.context.error.RegistryException;
 import com.agileapes.couteau.context.impl.AbstractTypeSpecificContext;
 import com.agileapes.nemo.api.Disassembler;
+import com.agileapes.nemo.disassemble.DescriptorSnapshotAware;
 import com.agileapes.nemo.disassemble.DisassembleStrategy;
 import com.agileapes.nemo.disassemble.DisassemblerAware;
 import com.agileapes.nemo.error.ActionRefusedByStrategyException;
@@ -25,17 +26,51 @@ import static com.agileapes.couteau.basics.collections.CollectionWrapper.with;
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/10, 17:17)
  */
-public class DisassembleStrategyContext extends AbstractTypeSpecificContext<DisassembleStrategy> {
+public class DisassembleStrategyContext extends AbstractTypeSpecificContext<DisassembleStrategy> implements DescriptorSnapshotAware {
 
     public static final Class<AnnotatedFieldsDisassembleStrategy> DEFAULT_STRATEGY = AnnotatedFieldsDisassembleStrategy.class;
     private static final Log log = LogFactory.getLog(DisassembleStrategyContext.class);
+    private DescriptorSnapshot snapshot;
 
     public DisassembleStrategyContext() {
         ready();
     }
 
+    @Override
+    public void setDescriptorSnapshot(DescriptorSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Determines the strategy through which the given action should be disassembled. Should a snapshot be available,
+     * the strategy recorded in it for the type of the action is tried first.
+     * @param action    the action
+     * @return the strategy
+     * @throws RegistryException if no strategy can be attributed to the action
+     */
     @SuppressWarnings("unchecked")
     public DisassembleStrategy<Object> getStrategy(final Object action) throws RegistryException {
+        final DescriptorSnapshot snapshot = this.snapshot;
+        if (snapshot == null || action instanceof DisassemblerAware) {
+            return findStrategy(action);
+        }
+        final String recorded = snapshot.getStrategy(action.getClass());
+        if (recorded != null && contains(recorded)) {
+            final DisassembleStrategy strategy = get(recorded);
+            if (strategy.accepts(action)) {
+                log.info("Using strategy " + recorded + " for action " + action + " as recorded in the snapshot");
+                return (DisassembleStrategy<Object>) strategy;
+            }
+        }
+        final DisassembleStrategy<Object> strategy = findStrategy(action);
+        if (strategy != null) {
+            snapshot.setStrategy(action.getClass(), strategy.getClass().getCanonicalName());
+        }
+        return strategy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private DisassembleStrategy<Object> findStrategy(final Object action) throws RegistryException {
         log.info("Finding disassembler for action: " + action);
         if (action instanceof DisassemblerAware) {
             log.info("Action is aware of its disassembler");
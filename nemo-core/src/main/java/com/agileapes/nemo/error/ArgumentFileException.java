@@ -0,0 +1,16 @@
+package com.agileapes.nemo.error;
+
+/**
+ * This exception is raised when an argument file given on the command line (see
+ * {@link com.agileapes.nemo.option.ArgumentSequence}) cannot be read
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/22, 11:15)
+ */
+public class ArgumentFileException extends OptionDefinitionException {
+
+    public ArgumentFileException(String file, String reason) {
+        super("Cannot read argument file " + file + ": " + reason);
+    }
+
+}
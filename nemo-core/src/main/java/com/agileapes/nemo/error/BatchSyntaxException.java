@@ -0,0 +1,16 @@
+package com.agileapes.nemo.error;
+
+/**
+ * This exception is raised when a line handed to the {@link com.agileapes.nemo.exec.BatchRunner} cannot be broken
+ * down into arguments
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/19, 15:05)
+ */
+public class BatchSyntaxException extends Exception {
+
+    public BatchSyntaxException(String message) {
+        super(message);
+    }
+
+}
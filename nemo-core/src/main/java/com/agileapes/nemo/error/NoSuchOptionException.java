@@ -1,21 +1,58 @@
 package com.agileapes.nemo.error;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/11, 15:09)
  */
 public class NoSuchOptionException extends Exception {
 
+    private final List<String> suggestions;
+
     public NoSuchOptionException(String name) {
-        super("No such option: --" + name);
+        this(name, Collections.<String>emptyList());
+    }
+
+    /**
+     * @param name           the name of the option
+     * @param suggestions    the names of the options closest to the given name, best match first
+     */
+    public NoSuchOptionException(String name, List<String> suggestions) {
+        super("No such option: --" + name + getHint(suggestions));
+        this.suggestions = Collections.unmodifiableList(suggestions);
     }
 
     public NoSuchOptionException(Character alias) {
         super("No such option: -" + alias);
+        this.suggestions = Collections.emptyList();
     }
 
     public NoSuchOptionException(Integer index) {
         super("No such option: %" + index);
+        this.suggestions = Collections.emptyList();
+    }
+
+    private static String getHint(List<String> suggestions) {
+        if (suggestions.isEmpty()) {
+            return "";
+        }
+        final StringBuilder hint = new StringBuilder("; did you mean ");
+        for (int i = 0; i < suggestions.size(); i++) {
+            if (i > 0) {
+                hint.append(i == suggestions.size() - 1 ? " or " : ", ");
+            }
+            hint.append("--").append(suggestions.get(i));
+        }
+        return hint.append("?").toString();
+    }
+
+    /**
+     * @return the names of the options suggested in place of the one asked for, best match first
+     */
+    public List<String> getSuggestions() {
+        return suggestions;
     }
 
 }
@@ -0,0 +1,490 @@
+package com.agileapes.nemo.exec;
+
+import com.agileapes.nemo.error.BatchSyntaxException;
+import com.agileapes.nemo.util.ExceptionMessage;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The batch runner reads invocations of the application, one per line, and runs them one after the other through the
+ * same {@link ExecutorContext}, so that the context only needs to be bootstrapped, and each action only needs to be
+ * described, once for the whole batch.
+ *
+ * Each line is either a JSON array of strings (e.g. {@code ["hello", "--name", "Good Guy"]}), or a shell-style command
+ * line (e.g. {@code hello --name "Good Guy"}), in which arguments are separated by white space and may be quoted with
+ * single or double quotes, or escaped with a backslash. Blank lines and lines starting with {@code #} are skipped.
+ *
+ * For every line, the outcome of the invocation is written to the report as {@code line N: exit C (T ms)}, followed
+ * by the error message if the invocation failed. The exit code is {@link #SUCCESS} if the invocation was successful,
+ * {@link #FAILURE} if it failed, and {@link #MALFORMED} if the line could not be broken down into arguments. Unless
+ * the runner has been told to {@link #setKeepGoing(boolean) keep going}, the batch stops at the first failure.
+ *
+ * Invocations are independent of one another, and can be {@link #setParallelism(int) run in parallel}, in which case
+ * the output of each invocation is held back until its outcome is reported, so that outputs never interleave. Outcomes
+ * are reported in the order of the input, unless the runner is told {@link #setOrdered(boolean) otherwise}. Should an
+ * invocation fail, no more invocations are started, but those already started are allowed to finish and are reported.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/19, 15:10)
+ */
+public class BatchRunner {
+
+    public static final int SUCCESS = 0;
+    public static final int FAILURE = 1;
+    public static final int MALFORMED = 2;
+    private static final Log log = LogFactory.getLog(BatchRunner.class);
+    private final ExecutorContext context;
+    private boolean keepGoing = false;
+    private int parallelism = 1;
+    private boolean ordered = true;
+
+    public BatchRunner(ExecutorContext context) {
+        this.context = context;
+    }
+
+    public boolean isKeepGoing() {
+        return keepGoing;
+    }
+
+    /**
+     * @param keepGoing    {@code true} if the batch should go on after an invocation has failed
+     */
+    public void setKeepGoing(boolean keepGoing) {
+        this.keepGoing = keepGoing;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism    the number of invocations to run at the same time. With more than one invocation running
+     *                       at a time, the output of each invocation is held in memory until it is reported.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * @param ordered    {@code true} if the outcomes of parallel invocations should be reported in the order of the
+     *                   input, or {@code false} if they should be reported as soon as they complete
+     */
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * Will run all the invocations read from the input
+     * @param input     the input holding the invocations
+     * @param output    the output handed to each invocation
+     * @param report    the output to which the outcome of each invocation is written
+     * @return the summary of the batch
+     * @throws IOException if the input cannot be read
+     */
+    public Summary run(Reader input, PrintStream output, PrintStream report) throws IOException {
+        final BufferedReader reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        if (parallelism > 1) {
+            return runParallel(reader, output, report);
+        }
+        final Summary summary = new Summary();
+        final ClientEnvironment environment = context.getEnvironment();
+        int number = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            number ++;
+            line = line.trim();
+            if (isSkipped(line)) {
+                continue;
+            }
+            final Outcome outcome = invoke(environment, number, line, output);
+            output.flush();
+            if (!report(outcome, output, report, summary)) {
+                break;
+            }
+        }
+        return summary;
+    }
+
+    private Summary runParallel(BufferedReader reader, PrintStream output, PrintStream report) throws IOException {
+        final ClientEnvironment environment = context.getEnvironment();
+        final ExecutorService workers = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "nemo-batch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+
+        });
+        final CompletionService<Outcome> completions = new ExecutorCompletionService<Outcome>(workers);
+        final Emitter emitter = new Emitter(output, report);
+        //the number of invocations allowed to be in flight (or completed and held back) at any given time
+        final int window = parallelism * 4;
+        int pending = 0;
+        try {
+            int number = 0;
+            String line;
+            while (emitter.going && (line = reader.readLine()) != null) {
+                number ++;
+                line = line.trim();
+                if (isSkipped(line)) {
+                    continue;
+                }
+                completions.submit(new Task(environment, number, line, emitter.submitted ++));
+                pending ++;
+                while (pending > 0 && (pending >= window || emitter.held.size() >= window)) {
+                    emitter.accept(take(completions));
+                    pending --;
+                }
+            }
+            while (pending > 0) {
+                emitter.accept(take(completions));
+                pending --;
+            }
+        } finally {
+            workers.shutdown();
+        }
+        return emitter.summary;
+    }
+
+    private static Outcome take(CompletionService<Outcome> completions) throws IOException {
+        try {
+            return completions.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the batch");
+        } catch (ExecutionException e) {
+            //invocations never throw, as their failures are part of their outcome
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static boolean isSkipped(String line) {
+        return line.isEmpty() || line.startsWith("#");
+    }
+
+    private Outcome invoke(ClientEnvironment environment, int number, String line, PrintStream output) {
+        final Outcome outcome = new Outcome(number);
+        final long time = System.currentTimeMillis();
+        try {
+            final String[] arguments = split(line);
+            log.debug("Running line " + number + " of the batch");
+            context.execute(environment, output, arguments);
+        } catch (BatchSyntaxException e) {
+            outcome.exitCode = MALFORMED;
+            outcome.error = e.getMessage();
+        } catch (Throwable e) {
+            outcome.exitCode = FAILURE;
+            outcome.error = new ExceptionMessage(e).getMessage();
+        }
+        outcome.time = System.currentTimeMillis() - time;
+        return outcome;
+    }
+
+    /**
+     * Will write out the outcome of the invocation
+     * @return {@code true} if the batch should go on
+     */
+    private boolean report(Outcome outcome, PrintStream output, PrintStream report, Summary summary) throws IOException {
+        if (outcome.output != null) {
+            outcome.output.writeTo(output);
+            output.flush();
+        }
+        summary.record(outcome.exitCode);
+        report.println("line " + outcome.number + ": exit " + outcome.exitCode + " (" + outcome.time + " ms)"
+                + (outcome.error == null ? "" : " " + outcome.error));
+        if (outcome.exitCode != SUCCESS && !keepGoing) {
+            log.info("Stopping the batch at line " + outcome.number);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param line    the line
+     * @return the arguments held by the line
+     * @throws BatchSyntaxException if the line is malformed
+     */
+    public static String[] split(String line) throws BatchSyntaxException {
+        final List<String> arguments = line.startsWith("[") ? splitJson(line) : splitShell(line);
+        return arguments.toArray(new String[arguments.size()]);
+    }
+
+    private static List<String> splitShell(String line) throws BatchSyntaxException {
+        final List<String> arguments = new ArrayList<String>();
+        final StringBuilder current = new StringBuilder();
+        boolean started = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quote == '\'') {
+                if (c == '\'') {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '\\') {
+                if (++i == line.length()) {
+                    throw new BatchSyntaxException("Dangling escape at the end of the line");
+                }
+                final char escaped = line.charAt(i);
+                if (quote == '"' && escaped != '"' && escaped != '\\' && escaped != '$' && escaped != '`') {
+                    current.append(c);
+                }
+                current.append(escaped);
+                started = true;
+            } else if (quote == '"') {
+                if (c == '"') {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                started = true;
+            } else if (Character.isWhitespace(c)) {
+                if (started) {
+                    arguments.add(current.toString());
+                    current.setLength(0);
+                    started = false;
+                }
+            } else {
+                current.append(c);
+                started = true;
+            }
+        }
+        if (quote != 0) {
+            throw new BatchSyntaxException("Unterminated quote: " + quote);
+        }
+        if (started) {
+            arguments.add(current.toString());
+        }
+        return arguments;
+    }
+
+    private static List<String> splitJson(String line) throws BatchSyntaxException {
+        final List<String> arguments = new ArrayList<String>();
+        int position = skip(line, 1);
+        if (position < line.length() && line.charAt(position) == ']') {
+            position = skip(line, position + 1);
+        } else {
+            while (true) {
+                if (position >= line.length() || line.charAt(position) != '"') {
+                    throw new BatchSyntaxException("Expected a string at " + position);
+                }
+                final StringBuilder argument = new StringBuilder();
+                position = readJsonString(line, position + 1, argument);
+                arguments.add(argument.toString());
+                position = skip(line, position);
+                if (position < line.length() && line.charAt(position) == ',') {
+                    position = skip(line, position + 1);
+                } else if (position < line.length() && line.charAt(position) == ']') {
+                    position = skip(line, position + 1);
+                    break;
+                } else {
+                    throw new BatchSyntaxException("Expected ',' or ']' at " + position);
+                }
+            }
+        }
+        if (position != line.length()) {
+            throw new BatchSyntaxException("Unexpected input after the array at " + position);
+        }
+        return arguments;
+    }
+
+    private static int readJsonString(String line, int position, StringBuilder target) throws BatchSyntaxException {
+        while (position < line.length()) {
+            final char c = line.charAt(position ++);
+            if (c == '"') {
+                return position;
+            }
+            if (c != '\\') {
+                target.append(c);
+                continue;
+            }
+            if (position >= line.length()) {
+                break;
+            }
+            final char escaped = line.charAt(position ++);
+            switch (escaped) {
+                case 'b': target.append('\b'); break;
+                case 'f': target.append('\f'); break;
+                case 'n': target.append('\n'); break;
+                case 'r': target.append('\r'); break;
+                case 't': target.append('\t'); break;
+                case 'u':
+                    if (position + 4 > line.length()) {
+                        throw new BatchSyntaxException("Incomplete unicode escape at " + position);
+                    }
+                    try {
+                        target.append((char) Integer.parseInt(line.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new BatchSyntaxException("Invalid unicode escape at " + position);
+                    }
+                    position += 4;
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    target.append(escaped);
+                    break;
+                default:
+                    throw new BatchSyntaxException("Invalid escape at " + (position - 1));
+            }
+        }
+        throw new BatchSyntaxException("Unterminated string");
+    }
+
+    private static int skip(String line, int position) {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position ++;
+        }
+        return position;
+    }
+
+    /**
+     * The outcome of a single invocation
+     */
+    private static class Outcome {
+
+        private final int number;
+        private int exitCode = SUCCESS;
+        private String error;
+        private long time;
+        private ByteArrayOutputStream output;
+        private int sequence;
+
+        private Outcome(int number) {
+            this.number = number;
+        }
+
+    }
+
+    /**
+     * An invocation run on one of the workers, with its output held in memory until it can be reported
+     */
+    private class Task implements Callable<Outcome> {
+
+        private final ClientEnvironment environment;
+        private final int number;
+        private final String line;
+        private final int sequence;
+
+        private Task(ClientEnvironment environment, int number, String line, int sequence) {
+            this.environment = environment;
+            this.number = number;
+            this.line = line;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public Outcome call() throws Exception {
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            final PrintStream output = new PrintStream(buffer, false);
+            final Outcome outcome = invoke(environment, number, line, output);
+            output.flush();
+            outcome.output = buffer;
+            outcome.sequence = sequence;
+            return outcome;
+        }
+
+    }
+
+    /**
+     * Reports the outcomes of parallel invocations, either as they complete or in the order of the input
+     */
+    private class Emitter {
+
+        private final PrintStream output;
+        private final PrintStream report;
+        private final Summary summary = new Summary();
+        private final Map<Integer, Outcome> held = new HashMap<Integer, Outcome>();
+        private int submitted = 0;
+        private int next = 0;
+        private boolean going = true;
+
+        private Emitter(PrintStream output, PrintStream report) {
+            this.output = output;
+            this.report = report;
+        }
+
+        private void accept(Outcome outcome) throws IOException {
+            if (!ordered) {
+                emit(outcome);
+                return;
+            }
+            held.put(outcome.sequence, outcome);
+            Outcome head;
+            while ((head = held.remove(next)) != null) {
+                next ++;
+                emit(head);
+            }
+        }
+
+        private void emit(Outcome outcome) throws IOException {
+            if (!report(outcome, output, report, summary)) {
+                going = false;
+            }
+        }
+
+    }
+
+    /**
+     * The outcome of a batch
+     */
+    public static class Summary {
+
+        private int total = 0;
+        private int failed = 0;
+
+        private void record(int exitCode) {
+            total ++;
+            if (exitCode != SUCCESS) {
+                failed ++;
+            }
+        }
+
+        /**
+         * @return the number of invocations that were run
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the number of invocations that failed
+         */
+        public int getFailed() {
+            return failed;
+        }
+
+        public boolean isSuccessful() {
+            return failed == 0;
+        }
+
+        @Override
+        public String toString() {
+            return total + " invocation(s), " + failed + " failed";
+        }
+
+    }
+
+}
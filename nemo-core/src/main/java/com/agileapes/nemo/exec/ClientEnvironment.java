@@ -0,0 +1,122 @@
+package com.agileapes.nemo.exec;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The client environment describes the surroundings of the process on whose behalf an execution is being carried out:
+ * its working directory, its environment variables, its standard input, and its standard error.
+ *
+ * For an application executed directly, this is simply the environment of the current JVM (see {@link #local()}).
+ * When executions are forwarded to a resident {@link com.agileapes.nemo.exec.daemon.Daemon}, however, the JVM serving
+ * the execution is not the process invoked by the user, and actions wishing to read from the standard input or to
+ * resolve relative paths must consult the environment of the execution through {@link #current()} (or
+ * {@link ExecutorContext#getEnvironment()}) instead of the system. Options of the types {@link File} and {@link URL}
+ * are resolved against this environment as they are bound.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/19, 11:20)
+ */
+public class ClientEnvironment {
+
+    private static final ThreadLocal<ClientEnvironment> current = new ThreadLocal<ClientEnvironment>();
+    private final File workingDirectory;
+    private final Map<String, String> variables;
+    private final InputStream input;
+    private final PrintStream error;
+
+    public ClientEnvironment(File workingDirectory, Map<String, String> variables, InputStream input, PrintStream error) {
+        this.workingDirectory = workingDirectory;
+        this.variables = Collections.unmodifiableMap(new HashMap<String, String>(variables));
+        this.input = input;
+        this.error = error;
+    }
+
+    /**
+     * @return the environment of the current JVM
+     */
+    public static ClientEnvironment local() {
+        return new ClientEnvironment(new File(System.getProperty("user.dir")), System.getenv(), System.in, System.err);
+    }
+
+    /**
+     * @return the environment of the client on whose behalf the current thread is executing, or the environment of
+     * the current JVM if no execution has been started on behalf of a client
+     */
+    public static ClientEnvironment current() {
+        final ClientEnvironment environment = current.get();
+        return environment == null ? local() : environment;
+    }
+
+    /**
+     * Will bind the given environment to the current thread
+     * @param environment    the environment, or {@code null} to unbind the current environment
+     * @return the environment bound to the thread beforehand, or {@code null}
+     */
+    static ClientEnvironment bind(ClientEnvironment environment) {
+        final ClientEnvironment previous = current.get();
+        if (environment == null) {
+            current.remove();
+        } else {
+            current.set(environment);
+        }
+        return previous;
+    }
+
+    public File getWorkingDirectory() {
+        return workingDirectory;
+    }
+
+    public Map<String, String> getVariables() {
+        return variables;
+    }
+
+    public String getVariable(String name) {
+        return variables.get(name);
+    }
+
+    public InputStream getInput() {
+        return input;
+    }
+
+    public PrintStream getError() {
+        return error;
+    }
+
+    /**
+     * @param path    the path
+     * @return the file designated by the path, with relative paths being resolved against the working directory of
+     * the client
+     */
+    public File resolve(String path) {
+        final File file = new File(path);
+        if (file.isAbsolute()) {
+            return file;
+        }
+        return new File(workingDirectory, path);
+    }
+
+    /**
+     * @param spec    the URL, or the path of a file
+     * @return the URL, with specifications not naming a protocol being taken for paths and resolved through
+     * {@link #resolve(String)}
+     * @throws MalformedURLException if the specification names an unknown protocol
+     */
+    public URL resolveUrl(String spec) throws MalformedURLException {
+        try {
+            return new URL(spec);
+        } catch (MalformedURLException e) {
+            if (spec.indexOf(':') > 1) {
+                throw e;
+            }
+        }
+        return resolve(spec).toURI().toURL();
+    }
+
+}
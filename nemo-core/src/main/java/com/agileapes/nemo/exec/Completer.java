@@ -0,0 +1,172 @@
+package com.agileapes.nemo.exec;
+
+import com.agileapes.nemo.action.Action;
+import com.agileapes.nemo.action.impl.ActionContext;
+import com.agileapes.nemo.action.impl.SmartAction;
+import com.agileapes.nemo.option.OptionDescriptor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.*;
+
+/**
+ * The completer suggests the possible completions of a partially typed command line, based on the targets registered
+ * with the action context and the options described for each of them:
+ *
+ * <ul>
+ *     <li>the first word is completed to the targets which can be invoked from the command line;</li>
+ *     <li>words starting with {@code --} are completed to the names of the options of the target;</li>
+ *     <li>words starting with a single {@code -} are completed to the aliases and the names of the options;</li>
+ *     <li>words following an option which takes an enum are completed to the constants of the enum, and words
+ *     following a flag to {@code true} and {@code false}.</li>
+ * </ul>
+ *
+ * Options which have already been given on the line are not suggested again.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/20, 10:30)
+ */
+public class Completer {
+
+    private static final Log log = LogFactory.getLog(Completer.class);
+    private final ActionContext actionContext;
+
+    public Completer(ActionContext actionContext) {
+        this.actionContext = actionContext;
+    }
+
+    /**
+     * @return the targets which can be invoked from the command line, sorted by name
+     */
+    public List<String> getTargets() {
+        final List<String> targets = new ArrayList<String>();
+        for (Map.Entry<String, Action> entry : actionContext.getActions().entrySet()) {
+            if (!entry.getValue().isInternal()) {
+                targets.add(entry.getKey());
+            }
+        }
+        Collections.sort(targets);
+        return targets;
+    }
+
+    /**
+     * @param target    the target
+     * @return the options of the target, sorted by name, or an empty list if the target is unknown or its options
+     * cannot be determined
+     */
+    public List<OptionDescriptor> getOptions(String target) {
+        final Action action = actionContext.getActions().get(target);
+        if (!(action instanceof SmartAction) || action.isInternal()) {
+            return Collections.emptyList();
+        }
+        final List<OptionDescriptor> options;
+        try {
+            options = new ArrayList<OptionDescriptor>(((SmartAction<?>) action).getOptions());
+        } catch (Throwable e) {
+            log.debug("Could not determine the options of " + target + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+        Collections.sort(options, new Comparator<OptionDescriptor>() {
+            @Override
+            public int compare(OptionDescriptor first, OptionDescriptor second) {
+                return first.getName().compareTo(second.getName());
+            }
+        });
+        return options;
+    }
+
+    /**
+     * @param words      the words typed so far, the last of which is the one being completed (and might be empty)
+     * @return the possible completions of the last word, sorted
+     */
+    public List<String> complete(List<String> words) {
+        if (words.isEmpty()) {
+            return getTargets();
+        }
+        final String word = words.get(words.size() - 1);
+        if (words.size() == 1) {
+            return filter(getTargets(), word);
+        }
+        final List<OptionDescriptor> options = getOptions(words.get(0));
+        final List<String> candidates = new ArrayList<String>();
+        final String previous = words.get(words.size() - 2);
+        final OptionDescriptor valued = find(options, previous);
+        if (valued != null && !word.startsWith("-")) {
+            if (valued.isFlag()) {
+                candidates.add("true");
+                candidates.add("false");
+            } else if (valued.getType().isEnum()) {
+                for (Object constant : valued.getType().getEnumConstants()) {
+                    candidates.add(((Enum) constant).name());
+                }
+                return filter(candidates, word);
+            } else {
+                return candidates;
+            }
+        }
+        final Set<OptionDescriptor> given = new HashSet<OptionDescriptor>();
+        for (String typed : words.subList(1, words.size() - 1)) {
+            final OptionDescriptor option = find(options, typed);
+            if (option != null) {
+                given.add(option);
+            }
+        }
+        for (OptionDescriptor option : options) {
+            if (given.contains(option)) {
+                continue;
+            }
+            if (word.startsWith("-") && !word.startsWith("--") && option.hasAlias()) {
+                candidates.add("-" + option.getAlias());
+            }
+            if (word.startsWith("-")) {
+                candidates.add("--" + option.getName());
+            }
+        }
+        return filter(candidates, word);
+    }
+
+    /**
+     * @param line    the line typed so far
+     * @return the possible completions of the last word on the line, which is empty if the line ends in white space
+     */
+    public List<String> complete(String line) {
+        final List<String> words = new ArrayList<String>(Arrays.asList(line.trim().split("\\s+")));
+        if (words.size() == 1 && words.get(0).isEmpty()) {
+            words.clear();
+        }
+        if (line.isEmpty() || Character.isWhitespace(line.charAt(line.length() - 1))) {
+            words.add("");
+        }
+        return complete(words);
+    }
+
+    private static OptionDescriptor find(List<OptionDescriptor> options, String word) {
+        if (word.startsWith("--")) {
+            final String name = word.substring(2);
+            for (OptionDescriptor option : options) {
+                if (option.getName().equals(name)) {
+                    return option;
+                }
+            }
+        } else if (word.startsWith("-") && word.length() == 2) {
+            for (OptionDescriptor option : options) {
+                if (option.hasAlias() && option.getAlias() == word.charAt(1)) {
+                    return option;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<String> filter(List<String> candidates, String prefix) {
+        final List<String> matches = new ArrayList<String>();
+        for (String candidate : candidates) {
+            if (candidate.startsWith(prefix)) {
+                matches.add(candidate);
+            }
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+}
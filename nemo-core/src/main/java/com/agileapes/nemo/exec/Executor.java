@@ -1,17 +1,20 @@
 package com.agileapes.nemo.exec;
 
 import com.agileapes.couteau.context.error.NoSuchItemException;
+import com.agileapes.couteau.context.error.RegistryException;
 import com.agileapes.nemo.action.impl.ActionContext;
 import com.agileapes.nemo.action.impl.SmartAction;
 import com.agileapes.nemo.error.FatalExecutionException;
 import com.agileapes.nemo.error.TargetNotFoundException;
 import com.agileapes.nemo.event.impl.events.PerformingExecutionEvent;
+import com.agileapes.nemo.option.ArgumentSequence;
+import com.agileapes.nemo.option.OptionDescriptor;
 import com.agileapes.nemo.option.Options;
+import com.agileapes.nemo.util.Profiler;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.PrintStream;
-import java.util.Map;
 
 /**
  * The executor will carry out the gluing piece of work by handling input arguments and handing the task
@@ -19,6 +22,10 @@ import java.util.Map;
  *
  * The currently in-progress execution can be determined via {@link #getExecution()}.
  *
+ * The executor keeps no state shared between executions: the execution in progress and its output are kept for the
+ * current thread, and each execution claims its own {@link SmartAction.Invocation} of the action, so that a single
+ * executor can carry out any number of executions in parallel.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/10, 19:50)
  */
@@ -27,30 +34,54 @@ public class Executor {
     private static final Log log = LogFactory.getLog(Executor.class);
     private final ActionContext actionRegistry;
     private final ExecutorContext executorContext;
-    private Execution execution;
-    private PrintStream output;
+    private final ThreadLocal<Execution> execution = new ThreadLocal<Execution>();
+    private final ThreadLocal<PrintStream> output = new ThreadLocal<PrintStream>();
 
     Executor(ActionContext actionRegistry, ExecutorContext executorContext) {
         this.actionRegistry = actionRegistry;
         this.executorContext = executorContext;
     }
 
+    /**
+     * @return the execution in progress on the current thread
+     */
     public Execution getExecution() {
-        return execution;
+        return execution.get();
     }
 
+    /**
+     * @return the output of the execution in progress on the current thread
+     */
     public PrintStream getOutput() {
-        return output;
+        return output.get();
+    }
+
+    /**
+     * @return the environment of the client on whose behalf the current thread is executing
+     * @see ExecutorContext#getEnvironment()
+     */
+    public ClientEnvironment getEnvironment() {
+        return executorContext.getEnvironment();
     }
 
     public void execute(PrintStream output, String... args) throws Exception {
-        this.output = output;
-        execution = new Execution(actionRegistry, args);
-        perform(execution);
+        final PrintStream previousOutput = this.output.get();
+        final Execution previousExecution = this.execution.get();
+        this.output.set(output);
+        try {
+            final Execution execution = new Execution(actionRegistry, args);
+            this.execution.set(execution);
+            perform(execution);
+        } finally {
+            this.output.set(previousOutput);
+            this.execution.set(previousExecution);
+        }
     }
 
     public void perform(Execution execution) throws Exception {
-        log.debug("Performing execution: " + execution);
+        if (log.isDebugEnabled()) {
+            log.debug("Performing execution: " + execution);
+        }
         execution = executorContext.publishEvent(new PerformingExecutionEvent(this, execution)).getExecution();
         final SmartAction action;
         try {
@@ -59,33 +90,112 @@ public class Executor {
             log.error("Specified action not found: " + execution.getTarget());
             throw new TargetNotFoundException(execution.getTarget());
         }
+        Profiler.Phase phase = Profiler.start("resolve " + execution.getTarget());
+        try {
+            //the flags of a deferred action are only final once the action itself has been created
+            action.resolve();
+        } catch (RegistryException e) {
+            throw new FatalExecutionException("Could not resolve action: " + execution.getTarget(), e);
+        } finally {
+            phase.stop();
+        }
         if (action.isInternal()) {
             log.error("Attempting to call internal action " + execution.getTarget() + " from the command line");
             throw new IllegalAccessException("Internal action '" + execution.getTarget() + "' cannot be called from the command line");
         }
-        action.setOutput(output);
+        final SmartAction.Invocation invocation;
         try {
-            log.debug("Resetting options for action");
-            action.reset();
-        } catch (Throwable e) {
-            throw new FatalExecutionException("Could not reset options for action: " + execution.getTarget());
+            invocation = action.claim();
+        } catch (RegistryException e) {
+            throw new FatalExecutionException("Could not claim action: " + execution.getTarget(), e);
         }
-        log.info("Setting option values");
-        final Options options = execution.getOptions();
-        for (Map.Entry<String, String> entry : options.getOptions().entrySet()) {
-            log.debug("Setting --" + entry.getKey() + "=" + entry.getValue());
-            action.setOption(entry.getKey(), entry.getValue());
+        ArgumentSequence positionals = null;
+        try {
+            invocation.setOutput(getOutput());
+            phase = Profiler.start("reset options");
+            try {
+                log.debug("Resetting options for action");
+                invocation.reset();
+            } catch (Throwable e) {
+                throw new FatalExecutionException("Could not reset options for action: " + execution.getTarget());
+            } finally {
+                phase.stop();
+            }
+            log.debug("Setting option values");
+            phase = Profiler.start("bind options");
+            final Options options = execution.getOptions();
+            final ClientEnvironment environment = getEnvironment();
+            positionals = options.getPositionals(environment.getWorkingDirectory(), environment.getInput());
+            try {
+                //named options are bound first, then aliased ones, each in the order in which they were given,
+                //so that the last value given for an option is the one that sticks
+                for (int kind = Options.NAME; kind <= Options.ALIAS; kind++) {
+                    for (int i = 0; i < options.size(); i++) {
+                        if (options.getKind(i) == kind) {
+                            bind(invocation, options, i);
+                        }
+                    }
+                }
+                bind(invocation, positionals);
+            } finally {
+                phase.stop();
+            }
+            log.debug("Delegating execution to the action");
+            phase = Profiler.start("execute " + execution.getTarget());
+            try {
+                invocation.execute();
+            } finally {
+                phase.stop();
+            }
+        } finally {
+            if (positionals != null) {
+                positionals.close();
+            }
+            invocation.release();
+            //whatever the action has written must reach the client, whether or not it succeeded
+            final PrintStream output = getOutput();
+            if (output != null) {
+                output.flush();
+            }
         }
-        for (Map.Entry<Character, String> entry : options.getAliases().entrySet()) {
-            log.debug("Setting -" + entry.getKey() + "=" + entry.getValue());
-            action.setOption(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Binds the positional values to the options with the respective indices, up to the first option taking a
+     * sequence of values, which is then handed whatever is left of the values, without reading it
+     */
+    private static void bind(SmartAction.Invocation invocation, ArgumentSequence positionals) throws Exception {
+        final OptionDescriptor sequence = invocation.getSequence();
+        int index = 0;
+        while ((sequence == null || index < sequence.getIndex()) && positionals.hasNext()) {
+            final String value = positionals.next();
+            if (log.isDebugEnabled()) {
+                log.debug("Setting %" + index + "=" + value);
+            }
+            invocation.setOption(index ++, value);
         }
-        for (Map.Entry<Integer, String> entry : options.getIndexes().entrySet()) {
-            log.debug("Setting %" + entry.getKey() + "=" + entry.getValue());
-            action.setOption(entry.getKey(), entry.getValue());
+        if (sequence != null && positionals.hasNext()) {
+            log.debug("Setting %" + sequence.getIndex() + " to the remaining positional values");
+            invocation.setValues(sequence, positionals);
+        }
+    }
+
+    private static void bind(SmartAction.Invocation invocation, Options options, int token) throws Exception {
+        final String value = options.getValue(token);
+        final int kind = options.getKind(token);
+        if (kind == Options.NAME) {
+            final String name = options.getName(token);
+            if (log.isDebugEnabled()) {
+                log.debug("Setting --" + name + "=" + value);
+            }
+            invocation.setOption(name, value);
+        } else {
+            final char alias = options.getAlias(token);
+            if (log.isDebugEnabled()) {
+                log.debug("Setting -" + alias + "=" + value);
+            }
+            invocation.setOption(alias, value);
         }
-        log.info("Delegating execution to the action");
-        action.execute();
     }
 
 }
@@ -3,37 +3,48 @@ package com.agileapes.nemo.exec;
 import com.agileapes.couteau.context.contract.BeanProcessor;
 import com.agileapes.couteau.context.contract.Context;
 import com.agileapes.couteau.context.contract.Registry;
-import com.agileapes.couteau.context.error.FatalRegistryException;
 import com.agileapes.couteau.context.error.RegistryException;
 import com.agileapes.couteau.context.impl.AbstractThreadSafeContext;
 import com.agileapes.couteau.context.impl.BeanProcessorAdapter;
 import com.agileapes.couteau.context.value.ValueReader;
 import com.agileapes.couteau.context.value.ValueReaderAware;
 import com.agileapes.couteau.context.value.ValueReaderContext;
-import com.agileapes.couteau.context.value.impl.*;
+import com.agileapes.couteau.context.value.impl.DefaultValueReaderContext;
 import com.agileapes.couteau.reflection.util.ClassUtils;
 import com.agileapes.nemo.action.Action;
 import com.agileapes.nemo.action.ActionContextAware;
+import com.agileapes.nemo.action.ActionDeclaration;
 import com.agileapes.nemo.action.impl.ActionContext;
+import com.agileapes.nemo.action.impl.RegistryIndex;
+import com.agileapes.nemo.contract.Supplier;
+import com.agileapes.nemo.disassemble.DescriptorSnapshotAware;
 import com.agileapes.nemo.disassemble.DisassembleStrategy;
 import com.agileapes.nemo.disassemble.impl.AnnotatedFieldsDisassembleStrategy;
 import com.agileapes.nemo.disassemble.impl.CommandStatementDisassembleStrategy;
+import com.agileapes.nemo.disassemble.impl.DescriptorSnapshot;
 import com.agileapes.nemo.disassemble.impl.DisassembleStrategyContext;
 import com.agileapes.nemo.event.impl.events.ExecutionErrorEvent;
 import com.agileapes.nemo.event.impl.events.ExecutionStartedEvent;
 import com.agileapes.nemo.util.ExceptionMessage;
+import com.agileapes.nemo.util.Profiler;
+import com.agileapes.nemo.util.output.OutputSink;
+import com.agileapes.nemo.value.LazyValueReader;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The executor context is the central context which holds all the other pieces of information required for the
  * startup and proper functioning of the application together. You must register value readers with this context
  * via {@link #addValueReader(ValueReader)}, actions via {@link #addAction(String, Object)}, and strategies
- * via {@link #addDisassembleStrategy(DisassembleStrategy)}.
+ * via {@link #addDisassembleStrategy(DisassembleStrategy)}. Actions declared in the registry index written at build
+ * time can be registered all at once, without being instantiated, via {@link #addActions(RegistryIndex, String)}.
  *
  * You can also register post processors using {@link #addBeanProcessor(com.agileapes.couteau.context.contract.BeanProcessor)}
  *
@@ -43,6 +54,10 @@ import java.util.Arrays;
  *     <li>{@link #execute(String...)}</li>
  * </ul>
  *
+ * Executions carried out on behalf of another process, such as those forwarded to a
+ * {@link com.agileapes.nemo.exec.daemon.Daemon}, go through {@link #execute(ClientEnvironment, PrintStream, String...)}
+ * so that actions can find the environment of that process via {@link #getEnvironment()}.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/11, 14:30)
  */
@@ -51,20 +66,12 @@ public class ExecutorContext extends AbstractThreadSafeContext<Object> {
     public static final String ACTION_SUFFIX = "Action";
     private final DisassembleStrategyContext strategyContext;
     private final ValueReaderContext valueReaderContext;
+    private final LazyValueReader valueReader;
     private final ActionContext actionContext;
     private final Executor executor;
     private final static Log log = LogFactory.getLog(ExecutorContext.class);
-    private PrintStream output;
-
-    private static Object instantiateAction(Class<?> action) throws FatalRegistryException {
-        final Object instance;
-        try {
-            instance = action.newInstance();
-        } catch (Exception e) {
-            throw new FatalRegistryException("Failed to instantiate action", e);
-        }
-        return instance;
-    }
+    private final ThreadLocal<PrintStream> output = new ThreadLocal<PrintStream>();
+    private DescriptorSnapshot descriptorSnapshot;
 
     private static String getActionName(Class<?> action) {
         String name = action.getSimpleName();
@@ -92,11 +99,48 @@ public class ExecutorContext extends AbstractThreadSafeContext<Object> {
         return executorContext;
     }
 
+    /**
+     * Will create a context holding all the actions declared by the registry indices visible to the current
+     * thread's context class loader. The actions will only be instantiated once they are accessed.
+     * @return the new context
+     * @throws RegistryException
+     * @see RegistryIndex
+     */
+    public static ExecutorContext withRegistry() throws RegistryException {
+        return withRegistry(null);
+    }
+
+    /**
+     * Same as {@link #withRegistry()}, with the difference that the action registered under the given target will
+     * be marked as the default action.
+     * @param defaultTarget    the target of the default action
+     * @return the new context
+     * @throws RegistryException
+     */
+    public static ExecutorContext withRegistry(String defaultTarget) throws RegistryException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = ExecutorContext.class.getClassLoader();
+        }
+        final ExecutorContext executorContext = new ExecutorContext();
+        executorContext.addActions(RegistryIndex.load(classLoader), defaultTarget);
+        return executorContext;
+    }
+
     public ExecutorContext() {
         log.info("Starting executor context ...");
         final long time = System.currentTimeMillis();
+        final Profiler.Phase phase = Profiler.start("bootstrap");
         valueReaderContext = new DefaultValueReaderContext();
+        valueReader = new LazyValueReader(valueReaderContext, new LazyValueReader.Registrar() {
+            @Override
+            public void register(ValueReader reader) throws RegistryException {
+                registerValueReader(reader);
+            }
+        });
         strategyContext = new DisassembleStrategyContext();
+        descriptorSnapshot = DescriptorSnapshot.forClasspath();
+        strategyContext.setDescriptorSnapshot(descriptorSnapshot);
         actionContext = new ActionContext(strategyContext);
         executor = new Executor(actionContext, this);
         try {
@@ -105,23 +149,26 @@ public class ExecutorContext extends AbstractThreadSafeContext<Object> {
             registerBean(this, actionContext);
             addDisassembleStrategy(new AnnotatedFieldsDisassembleStrategy());
             addDisassembleStrategy(new CommandStatementDisassembleStrategy());
-            addValueReader(new ClassValueReader());
-            addValueReader(new DateValueReader());
-            addValueReader(new EnumValueReader());
-            addValueReader(new FileValueReader());
-            addValueReader(new PrimitiveValueReader());
-            addValueReader(new UrlValueReader());
             addBeanProcessor(new BeanProcessorAdapter<Object>() {
                 @Override
                 public Object postProcessBeforeAccess(Object bean, String beanName) throws RegistryException {
                     if (bean instanceof ValueReaderAware) {
                         log.info("Injecting value reader context to bean: " + beanName);
-                        ((ValueReaderAware) bean).setValueReader(valueReaderContext);
+                        ((ValueReaderAware) bean).setValueReader(valueReader);
                     }
                     return bean;
                 }
 
             });
+            addBeanProcessor(new BeanProcessorAdapter<Object>() {
+                @Override
+                public Object postProcessBeforeAccess(Object bean, String beanName) throws RegistryException {
+                    if (bean instanceof DescriptorSnapshotAware) {
+                        ((DescriptorSnapshotAware) bean).setDescriptorSnapshot(descriptorSnapshot);
+                    }
+                    return bean;
+                }
+            });
             addBeanProcessor(new BeanProcessorAdapter<Object>() {
                 @Override
                 public Object postProcessBeforeAccess(Object bean, String beanName) throws RegistryException {
@@ -144,6 +191,7 @@ public class ExecutorContext extends AbstractThreadSafeContext<Object> {
         } catch (RegistryException ignored) {
         }
         ready();
+        phase.stop();
         log.info("Bootstrapping took " + (System.currentTimeMillis() - time) + "ms");
         log.info("System startup date is " + getStartupDate());
     }
@@ -167,23 +215,84 @@ public class ExecutorContext extends AbstractThreadSafeContext<Object> {
         registry.register(name, bean);
     }
 
+    /**
+     * Will register the value reader. The default value readers are registered ahead of the first value reader added
+     * through this method, and so take precedence over it.
+     * @param valueReader    the value reader
+     * @throws RegistryException
+     */
     public void addValueReader(ValueReader valueReader) throws RegistryException {
+        this.valueReader.initialize();
+        registerValueReader(valueReader);
+    }
+
+    private void registerValueReader(ValueReader valueReader) throws RegistryException {
         log.info("Adding value reader: " + valueReader.getClass().getCanonicalName());
-        registerBean(valueReaderContext, valueReader);
+        final Profiler.Phase phase = Profiler.start("register value reader " + valueReader.getClass().getName());
+        try {
+            registerBean(valueReaderContext, valueReader);
+            this.valueReader.added(valueReader);
+        } finally {
+            phase.stop();
+        }
     }
 
     public void addDisassembleStrategy(DisassembleStrategy strategy) throws RegistryException {
         log.info("Adding disassemble strategy: " + strategy.getClass().getCanonicalName());
-        registerBean(strategyContext, strategy);
+        final Profiler.Phase phase = Profiler.start("register strategy " + strategy.getClass().getName());
+        try {
+            registerBean(strategyContext, strategy);
+        } finally {
+            phase.stop();
+        }
     }
 
     public void addAction(String target, Object action) throws RegistryException {
         log.info("Registering action target: " + target);
-        registerBean(actionContext, target, action);
+        final Profiler.Phase phase = Profiler.start("register action " + target);
+        try {
+            registerBean(actionContext, target, action);
+        } finally {
+            phase.stop();
+        }
+    }
+
+    /**
+     * Will register the action without instantiating it. The action will be instantiated through its default
+     * constructor, then described, only once its target is actually looked up.
+     * @param target    the target name of the action
+     * @param action    the type of the action
+     * @throws RegistryException
+     */
+    public void addAction(String target, Class<?> action) throws RegistryException {
+        addAction(target, new ActionDeclaration(action));
     }
 
-    public void addAction(String target, Class<?> action) throws RegistryException{
-        addAction(target, instantiateAction(action));
+    /**
+     * Will register the action without instantiating it. The supplier will be asked for the action only once
+     * its target is actually looked up, while the flags of the action are read from the type up front.
+     * @param target      the target name of the action
+     * @param action      the type of the action handed out by the supplier
+     * @param supplier    the supplier of the action
+     * @throws RegistryException
+     */
+    public void addAction(String target, Class<?> action, Supplier<?> supplier) throws RegistryException {
+        addAction(target, new ActionDeclaration(action, supplier));
+    }
+
+    /**
+     * Will register all the actions declared by the given index without instantiating them
+     * @param index            the registry index
+     * @param defaultTarget    the target of the action to be marked as default, or {@code null}
+     * @throws RegistryException
+     */
+    public void addActions(RegistryIndex index, String defaultTarget) throws RegistryException {
+        for (Map.Entry<String, ActionDeclaration> entry : index.getDeclarations().entrySet()) {
+            if (entry.getKey().equals(defaultTarget)) {
+                entry.getValue().setDefaultAction(true);
+            }
+            addAction(entry.getKey(), entry.getValue());
+        }
     }
 
     public void addDefaultAction(String target, Action action) throws RegistryException {
@@ -192,7 +301,15 @@ public class ExecutorContext extends AbstractThreadSafeContext<Object> {
     }
 
     public void addDefaultAction(String target, Class<? extends Action> action) throws RegistryException {
-        addDefaultAction(target, action.cast(instantiateAction(action)));
+        final ActionDeclaration declaration = new ActionDeclaration(action);
+        declaration.setDefaultAction(true);
+        addAction(target, declaration);
+    }
+
+    public void addDefaultAction(String target, Class<?> action, Supplier<?> supplier) throws RegistryException {
+        final ActionDeclaration declaration = new ActionDeclaration(action, supplier);
+        declaration.setDefaultAction(true);
+        addAction(target, declaration);
     }
 
     public void addAction(Class<?> action) throws RegistryException {
@@ -203,11 +320,29 @@ public class ExecutorContext extends AbstractThreadSafeContext<Object> {
         addDefaultAction(getActionName(action), action);
     }
 
+    /**
+     * Replaces the snapshot through which descriptors are carried over between runs of the application. By default,
+     * the snapshot for the current classpath (see {@link DescriptorSnapshot#forClasspath()}) is used.
+     * @param descriptorSnapshot    the snapshot, or {@code null} to disable snapshots altogether
+     */
+    public void setDescriptorSnapshot(DescriptorSnapshot descriptorSnapshot) {
+        this.descriptorSnapshot = descriptorSnapshot;
+        strategyContext.setDescriptorSnapshot(descriptorSnapshot);
+    }
+
+    public DescriptorSnapshot getDescriptorSnapshot() {
+        return descriptorSnapshot;
+    }
+
     public DisassembleStrategyContext getStrategyContext() {
         return strategyContext;
     }
 
+    /**
+     * @return the value reader context, holding the default value readers along with any added to this context
+     */
     public ValueReaderContext getValueReaderContext() {
+        valueReader.initialize();
         return valueReaderContext;
     }
 
@@ -215,34 +350,95 @@ public class ExecutorContext extends AbstractThreadSafeContext<Object> {
         return actionContext;
     }
 
+    /**
+     * Will carry out the execution, with its output going to the standard output through an {@link OutputSink}, which
+     * is closed once the execution is over
+     * @param args    the command line arguments
+     * @throws Exception
+     */
     public void execute(String... args) throws Exception {
-        execute(System.out, args);
+        final OutputSink output = OutputSink.forStandardOutput();
+        log.debug("Output is buffered on its way to the standard output");
+        try {
+            execute(output, args);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Will carry out the execution on behalf of a client whose environment differs from that of the current JVM. The
+     * environment is made available through {@link #getEnvironment()} for as long as the execution is in progress.
+     * @param environment    the environment of the client
+     * @param out            the output of the execution
+     * @param args           the command line arguments
+     * @throws Exception
+     */
+    public void execute(ClientEnvironment environment, PrintStream out, String... args) throws Exception {
+        final ClientEnvironment previous = ClientEnvironment.bind(environment);
+        try {
+            execute(out, args);
+        } finally {
+            ClientEnvironment.bind(previous);
+        }
     }
 
     public void execute(PrintStream out, String... args) throws Exception {
         log.info("Starting execution ...");
         log.debug("Provided arguments are: " + Arrays.toString(args));
-        this.output = out;
-        final ExecutionStartedEvent event = publishEvent(new ExecutionStartedEvent(this, args, out));
-        args = event.getArguments();
-        out = event.getOutput();
-        if (System.out.equals(out)) {
-            log.debug("Output is redirected to the standard output");
+        final List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+        final boolean profiling = arguments.remove(Profiler.FLAG);
+        if (profiling) {
+            while (arguments.remove(Profiler.FLAG)) {
+                log.debug("Ignoring repeated " + Profiler.FLAG);
+            }
+            args = arguments.toArray(new String[arguments.size()]);
         }
+        final Profiler.Profile profile = Profiler.begin(profiling);
+        final Profiler.Phase phase = Profiler.start("execution");
+        final PrintStream previousOutput = this.output.get();
         try {
-            executor.execute(out, args);
-        } catch (Exception e) {
-            e = publishEvent(new ExecutionErrorEvent(this, e)).getError();
-            log.error("Errors prevented the execution of the system");
-            if (log.isDebugEnabled()) {
-                log.error(new ExceptionMessage(e));
+            this.output.set(out);
+            final ExecutionStartedEvent event = publishEvent(new ExecutionStartedEvent(this, args, out));
+            args = event.getArguments();
+            out = event.getOutput();
+            if (System.out.equals(out)) {
+                log.debug("Output is redirected to the standard output");
+            }
+            try {
+                executor.execute(out, args);
+            } catch (Exception e) {
+                e = publishEvent(new ExecutionErrorEvent(this, e)).getError();
+                log.error("Errors prevented the execution of the system");
+                if (log.isDebugEnabled()) {
+                    log.error(new ExceptionMessage(e));
+                }
+                throw e;
+            }
+        } finally {
+            this.output.set(previousOutput);
+            phase.stop();
+            Profiler.end(profile);
+            if (profiling) {
+                //the breakdown goes to the error stream, so that it never ends up mixed into the output of the action
+                profile.print(getEnvironment().getError());
             }
-            throw e;
         }
     }
 
+    /**
+     * @return the output of the latest execution started on the current thread
+     */
     public PrintStream getOutput() {
-        return output;
+        return output.get();
+    }
+
+    /**
+     * @return the environment of the client on whose behalf the current thread is executing, or the environment of
+     * the current JVM if the execution was started directly
+     */
+    public ClientEnvironment getEnvironment() {
+        return ClientEnvironment.current();
     }
 
     @SuppressWarnings("unchecked")
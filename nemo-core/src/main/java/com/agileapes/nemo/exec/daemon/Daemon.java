@@ -0,0 +1,233 @@
+package com.agileapes.nemo.exec.daemon;
+
+import com.agileapes.nemo.exec.ClientEnvironment;
+import com.agileapes.nemo.exec.ExecutorContext;
+import com.agileapes.nemo.util.ExceptionMessage;
+import com.agileapes.nemo.util.output.OutputSink;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The daemon keeps an {@link ExecutorContext} resident, and serves executions forwarded to it by
+ * {@link DaemonClient clients}, so that neither starting a JVM nor bootstrapping the context needs to be paid for
+ * each time the application is invoked.
+ *
+ * Each connection is served on its own thread, and goes through
+ * {@link ExecutorContext#execute(ClientEnvironment, PrintStream, String...)} with an output bound to the
+ * connection and the environment of the client. Once the execution is over, the client is handed the exit code of
+ * the execution, which is {@code 0} if it was successful, and {@code 1} otherwise.
+ *
+ * The daemon only ever listens on the loopback interface, and only serves clients presenting the token it writes, as
+ * it starts, to a file readable by the user running it alone (see {@link #TOKEN_PROPERTY}). The file is removed once
+ * the daemon is {@link #stop() stopped}.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/19, 12:10)
+ */
+public class Daemon implements Runnable {
+
+    /**
+     * The system property through which the port of the daemon can be specified, for both the daemon and the client
+     */
+    public static final String PORT_PROPERTY = "nemo.daemon.port";
+    public static final int DEFAULT_PORT = 2113;
+    /**
+     * The system property through which the file holding the token of the daemon can be specified, for both the
+     * daemon and the client. The file defaults to {@code ~/.nemo_daemon_PORT}.
+     */
+    public static final String TOKEN_PROPERTY = "nemo.daemon.token";
+    private static final Log log = LogFactory.getLog(Daemon.class);
+    private static final int MAX_ACCEPT_FAILURES = 10;
+    private static final long ACCEPT_DELAY = 50;
+    private static final long MAX_ACCEPT_DELAY = 5000;
+    private final ExecutorContext context;
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers;
+    private final File tokenFile;
+    private final String token;
+
+    /**
+     * @return the port specified through {@link #PORT_PROPERTY}, or {@link #DEFAULT_PORT}
+     */
+    public static int getConfiguredPort() {
+        return Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+    }
+
+    public Daemon(ExecutorContext context) throws IOException {
+        this(context, getConfiguredPort());
+    }
+
+    /**
+     * @param context    the context serving the executions
+     * @param port       the port to listen on, or {@code 0} for any free port
+     * @throws IOException if the port cannot be bound, or the token file cannot be written
+     */
+    public Daemon(ExecutorContext context, int port) throws IOException {
+        this.context = context;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+        this.tokenFile = DaemonProtocol.getTokenFile(getPort());
+        try {
+            this.token = DaemonProtocol.writeToken(tokenFile);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        this.workers = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "nemo-daemon-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+
+        });
+        log.info("Daemon listening on port " + getPort());
+    }
+
+    /**
+     * @return the file holding the token clients must present
+     */
+    public File getTokenFile() {
+        return tokenFile;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Will start accepting connections on a background thread
+     * @return the thread accepting connections
+     */
+    public Thread start() {
+        final Thread thread = new Thread(this, "nemo-daemon");
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Will accept connections until the daemon has been {@link #stop() stopped}. Should accepting connections fail,
+     * the daemon waits for a while before trying again, waiting longer after each consecutive failure, and stops
+     * once it has failed too many times in a row.
+     */
+    @Override
+    public void run() {
+        int failures = 0;
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    break;
+                }
+                log.error("Failed to accept connection: " + e.getMessage());
+                //failures which keep recurring (e.g. running out of file descriptors) are waited out, rather than
+                //spinning on them, until it is clear that they will not go away
+                if (++failures >= MAX_ACCEPT_FAILURES) {
+                    log.fatal("Stopping the daemon after " + failures + " consecutive failures to accept connections");
+                    stop();
+                    break;
+                }
+                try {
+                    Thread.sleep(Math.min(MAX_ACCEPT_DELAY, ACCEPT_DELAY << (failures - 1)));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    stop();
+                    break;
+                }
+                continue;
+            }
+            failures = 0;
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket);
+                }
+            });
+        }
+    }
+
+    /**
+     * Will stop accepting connections. Executions already in progress are allowed to finish.
+     */
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the daemon socket: " + e.getMessage());
+        }
+        workers.shutdown();
+        if (tokenFile.exists() && !tokenFile.delete()) {
+            log.warn("Failed to remove the token file " + tokenFile);
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (!DaemonProtocol.matches(token, DaemonProtocol.readToken(input))) {
+                log.warn("Refused a client presenting the wrong token");
+                final PrintStream error = open(output, DaemonProtocol.STDERR);
+                error.println("error: The daemon refused the token presented to it");
+                error.flush();
+                exit(output, 1);
+                return;
+            }
+            final String[] arguments = DaemonProtocol.readArguments(input);
+            final File workingDirectory = new File(DaemonProtocol.readString(input));
+            final ClientEnvironment environment = new ClientEnvironment(workingDirectory, DaemonProtocol.readVariables(input),
+                    new DaemonProtocol.FrameInputStream(input),
+                    open(output, DaemonProtocol.STDERR));
+            final PrintStream out = new OutputSink(new DaemonProtocol.FrameOutputStream(output, DaemonProtocol.STDOUT),
+                    OutputSink.DEFAULT_BUFFER_SIZE, 0, DaemonProtocol.CHARSET);
+            int exitCode = 0;
+            try {
+                context.execute(environment, out, arguments);
+            } catch (Throwable e) {
+                environment.getError().println("error: " + new ExceptionMessage(e).getMessage());
+                exitCode = 1;
+            }
+            out.flush();
+            environment.getError().flush();
+            exit(output, exitCode);
+        } catch (SocketException e) {
+            log.debug("Client went away: " + e.getMessage());
+        } catch (IOException e) {
+            log.error("Failed to serve client: " + e.getMessage());
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void exit(DataOutputStream output, int exitCode) throws IOException {
+        synchronized (output) {
+            output.writeByte(DaemonProtocol.EXIT);
+            output.writeInt(exitCode);
+            output.flush();
+        }
+    }
+
+    private static PrintStream open(DataOutputStream output, byte channel) throws UnsupportedEncodingException {
+        return new PrintStream(new BufferedOutputStream(new DaemonProtocol.FrameOutputStream(output, channel)), true, DaemonProtocol.CHARSET);
+    }
+
+}
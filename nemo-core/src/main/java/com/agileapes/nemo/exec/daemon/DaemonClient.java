@@ -0,0 +1,107 @@
+package com.agileapes.nemo.exec.daemon;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * The client forwards its arguments, working directory, environment variables, and standard input to a running
+ * {@link Daemon}, and relays whatever the execution writes back to its own standard output and standard error,
+ * exiting with the exit code of the execution.
+ *
+ * The client does not depend on any other part of the framework, so that invoking it involves nothing beyond starting
+ * the JVM and opening the connection. The port is read from the {@link Daemon#PORT_PROPERTY} system property, and the
+ * token presented to the daemon from the file it has written (see {@link Daemon#TOKEN_PROPERTY}).
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/19, 12:40)
+ */
+public class DaemonClient {
+
+    /**
+     * The exit code of the client when the daemon cannot be reached
+     */
+    public static final int UNREACHABLE = 127;
+
+    public static void main(String[] args) {
+        final int port = Integer.getInteger(Daemon.PORT_PROPERTY, Daemon.DEFAULT_PORT);
+        int exitCode;
+        try {
+            exitCode = run(port, args, System.in, System.out, System.err);
+        } catch (IOException e) {
+            System.err.println("error: Could not reach the daemon on port " + port + ": " + e.getMessage());
+            exitCode = UNREACHABLE;
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Will forward the execution to the daemon and wait for it to finish. The standard input is forwarded on a
+     * separate daemon thread, which is abandoned once the execution is over.
+     * @param port         the port of the daemon
+     * @param arguments    the arguments
+     * @param in           the input to forward
+     * @param out          the output to which the standard output of the execution is written
+     * @param err          the output to which the standard error of the execution is written
+     * @return the exit code of the execution
+     * @throws IOException if the daemon cannot be reached, its token cannot be read, or it goes away before the
+     * execution is over
+     */
+    public static int run(int port, String[] arguments, final InputStream in, OutputStream out, OutputStream err) throws IOException {
+        final String token = DaemonProtocol.readToken(DaemonProtocol.getTokenFile(port));
+        final Socket socket = new Socket(InetAddress.getByName(null), port);
+        try {
+            socket.setTcpNoDelay(true);
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DaemonProtocol.writeRequest(output, token, arguments, new File("").getAbsolutePath(), System.getenv());
+            final Thread forwarder = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final byte[] buffer = new byte[8192];
+                    try {
+                        int read;
+                        while ((read = in.read(buffer)) >= 0) {
+                            if (read == 0) {
+                                continue;
+                            }
+                            output.writeInt(read);
+                            output.write(buffer, 0, read);
+                            output.flush();
+                        }
+                        output.writeInt(0);
+                        output.flush();
+                    } catch (IOException ignored) {
+                        //the execution is either over, or the daemon is gone, both of which are handled by the reader
+                    }
+                }
+            }, "nemo-client-input");
+            forwarder.setDaemon(true);
+            forwarder.start();
+            final byte[] buffer = new byte[8192];
+            while (true) {
+                final byte channel = input.readByte();
+                final int length = input.readInt();
+                if (channel == DaemonProtocol.EXIT) {
+                    out.flush();
+                    err.flush();
+                    return length;
+                }
+                final OutputStream target = channel == DaemonProtocol.STDERR ? err : out;
+                int remaining = length;
+                while (remaining > 0) {
+                    final int read = input.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new EOFException();
+                    }
+                    target.write(buffer, 0, read);
+                    remaining -= read;
+                }
+                target.flush();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+}
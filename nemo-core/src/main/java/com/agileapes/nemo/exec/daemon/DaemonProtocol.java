@@ -0,0 +1,265 @@
+package com.agileapes.nemo.exec.daemon;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The wire protocol spoken between the {@link Daemon} and the {@link DaemonClient}.
+ *
+ * The client opens the conversation with {@link #MAGIC} and the token of the daemon, followed by the arguments, the
+ * working directory, and the environment variables of the process it has been invoked as. The token is generated anew
+ * each time a daemon is started, and is written to a file only its owner can read (see {@link #getTokenFile(int)}), so
+ * that only clients run by the same user are served. From then on, the client forwards its standard input
+ * as frames made up of a length and as many bytes, with an empty frame marking the end of the input.
+ *
+ * The daemon, in turn, answers with frames made up of a channel, a length, and as many bytes, the channel being either
+ * {@link #STDOUT} or {@link #STDERR}. The conversation is over once the daemon sends the {@link #EXIT} channel,
+ * followed by the exit code of the execution in place of the length.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/19, 11:45)
+ */
+final class DaemonProtocol {
+
+    static final int MAGIC = 0x4e454d4f;
+    static final byte EXIT = 0;
+    static final byte STDOUT = 1;
+    static final byte STDERR = 2;
+    static final String CHARSET = "UTF-8";
+
+    private static final int TOKEN_LENGTH = 16;
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * @param port    the port of the daemon
+     * @return the file specified through {@link Daemon#TOKEN_PROPERTY}, or {@code ~/.nemo_daemon_PORT}
+     */
+    static File getTokenFile(int port) {
+        final String path = System.getProperty(Daemon.TOKEN_PROPERTY);
+        if (path != null) {
+            return new File(path);
+        }
+        return new File(System.getProperty("user.home"), ".nemo_daemon_" + port);
+    }
+
+    /**
+     * Will generate a new token and write it to the given file, replacing the file if it exists. The file is made
+     * readable and writable by its owner only before the token is written to it.
+     * @param file    the file
+     * @return the token
+     * @throws IOException if the file cannot be written or its permissions cannot be restricted
+     */
+    static String writeToken(File file) throws IOException {
+        final byte[] bytes = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not replace the token file " + file);
+        }
+        if (!file.createNewFile()) {
+            throw new IOException("Token file " + file + " was created by someone else");
+        }
+        if (!file.setReadable(false, false) || !file.setReadable(true, true)
+                || !file.setWritable(false, false) || !file.setWritable(true, true)) {
+            file.delete();
+            throw new IOException("Could not restrict the permissions of the token file " + file);
+        }
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), CHARSET);
+        try {
+            writer.write(token.toString());
+        } finally {
+            writer.close();
+        }
+        return token.toString();
+    }
+
+    static String readToken(File file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+        try {
+            final String token = reader.readLine();
+            if (token == null) {
+                throw new IOException("Token file " + file + " is empty");
+            }
+            return token.trim();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @param expected    the token of the daemon
+     * @param actual      the token presented by the client
+     * @return {@code true} if the tokens match. The comparison takes the same time wherever the tokens differ.
+     */
+    static boolean matches(String expected, String actual) throws UnsupportedEncodingException {
+        return MessageDigest.isEqual(expected.getBytes(CHARSET), actual.getBytes(CHARSET));
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        final byte[] bytes = value.getBytes(CHARSET);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    static void writeRequest(DataOutputStream output, String token, String[] arguments, String workingDirectory, Map<String, String> variables) throws IOException {
+        output.writeInt(MAGIC);
+        writeString(output, token);
+        output.writeInt(arguments.length);
+        for (String argument : arguments) {
+            writeString(output, argument);
+        }
+        writeString(output, workingDirectory);
+        output.writeInt(variables.size());
+        for (Map.Entry<String, String> entry : variables.entrySet()) {
+            writeString(output, entry.getKey());
+            writeString(output, entry.getValue());
+        }
+        output.flush();
+    }
+
+    /**
+     * @param input    the input
+     * @return the token presented by the client
+     * @throws IOException if the other end is not a client
+     */
+    static String readToken(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a nemo client");
+        }
+        final int length = input.readInt();
+        if (length < 0 || length > TOKEN_LENGTH * 2) {
+            throw new IOException("Malformed token");
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    static String[] readArguments(DataInputStream input) throws IOException {
+        final String[] arguments = new String[input.readInt()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = readString(input);
+        }
+        return arguments;
+    }
+
+    static Map<String, String> readVariables(DataInputStream input) throws IOException {
+        final int count = input.readInt();
+        final Map<String, String> variables = new HashMap<String, String>(count * 2);
+        for (int i = 0; i < count; i++) {
+            variables.put(readString(input), readString(input));
+        }
+        return variables;
+    }
+
+    /**
+     * The standard input of the client as seen by the daemon. Frames are only read off the connection as the
+     * execution asks for more input.
+     */
+    static class FrameInputStream extends InputStream {
+
+        private final DataInputStream input;
+        private int remaining = 0;
+        private boolean finished = false;
+
+        FrameInputStream(DataInputStream input) {
+            this.input = input;
+        }
+
+        private boolean next() throws IOException {
+            while (!finished && remaining == 0) {
+                remaining = input.readInt();
+                if (remaining == 0) {
+                    finished = true;
+                }
+            }
+            return !finished;
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            if (!next()) {
+                return -1;
+            }
+            remaining --;
+            return input.read();
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!next()) {
+                return -1;
+            }
+            final int read = input.read(buffer, offset, Math.min(length, remaining));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public synchronized int available() throws IOException {
+            return finished ? 0 : Math.min(remaining, input.available());
+        }
+
+    }
+
+    /**
+     * Writes everything handed to it as frames on the given channel. Frames of all channels are written to the same
+     * connection, and so are sent atomically.
+     */
+    static class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream output;
+        private final byte channel;
+
+        FrameOutputStream(DataOutputStream output, byte channel) {
+            this.output = output;
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            synchronized (output) {
+                output.writeByte(channel);
+                output.writeInt(length);
+                output.write(buffer, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (output) {
+                output.flush();
+            }
+        }
+
+    }
+
+}
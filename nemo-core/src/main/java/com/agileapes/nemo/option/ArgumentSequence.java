@@ -0,0 +1,234 @@
+package com.agileapes.nemo.option;
+
+import com.agileapes.nemo.error.ArgumentFileException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The argument sequence is the sequence of all positional values given for an execution, in the order in which they
+ * were given. Besides the values given on the command line itself, this includes the values read from argument
+ * files:
+ *
+ * <ul>
+ *     <li>{@code @path} will be replaced by the lines of the given file, each line being one value;</li>
+ *     <li>{@code -@} will be replaced by the values read from the standard input of the client, separated by
+ *     {@code NUL} characters, as written by {@code find -print0}.</li>
+ * </ul>
+ *
+ * Values which are meant to start with {@code @} are given as {@code @@value}, which stands for {@code @value} alone.
+ *
+ * Empty values are skipped in both cases. The files are read through a buffered channel, and only as far as the
+ * values have been asked for, so that an action handed the sequence (see
+ * {@link com.agileapes.nemo.disassemble.DisassembleStrategy#setValues(Object, OptionDescriptor, Iterable)}) can
+ * start working on the first values long before the last ones have been read.
+ *
+ * The sequence can only be walked once, and will close any file it has opened once it has been {@link #close() closed}.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/22, 10:30)
+ */
+public class ArgumentSequence implements Iterable<String> {
+
+    private static final Log log = LogFactory.getLog(ArgumentSequence.class);
+    private static final String CHARSET = "UTF-8";
+    private static final int BUFFER_SIZE = 8192;
+    private final Options options;
+    private final File directory;
+    private final InputStream input;
+    private int token = 0;
+    private Source source;
+    private String next;
+    private boolean iterated = false;
+
+    /**
+     * @param options      the options holding the positional values and the argument files
+     * @param directory    the directory against which relative paths to argument files are resolved
+     * @param input        the input from which {@code -@} is read
+     */
+    ArgumentSequence(Options options, File directory, InputStream input) {
+        this.options = options;
+        this.directory = directory;
+        this.input = input;
+    }
+
+    /**
+     * @return {@code true} if there are more values in the sequence
+     * @throws ArgumentFileException if an argument file cannot be read
+     */
+    public boolean hasNext() {
+        while (next == null) {
+            if (source != null) {
+                next = source.read();
+                if (next == null) {
+                    source.close();
+                    source = null;
+                }
+                continue;
+            }
+            if (token == options.size()) {
+                return false;
+            }
+            final int kind = options.getKind(token);
+            if (kind == Options.INDEX) {
+                next = options.getValue(token);
+            } else if (kind == Options.FILE) {
+                source = open(options.getPath(token));
+            }
+            token ++;
+        }
+        return true;
+    }
+
+    /**
+     * @return the next value in the sequence
+     * @throws ArgumentFileException if an argument file cannot be read
+     */
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final String value = next;
+        next = null;
+        return value;
+    }
+
+    /**
+     * @return an iterator over the values of the sequence which have not been taken yet. The iterator can only be
+     * requested once.
+     */
+    @Override
+    public synchronized Iterator<String> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("The argument sequence can only be iterated once");
+        }
+        iterated = true;
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return ArgumentSequence.this.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return ArgumentSequence.this.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Closes the argument file currently being read, if any. The standard input is never closed.
+     */
+    public void close() {
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+        token = options.size();
+        next = null;
+    }
+
+    private Source open(String path) {
+        if (path == null) {
+            return new Source("-@", Channels.newChannel(input), '\0', false);
+        }
+        File file = new File(path);
+        if (!file.isAbsolute() && directory != null) {
+            file = new File(directory, path);
+        }
+        log.debug("Reading arguments from " + file.getAbsolutePath());
+        try {
+            return new Source(path, new FileInputStream(file).getChannel(), '\n', true);
+        } catch (FileNotFoundException e) {
+            throw new ArgumentFileException(path, "file not found");
+        }
+    }
+
+    /**
+     * A source is an argument file being read, handing out one value at a time
+     */
+    private static class Source {
+
+        private final String name;
+        private final ReadableByteChannel channel;
+        private final Reader reader;
+        private final char separator;
+        private final boolean closeable;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder value = new StringBuilder();
+        private int position = 0;
+        private int limit = 0;
+
+        private Source(String name, ReadableByteChannel channel, char separator, boolean closeable) {
+            this.name = name;
+            this.channel = channel;
+            this.reader = Channels.newReader(channel, CHARSET);
+            this.separator = separator;
+            this.closeable = closeable;
+        }
+
+        /**
+         * @return the next non-empty value, or {@code null} if the source has been exhausted
+         */
+        private String read() {
+            while (true) {
+                if (position == limit) {
+                    try {
+                        limit = reader.read(buffer);
+                    } catch (IOException e) {
+                        throw new ArgumentFileException(name, e.getMessage());
+                    }
+                    position = 0;
+                    if (limit < 0) {
+                        limit = 0;
+                        return take();
+                    }
+                }
+                while (position < limit) {
+                    final char current = buffer[position ++];
+                    if (current != separator) {
+                        value.append(current);
+                        continue;
+                    }
+                    final String taken = take();
+                    if (taken != null) {
+                        return taken;
+                    }
+                }
+            }
+        }
+
+        private String take() {
+            int length = value.length();
+            if (separator == '\n' && length > 0 && value.charAt(length - 1) == '\r') {
+                length --;
+            }
+            final String taken = length == 0 ? null : value.substring(0, length);
+            value.setLength(0);
+            return taken;
+        }
+
+        private void close() {
+            if (!closeable) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close argument file " + name + ": " + e.getMessage());
+            }
+        }
+
+    }
+
+}
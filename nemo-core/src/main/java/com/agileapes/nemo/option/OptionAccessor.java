@@ -0,0 +1,26 @@
+package com.agileapes.nemo.option;
+
+/**
+ * The option accessor is bound to a single option of a single action type once the option has been
+ * described, and will read and write the value of that option for any instance of that type.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/14, 10:35)
+ */
+public interface OptionAccessor<A> {
+
+    /**
+     * @param action    the action
+     * @return the current value of the option for the given action
+     * @throws Exception
+     */
+    Object get(A action) throws Exception;
+
+    /**
+     * @param action    the action
+     * @param value     the new value for the option, already converted to the type of the option
+     * @throws Exception
+     */
+    void set(A action, Object value) throws Exception;
+
+}
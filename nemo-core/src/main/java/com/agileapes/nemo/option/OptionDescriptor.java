@@ -2,6 +2,8 @@ package com.agileapes.nemo.option;
 
 import com.agileapes.nemo.error.OptionDefinitionException;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -70,6 +72,14 @@ public class OptionDescriptor {
         return Boolean.class.equals(getType()) || boolean.class.equals(getType());
     }
 
+    /**
+     * @return {@code true} if this is a positional option taking all the positional values from its index onward,
+     * which is the case for positional options of the types {@link Iterable}, {@link Collection}, and {@link List}
+     */
+    public boolean isSequence() {
+        return hasIndex() && (Iterable.class.equals(getType()) || Collection.class.equals(getType()) || List.class.equals(getType()));
+    }
+
     public Properties getMetadata() {
         return properties;
     }
@@ -0,0 +1,174 @@
+package com.agileapes.nemo.option;
+
+import com.agileapes.nemo.util.match.Match;
+import com.agileapes.nemo.util.match.TrigramIndex;
+
+import java.util.*;
+
+/**
+ * The option set is an immutable set of the options described for a single action, which is indexed at the time of
+ * its creation so that options can be looked up by their name, their alias, or their index without the descriptors
+ * having to be scanned one by one.
+ *
+ * Names are looked up through a hash table, ASCII aliases through a direct table of 128 entries (with any other alias
+ * falling back to a hash table), and indices through a dense array spanning up to the largest index. Should more than
+ * one option claim the same alias or index, the first one to be described will be the one found.
+ *
+ * The names are also kept in a {@link TrigramIndex}, so that a name which does not belong to any of the options can be
+ * matched against the names of the options closest to it (see {@link #getSuggestions(String)}) without every name
+ * being compared to it.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/18, 14:30)
+ */
+public class OptionSet<D extends OptionDescriptor> extends AbstractSet<D> {
+
+    /**
+     * The highest score (i.e. edit distance divided by the length of the longer name) at which an option is still
+     * suggested in place of an unknown name
+     */
+    public static final double MAXIMUM_SCORE = 0.6;
+
+    /**
+     * The largest number of options suggested in place of an unknown name
+     */
+    public static final int SUGGESTIONS = 3;
+
+    private static final int ASCII = 128;
+    private final Object[] descriptors;
+    private final Map<String, D> names;
+    private final Object[] aliases = new Object[ASCII];
+    private final Map<Character, D> extendedAliases = new HashMap<Character, D>();
+    private final Object[] indices;
+    private final TrigramIndex trigrams;
+
+    public OptionSet(Collection<? extends D> descriptors) {
+        final Set<D> distinct = new LinkedHashSet<D>(descriptors);
+        this.descriptors = distinct.toArray();
+        this.names = new HashMap<String, D>(distinct.size() * 2);
+        int maximum = -1;
+        for (D descriptor : distinct) {
+            if (!names.containsKey(descriptor.getName())) {
+                names.put(descriptor.getName(), descriptor);
+            }
+            if (descriptor.hasAlias()) {
+                final char alias = descriptor.getAlias();
+                if (alias < ASCII) {
+                    if (aliases[alias] == null) {
+                        aliases[alias] = descriptor;
+                    }
+                } else if (!extendedAliases.containsKey(alias)) {
+                    extendedAliases.put(alias, descriptor);
+                }
+            }
+            if (descriptor.hasIndex() && descriptor.getIndex() >= 0) {
+                maximum = Math.max(maximum, descriptor.getIndex());
+            }
+        }
+        indices = new Object[maximum + 1];
+        for (D descriptor : distinct) {
+            if (descriptor.hasIndex() && descriptor.getIndex() >= 0 && indices[descriptor.getIndex()] == null) {
+                indices[descriptor.getIndex()] = descriptor;
+            }
+        }
+        trigrams = new TrigramIndex(names.keySet());
+    }
+
+    /**
+     * @param name    the name of the option
+     * @return the option, or {@code null} if no option goes by the given name
+     */
+    public D get(String name) {
+        return names.get(name);
+    }
+
+    /**
+     * @param alias    the alias of the option
+     * @return the option, or {@code null} if no option has the given alias
+     */
+    @SuppressWarnings("unchecked")
+    public D get(char alias) {
+        if (alias < ASCII) {
+            return (D) aliases[alias];
+        }
+        return extendedAliases.get(alias);
+    }
+
+    /**
+     * @param index    the index of the option
+     * @return the option, or {@code null} if no option is bound to the given index
+     */
+    @SuppressWarnings("unchecked")
+    public D get(int index) {
+        if (index < 0 || index >= indices.length) {
+            return null;
+        }
+        return (D) indices[index];
+    }
+
+    /**
+     * @param name       the name, which need not belong to any of the options
+     * @param maximum    the highest acceptable score
+     * @param count      the largest number of matches of interest
+     * @return the matches among the names of the options closest to the given name, best match first
+     */
+    public List<Match> getMatches(String name, double maximum, int count) {
+        return trigrams.getMatches(name, maximum, count);
+    }
+
+    /**
+     * @param name    the name, which need not belong to any of the options
+     * @return the names of at most {@link #SUGGESTIONS} options scoring {@link #MAXIMUM_SCORE} or lower against the
+     * given name, best match first
+     */
+    public List<String> getSuggestions(String name) {
+        final List<String> suggestions = new ArrayList<String>();
+        for (Match match : getMatches(name, MAXIMUM_SCORE, SUGGESTIONS)) {
+            suggestions.add(match.getWord());
+        }
+        return suggestions;
+    }
+
+    /**
+     * @param descriptor    the descriptor
+     * @return {@code true} if the given descriptor is one of the descriptors held by this set. This is an identity
+     * check, and does not involve a scan of the set.
+     */
+    public boolean owns(OptionDescriptor descriptor) {
+        return descriptor != null && names.get(descriptor.getName()) == descriptor;
+    }
+
+    @Override
+    public Iterator<D> iterator() {
+        return new Iterator<D>() {
+
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < descriptors.length;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public D next() {
+                if (position >= descriptors.length) {
+                    throw new NoSuchElementException();
+                }
+                return (D) descriptors[position ++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+
+    @Override
+    public int size() {
+        return descriptors.length;
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.agileapes.nemo.option;
+
+import com.agileapes.nemo.error.OptionDefinitionException;
+
+import java.util.Properties;
+
+/**
+ * The option table is the compile-time counterpart of the reflective scan performed by
+ * {@link com.agileapes.nemo.disassemble.impl.AnnotatedFieldsDisassembleStrategy}. Implementations of this
+ * interface are generated by the {@code nemo-processor} module for each action class, and are named after
+ * the binary name of the action, followed by {@link #SUFFIX}.
+ *
+ * Options are addressed by their position in the table, which is the order in which they are returned by
+ * {@link #describe(Object)}.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/14, 10:20)
+ */
+public interface OptionTable<A> {
+
+    /**
+     * The suffix appended to the binary name of the action class to get to the name of its option table
+     */
+    String SUFFIX = "$$OptionTable";
+
+    /**
+     * @param action    the action
+     * @return the descriptors for all the options of the action, with their default values read from the
+     * given instance
+     * @throws OptionDefinitionException
+     */
+    OptionDescriptor[] describe(A action) throws OptionDefinitionException;
+
+    /**
+     * @param action      the action
+     * @param position    the position of the option in the table
+     * @return the current value of the option
+     */
+    Object get(A action, int position);
+
+    /**
+     * @param action      the action
+     * @param position    the position of the option in the table
+     * @param value       the value, already converted to the type of the option
+     */
+    void set(A action, int position, Object value);
+
+    /**
+     * Writes the value of an {@code int} option without boxing it
+     * @param action      the action
+     * @param position    the position of the option in the table
+     * @param value       the value
+     */
+    void setInt(A action, int position, int value);
+
+    /**
+     * Writes the value of a {@code long} option without boxing it
+     * @param action      the action
+     * @param position    the position of the option in the table
+     * @param value       the value
+     */
+    void setLong(A action, int position, long value);
+
+    /**
+     * Writes the value of a {@code double} option without boxing it
+     * @param action      the action
+     * @param position    the position of the option in the table
+     * @param value       the value
+     */
+    void setDouble(A action, int position, double value);
+
+    /**
+     * Writes the value of a {@code boolean} option without boxing it
+     * @param action      the action
+     * @param position    the position of the option in the table
+     * @param value       the value
+     */
+    void setBoolean(A action, int position, boolean value);
+
+    /**
+     * @return the metadata for the action class itself
+     */
+    Properties getMetadata();
+
+}
@@ -1,9 +1,12 @@
 package com.agileapes.nemo.option;
 
 import com.agileapes.nemo.error.InvalidArgumentSyntaxException;
+import com.agileapes.nemo.util.Profiler;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.File;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -15,27 +18,192 @@ import java.util.Map;
  *
  * To parse the input, you must use the internal {@link Builder} class.
  *
+ * The arguments are broken down into tokens, each of which is either a named option ({@link #NAME}), an aliased
+ * option ({@link #ALIAS}), a positional option ({@link #INDEX}), or an argument file ({@link #FILE}) standing for any
+ * number of positional options, which is read through the {@link ArgumentSequence}. A positional value which itself
+ * starts with {@code @} is given by doubling the prefix, e.g. {@code @@value} for {@code @value}. Rather than being kept as objects,
+ * the tokens are kept in parallel arrays holding their kind, the argument (and the offset into it) at which their key
+ * is found, and the argument holding their value, in the order in which they appear on the command line. Names and
+ * values are only cut out of the arguments once they are asked for, and the maps returned by {@link #getOptions()},
+ * {@link #getAliases()} and {@link #getIndexes()} are only built the first time they are requested.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/10, 19:38)
  */
 public class Options {
 
-    private final Map<String, String> options = new HashMap<String, String>();
-    private final Map<Character, String> aliases = new HashMap<Character, String>();
-    private final Map<Integer, String> indexes = new HashMap<Integer, String>();
+    /**
+     * Tokens of this kind set an option by its name, e.g. {@code --verbose}
+     */
+    public static final int NAME = 0;
+
+    /**
+     * Tokens of this kind set an option by its alias, e.g. {@code -v}
+     */
+    public static final int ALIAS = 1;
+
+    /**
+     * Tokens of this kind set an option by its index
+     */
+    public static final int INDEX = 2;
+
+    /**
+     * Tokens of this kind stand for the positional values read from an argument file, e.g. {@code @files.txt}, or
+     * from the standard input, i.e. {@code -@}
+     */
+    public static final int FILE = 3;
+
+    private static final int NO_VALUE = -1;
+    private String[] arguments;
+    private boolean copied = false;
+    private byte[] kinds;
+    private int[] sources;
+    private int[] keys;
+    private int[] values;
+    private int size = 0;
+    private Map<String, String> options;
+    private Map<Character, String> aliases;
+    private Map<Integer, String> indexes;
+
+    private Options(String[] arguments) {
+        this.arguments = arguments;
+        final int capacity = Math.max(arguments.length, 4);
+        kinds = new byte[capacity];
+        sources = new int[capacity];
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    private void add(int kind, int source, int key, int value) {
+        if (size == kinds.length) {
+            final int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        kinds[size] = (byte) kind;
+        sources[size] = source;
+        keys[size] = key;
+        values[size] = value;
+        size ++;
+    }
+
+    /**
+     * Will drop the escape prefix from the given argument. The arguments are copied before the first argument is
+     * unescaped, so that the array handed to the builder is left as it was.
+     * @param argument    the position of the argument
+     */
+    private void unescape(int argument) {
+        if (!copied) {
+            arguments = arguments.clone();
+            copied = true;
+        }
+        arguments[argument] = arguments[argument].substring(Builder.FILE_PREFIX.length());
+    }
+
+    /**
+     * @return the number of tokens
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param token    the position of the token
+     * @return the kind of the token, being one of {@link #NAME}, {@link #ALIAS}, {@link #INDEX}, and
+     * {@link #FILE}
+     */
+    public int getKind(int token) {
+        return kinds[token];
+    }
 
-    private Options() {}
+    /**
+     * @param token    the position of a {@link #NAME} token
+     * @return the name of the option
+     */
+    public String getName(int token) {
+        return arguments[sources[token]].substring(keys[token]);
+    }
+
+    /**
+     * @param token    the position of an {@link #ALIAS} token
+     * @return the alias of the option
+     */
+    public char getAlias(int token) {
+        return arguments[sources[token]].charAt(keys[token]);
+    }
 
-    public Map<String, String> getOptions() {
-        return Collections.unmodifiableMap(options);
+    /**
+     * @param token    the position of an {@link #INDEX} token
+     * @return the index of the option
+     */
+    public int getIndex(int token) {
+        return keys[token];
     }
 
-    public Map<Character, String> getAliases() {
-        return Collections.unmodifiableMap(aliases);
+    /**
+     * @param token    the position of a {@link #FILE} token
+     * @return the path to the argument file, or {@code null} if the values are to be read from the standard input
+     */
+    public String getPath(int token) {
+        return keys[token] == NO_VALUE ? null : arguments[sources[token]].substring(keys[token]);
     }
 
-    public Map<Integer, String> getIndexes() {
-        return Collections.unmodifiableMap(indexes);
+    /**
+     * @param directory    the directory against which relative paths to argument files are resolved
+     * @param input        the input from which values are read for {@code -@}
+     * @return a new sequence of all positional values, including those read from argument files
+     */
+    public ArgumentSequence getPositionals(File directory, InputStream input) {
+        return new ArgumentSequence(this, directory, input);
+    }
+
+    /**
+     * @param token    the position of the token
+     * @return the value given for the token, which will be {@link Builder#DEFAULT_FLAG_VALUE} for flags
+     */
+    public String getValue(int token) {
+        return values[token] == NO_VALUE ? Builder.DEFAULT_FLAG_VALUE : arguments[values[token]];
+    }
+
+    public synchronized Map<String, String> getOptions() {
+        if (options == null) {
+            final Map<String, String> map = new HashMap<String, String>();
+            for (int i = 0; i < size; i++) {
+                if (kinds[i] == NAME) {
+                    map.put(getName(i), getValue(i));
+                }
+            }
+            options = Collections.unmodifiableMap(map);
+        }
+        return options;
+    }
+
+    public synchronized Map<Character, String> getAliases() {
+        if (aliases == null) {
+            final Map<Character, String> map = new HashMap<Character, String>();
+            for (int i = 0; i < size; i++) {
+                if (kinds[i] == ALIAS) {
+                    map.put(getAlias(i), getValue(i));
+                }
+            }
+            aliases = Collections.unmodifiableMap(map);
+        }
+        return aliases;
+    }
+
+    public synchronized Map<Integer, String> getIndexes() {
+        if (indexes == null) {
+            final Map<Integer, String> map = new HashMap<Integer, String>();
+            for (int i = 0; i < size; i++) {
+                if (kinds[i] == INDEX) {
+                    map.put(getIndex(i), getValue(i));
+                }
+            }
+            indexes = Collections.unmodifiableMap(map);
+        }
+        return indexes;
     }
 
     public static class Builder {
@@ -45,6 +213,13 @@ public class Options {
         public static final String OPTION_PREFIX = "--";
         public static final String DEFAULT_FLAG_VALUE = "true";
         public static final String ALIAS_PREFIX = "-";
+        public static final String FILE_PREFIX = "@";
+        /**
+         * Positional values starting with this prefix are not argument files, but stand for the value without the
+         * first {@link #FILE_PREFIX}, e.g. {@code @@value} stands for {@code @value}
+         */
+        public static final String ESCAPED_FILE_PREFIX = FILE_PREFIX + FILE_PREFIX;
+        public static final String STANDARD_INPUT = "-@";
         private final String[] arguments;
 
         public Builder(String... arguments) {
@@ -52,39 +227,81 @@ public class Options {
         }
 
         public Options build() throws InvalidArgumentSyntaxException {
-            log.info("Parsing input arguments " + Arrays.toString(arguments));
-            final Options options = new Options();
+            final Profiler.Phase phase = Profiler.start("parse arguments");
+            try {
+                return parse();
+            } finally {
+                phase.stop();
+            }
+        }
+
+        /**
+         * @param argument    the argument
+         * @return {@code true} if the argument is an option, i.e. it starts with a dash
+         */
+        private static boolean isOption(String argument) {
+            return argument.length() > 0 && argument.charAt(0) == '-';
+        }
+
+        /**
+         * @param i    the position of an option expecting a value
+         * @return the position of the argument holding the value of the option, or {@link #NO_VALUE} if the option
+         * is a flag
+         */
+        private int getValue(int i) {
+            return i == arguments.length - 1 || isOption(arguments[i + 1]) ? NO_VALUE : i + 1;
+        }
+
+        private Options parse() throws InvalidArgumentSyntaxException {
+            if (log.isDebugEnabled()) {
+                log.debug("Parsing input arguments " + Arrays.toString(arguments));
+            }
+            final Options options = new Options(arguments);
             int index = 0;
             for (int i = 0; i < arguments.length; i++) {
-                String argument = arguments[i];
-                String value;
-                if (argument.matches("--?")) {
+                final String argument = arguments[i];
+                final int length = argument.length();
+                if (argument.startsWith(ESCAPED_FILE_PREFIX)) {
+                    options.unescape(i);
+                    options.add(INDEX, i, index ++, i);
+                    continue;
+                }
+                if (length > 1 && argument.startsWith(FILE_PREFIX)) {
+                    options.add(FILE, i, FILE_PREFIX.length(), NO_VALUE);
+                    continue;
+                }
+                if (!isOption(argument)) {
+                    options.add(INDEX, i, index ++, i);
+                    continue;
+                }
+                if (argument.equals(STANDARD_INPUT)) {
+                    options.add(FILE, i, NO_VALUE, NO_VALUE);
+                    continue;
+                }
+                if (length == 1 || length == 2 && argument.charAt(1) == '-') {
                     throw new InvalidArgumentSyntaxException(argument);
                 }
-                if (argument.startsWith(OPTION_PREFIX)) {
-                    if (i == arguments.length - 1 || arguments[i + 1].startsWith("-")) {
-                        value = DEFAULT_FLAG_VALUE;
-                    } else {
-                        value = arguments[++ i];
+                if (argument.charAt(1) == '-') {
+                    final int value = getValue(i);
+                    options.add(NAME, i, OPTION_PREFIX.length(), value);
+                    if (value != NO_VALUE) {
+                        i ++;
                     }
-                    options.options.put(argument.substring(OPTION_PREFIX.length()), value);
-                } else if (argument.startsWith(ALIAS_PREFIX)) {
-                    if (argument.length() == 2) {
-                        if (i == arguments.length - 1 || arguments[i + 1].startsWith("-")) {
-                            value = DEFAULT_FLAG_VALUE;
-                        } else {
-                            value = arguments[++ i];
-                        }
-                        options.aliases.put(argument.charAt(1), value);
-                    } else {
-                        for (int j = 1; j < argument.length(); j ++) {
-                            options.aliases.put(argument.charAt(j), DEFAULT_FLAG_VALUE);
-                        }
+                } else if (length == 2) {
+                    final int value = getValue(i);
+                    options.add(ALIAS, i, 1, value);
+                    if (value != NO_VALUE) {
+                        i ++;
                     }
                 } else {
-                    options.indexes.put(index ++, argument);
+                    for (int j = 1; j < length; j ++) {
+                        options.add(ALIAS, i, j, NO_VALUE);
+                    }
                 }
             }
+            if (log.isDebugEnabled()) {
+                log.debug("Parsed " + arguments.length + " input argument(s) into " + options.size() + " option(s)");
+            }
             return options;
         }
 
@@ -0,0 +1,41 @@
+package com.agileapes.nemo.option;
+
+/**
+ * The primitive option accessor is an {@link OptionAccessor} which is also capable of writing the values of
+ * options of the primitive types {@code int}, {@code long}, {@code double}, and {@code boolean} without boxing
+ * them first. Each of the methods below is only ever called for options of its respective type.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/21, 14:10)
+ */
+public interface PrimitiveOptionAccessor<A> extends OptionAccessor<A> {
+
+    /**
+     * @param action    the action
+     * @param value     the new value for the option
+     * @throws Exception
+     */
+    void setInt(A action, int value) throws Exception;
+
+    /**
+     * @param action    the action
+     * @param value     the new value for the option
+     * @throws Exception
+     */
+    void setLong(A action, long value) throws Exception;
+
+    /**
+     * @param action    the action
+     * @param value     the new value for the option
+     * @throws Exception
+     */
+    void setDouble(A action, double value) throws Exception;
+
+    /**
+     * @param action    the action
+     * @param value     the new value for the option
+     * @throws Exception
+     */
+    void setBoolean(A action, boolean value) throws Exception;
+
+}
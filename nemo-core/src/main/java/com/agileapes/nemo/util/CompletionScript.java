@@ -0,0 +1,298 @@
+package com.agileapes.nemo.util;
+
+import com.agileapes.nemo.action.Action;
+import com.agileapes.nemo.action.impl.ActionContext;
+import com.agileapes.nemo.action.impl.SmartAction;
+import com.agileapes.nemo.assets.HelpAction;
+import com.agileapes.nemo.exec.Completer;
+import com.agileapes.nemo.option.OptionDescriptor;
+
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * The completion script is a static completion script for one of the supported shells, written from the targets and
+ * options registered with the action context. Since everything the shell needs to know is written into the script,
+ * completing a command line never involves running the application itself.
+ *
+ * The scripts cover the targets which can be invoked from the command line; the long names and aliases of the options
+ * of each target; whether an option is a flag or takes a value; and the positional options of each target. Options and
+ * positional options taking an enum are completed to the constants of the enum, while other values are left to the
+ * default (file name) completion of the shell.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/20, 15:00)
+ */
+public class CompletionScript {
+
+    /**
+     * The shells for which scripts can be written
+     */
+    public static enum Shell {
+        BASH, ZSH, FISH
+    }
+
+    private final String program;
+    private final Map<String, String> targets = new LinkedHashMap<String, String>();
+    private final Map<String, List<OptionDescriptor>> options = new HashMap<String, List<OptionDescriptor>>();
+
+    /**
+     * @param actionContext    the action context
+     * @param program          the name under which the application is invoked from the shell
+     */
+    public CompletionScript(ActionContext actionContext, String program) {
+        this.program = program;
+        final Completer completer = new Completer(actionContext);
+        for (String target : completer.getTargets()) {
+            targets.put(target, getHelp(actionContext.getActions().get(target)));
+            options.put(target, completer.getOptions(target));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String getHelp(Properties metadata) {
+        if (metadata == null || !(metadata.get(HelpAction.HELP) instanceof Map)) {
+            return "";
+        }
+        final Object value = ((Map<String, Object>) metadata.get(HelpAction.HELP)).get("value");
+        return value == null ? "" : value.toString().replaceAll("\\s+", " ").trim();
+    }
+
+    private static String getHelp(Action action) {
+        if (!(action instanceof SmartAction)) {
+            return "";
+        }
+        try {
+            return getHelp(((SmartAction<?>) action).getMetadata());
+        } catch (Throwable e) {
+            return "";
+        }
+    }
+
+    private static List<String> getConstants(OptionDescriptor option) {
+        final List<String> constants = new ArrayList<String>();
+        if (option.getType().isEnum()) {
+            for (Object constant : option.getType().getEnumConstants()) {
+                constants.add(((Enum) constant).name());
+            }
+        }
+        return constants;
+    }
+
+    private static String join(Collection<String> items, String separator) {
+        final StringBuilder builder = new StringBuilder();
+        for (String item : items) {
+            if (builder.length() > 0) {
+                builder.append(separator);
+            }
+            builder.append(item);
+        }
+        return builder.toString();
+    }
+
+    private static String quote(String text) {
+        return "'" + text.replace("'", "'\\''") + "'";
+    }
+
+    private String getFunctionName() {
+        return "_" + program.replaceAll("[^A-Za-z0-9_]", "_") + "_complete";
+    }
+
+    /**
+     * Writes the script for the given shell
+     * @param shell     the shell
+     * @param output    the output
+     */
+    public void write(Shell shell, PrintStream output) {
+        if (Shell.BASH.equals(shell)) {
+            writeBash(output);
+        } else if (Shell.ZSH.equals(shell)) {
+            writeZsh(output);
+        } else {
+            writeFish(output);
+        }
+    }
+
+    private void writeBash(PrintStream output) {
+        final String function = getFunctionName();
+        output.println("# bash completion for " + program);
+        output.println(function + "() {");
+        output.println("    local cur=\"${COMP_WORDS[COMP_CWORD]}\" prev=\"${COMP_WORDS[COMP_CWORD-1]}\"");
+        output.println("    local options=\"\" valued=\"\" index=0 skip=0 i word");
+        output.println("    COMPREPLY=()");
+        output.println("    if [ \"$COMP_CWORD\" -eq 1 ]; then");
+        output.println("        COMPREPLY=( $(compgen -W " + quote(join(targets.keySet(), " ")) + " -- \"$cur\") )");
+        output.println("        return 0");
+        output.println("    fi");
+        output.println("    case \"${COMP_WORDS[1]}\" in");
+        for (String target : targets.keySet()) {
+            final List<String> all = new ArrayList<String>();
+            final List<String> valued = new ArrayList<String>();
+            for (OptionDescriptor option : options.get(target)) {
+                all.add("--" + option.getName());
+                if (option.hasAlias()) {
+                    all.add("-" + option.getAlias());
+                }
+                if (!option.isFlag()) {
+                    valued.add("--" + option.getName());
+                    if (option.hasAlias()) {
+                        valued.add("-" + option.getAlias());
+                    }
+                }
+            }
+            output.println("        " + quote(target) + ")");
+            output.println("            options=" + quote(join(all, " ")));
+            output.println("            valued=" + quote(join(valued, " ")));
+            output.println("            ;;");
+        }
+        output.println("        *)");
+        output.println("            return 0");
+        output.println("            ;;");
+        output.println("    esac");
+        output.println("    for ((i = 2; i < COMP_CWORD; i++)); do");
+        output.println("        word=\"${COMP_WORDS[i]}\"");
+        output.println("        if [ \"$skip\" -eq 1 ]; then skip=0; continue; fi");
+        output.println("        case \" $valued \" in *\" $word \"*) skip=1; continue ;; esac");
+        output.println("        case \"$word\" in -*) continue ;; esac");
+        output.println("        index=$((index + 1))");
+        output.println("    done");
+        output.println("    case \"${COMP_WORDS[1]}\" in");
+        for (String target : targets.keySet()) {
+            final List<String> cases = new ArrayList<String>();
+            for (OptionDescriptor option : options.get(target)) {
+                final List<String> constants = getConstants(option);
+                if (option.isFlag() || constants.isEmpty()) {
+                    continue;
+                }
+                final String words = "COMPREPLY=( $(compgen -W " + quote(join(constants, " ")) + " -- \"$cur\") ); return 0 ;;";
+                cases.add("prev:" + "--" + option.getName() + (option.hasAlias() ? "|-" + option.getAlias() : "") + ") " + words);
+                if (option.hasIndex()) {
+                    cases.add("index:" + option.getIndex() + ") " + words);
+                }
+            }
+            if (cases.isEmpty()) {
+                continue;
+            }
+            output.println("        " + quote(target) + ")");
+            writeBashCases(output, cases, "prev", "\"$prev\"", "            ");
+            output.println("            if [[ \"$cur\" != -* ]] && [ \"$skip\" -eq 0 ]; then");
+            writeBashCases(output, cases, "index", "\"$index\"", "                ");
+            output.println("            fi");
+            output.println("            ;;");
+        }
+        output.println("    esac");
+        output.println("    if [ \"$skip\" -eq 1 ]; then");
+        output.println("        return 0");
+        output.println("    fi");
+        output.println("    if [[ \"$cur\" == -* ]]; then");
+        output.println("        COMPREPLY=( $(compgen -W \"$options\" -- \"$cur\") )");
+        output.println("    fi");
+        output.println("    return 0");
+        output.println("}");
+        output.println("complete -o default -F " + function + " " + program);
+    }
+
+    private static void writeBashCases(PrintStream output, List<String> cases, String kind, String subject, String indent) {
+        final List<String> selected = new ArrayList<String>();
+        for (String item : cases) {
+            if (item.startsWith(kind + ":")) {
+                selected.add(item.substring(kind.length() + 1));
+            }
+        }
+        if (selected.isEmpty()) {
+            return;
+        }
+        output.println(indent + "case " + subject + " in");
+        for (String item : selected) {
+            output.println(indent + "    " + item);
+        }
+        output.println(indent + "esac");
+    }
+
+    private static String escapeZsh(String text) {
+        return text.replace("\\", "\\\\").replace("[", "\\[").replace("]", "\\]").replace(":", "\\:").replace("'", "'\\''");
+    }
+
+    private static String getZshAction(OptionDescriptor option) {
+        final List<String> constants = getConstants(option);
+        if (constants.isEmpty()) {
+            return "_files";
+        }
+        return "(" + join(constants, " ") + ")";
+    }
+
+    private void writeZsh(PrintStream output) {
+        final String function = getFunctionName();
+        output.println("#compdef " + program);
+        output.println("# zsh completion for " + program);
+        output.println(function + "() {");
+        output.println("    local -a targets");
+        output.println("    targets=(");
+        for (Map.Entry<String, String> entry : targets.entrySet()) {
+            output.println("        '" + entry.getKey().replace(":", "\\:").replace("'", "'\\''") + ":" + entry.getValue().replace("'", "'\\''") + "'");
+        }
+        output.println("    )");
+        output.println("    if (( CURRENT == 2 )); then");
+        output.println("        _describe 'target' targets");
+        output.println("        return");
+        output.println("    fi");
+        output.println("    local target=$words[2]");
+        output.println("    shift words");
+        output.println("    (( CURRENT-- ))");
+        output.println("    case $target in");
+        for (String target : targets.keySet()) {
+            output.println("        " + quote(target) + ")");
+            output.print("            _arguments -s");
+            for (OptionDescriptor option : options.get(target)) {
+                final String description = getHelp(option.getMetadata());
+                final String help = description.isEmpty() ? "" : "[" + escapeZsh(description) + "]";
+                final String value = option.isFlag() ? "" : ":" + escapeZsh(option.getName()) + ":" + getZshAction(option);
+                final String exclusion = option.hasAlias() ? "(--" + option.getName() + " -" + option.getAlias() + ")" : "";
+                output.print(" \\\n                '" + exclusion + "--" + option.getName() + help + value + "'");
+                if (option.hasAlias()) {
+                    output.print(" \\\n                '" + exclusion + "-" + option.getAlias() + help + value + "'");
+                }
+                if (option.hasIndex() && option.getIndex() >= 0) {
+                    output.print(" \\\n                '" + (option.getIndex() + 1) + ":" + escapeZsh(option.getName()) + ":" + getZshAction(option) + "'");
+                }
+            }
+            output.println();
+            output.println("            ;;");
+        }
+        output.println("    esac");
+        output.println("}");
+        output.println("compdef " + function + " " + program);
+    }
+
+    private void writeFish(PrintStream output) {
+        output.println("# fish completion for " + program);
+        output.println("complete -c " + program + " -f -n '__fish_use_subcommand'");
+        for (Map.Entry<String, String> entry : targets.entrySet()) {
+            output.println("complete -c " + program + " -f -n '__fish_use_subcommand' -a " + quote(entry.getKey())
+                    + (entry.getValue().isEmpty() ? "" : " -d " + quote(entry.getValue())));
+        }
+        for (String target : targets.keySet()) {
+            final String condition = " -n " + quote("__fish_seen_subcommand_from " + target);
+            for (OptionDescriptor option : options.get(target)) {
+                final StringBuilder line = new StringBuilder("complete -c ").append(program).append(condition);
+                line.append(" -l ").append(quote(option.getName()));
+                if (option.hasAlias()) {
+                    line.append(" -s ").append(quote(String.valueOf(option.getAlias())));
+                }
+                final List<String> constants = getConstants(option);
+                if (!option.isFlag()) {
+                    line.append(constants.isEmpty() ? " -r" : " -x -a " + quote(join(constants, " ")));
+                }
+                final String help = getHelp(option.getMetadata());
+                if (!help.isEmpty()) {
+                    line.append(" -d ").append(quote(help));
+                }
+                output.println(line);
+                if (option.hasIndex() && !constants.isEmpty()) {
+                    output.println("complete -c " + program + condition + " -f -a " + quote(join(constants, " ")));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,281 @@
+package com.agileapes.nemo.util;
+
+import com.agileapes.nemo.exec.Completer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The line reader reads command lines typed by the user, one at a time.
+ *
+ * When reading from an interactive terminal, the terminal is switched out of its line discipline (via {@code stty})
+ * for as long as a line is being typed, and switched back to the settings it had when the reader was created once the
+ * line is in, so that the reader can offer completions through the {@link Completer} when the tab key is pressed, and
+ * can walk through the history with the up and down arrow keys. Editing is limited to
+ * typing and erasing at the end of the line; {@code Ctrl-C} discards the line and {@code Ctrl-D} on an empty line marks
+ * the end of the input.
+ *
+ * Where the input is not a terminal, or the terminal cannot be controlled, lines are simply read as they come.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/20, 11:15)
+ */
+public class LineReader {
+
+    private static final Log log = LogFactory.getLog(LineReader.class);
+    private static final char CTRL_C = 3;
+    private static final char CTRL_D = 4;
+    private static final char BACKSPACE = 8;
+    private static final char TAB = '\t';
+    private static final char ESCAPE = 27;
+    private static final char DELETE = 127;
+    private final Reader input;
+    private final PrintStream output;
+    private final Completer completer;
+    private final List<String> history;
+    private final String state;
+    private final boolean interactive;
+
+    /**
+     * @param input          the input
+     * @param output         the output to which prompts and echoes are written
+     * @param completer      the completer offering completions, or {@code null}
+     * @param history        the history, which is searched through the arrow keys and to which read lines are added
+     * @param interactive    whether the input is a terminal which can be controlled through {@code stty}
+     */
+    public LineReader(InputStream input, PrintStream output, Completer completer, List<String> history, boolean interactive) {
+        this.input = new InputStreamReader(input);
+        this.output = output;
+        this.completer = completer;
+        this.history = history;
+        //the settings of the terminal are taken once, and restored after each line, rather than taken anew each time
+        this.state = interactive ? stty("-g") : null;
+        this.interactive = state != null;
+    }
+
+    /**
+     * @return {@code true} if the reader is controlling the terminal
+     */
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    /**
+     * @param prompt    the prompt
+     * @return the line, or {@code null} if the input is over
+     * @throws IOException
+     */
+    public String readLine(String prompt) throws IOException {
+        output.print(prompt);
+        output.flush();
+        final String line;
+        if (interactive) {
+            stty("-icanon -echo -isig min 1");
+            try {
+                line = edit(prompt);
+            } finally {
+                stty(state);
+            }
+        } else {
+            line = readPlain();
+        }
+        if (line != null && !line.trim().isEmpty() && (history.isEmpty() || !history.get(history.size() - 1).equals(line))) {
+            history.add(line);
+        }
+        return line;
+    }
+
+    private String readPlain() throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int read;
+        while ((read = input.read()) >= 0 && read != '\n') {
+            line.append((char) read);
+        }
+        if (read < 0 && line.length() == 0) {
+            return null;
+        }
+        if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line.toString();
+    }
+
+    private String edit(String prompt) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int position = history.size();
+        while (true) {
+            final int read = input.read();
+            if (read < 0) {
+                return line.length() == 0 ? null : line.toString();
+            }
+            final char c = (char) read;
+            if (c == '\r' || c == '\n') {
+                output.println();
+                return line.toString();
+            } else if (c == CTRL_D) {
+                if (line.length() == 0) {
+                    output.println();
+                    return null;
+                }
+            } else if (c == CTRL_C) {
+                output.println("^C");
+                output.print(prompt);
+                line.setLength(0);
+                position = history.size();
+            } else if (c == DELETE || c == BACKSPACE) {
+                if (line.length() > 0) {
+                    line.setLength(line.length() - 1);
+                    output.print("\b \b");
+                }
+            } else if (c == TAB) {
+                complete(prompt, line);
+            } else if (c == ESCAPE) {
+                if (input.read() != '[') {
+                    continue;
+                }
+                final int key = input.read();
+                if (key == 'A' && position > 0) {
+                    position --;
+                } else if (key == 'B' && position < history.size()) {
+                    position ++;
+                } else {
+                    continue;
+                }
+                line.setLength(0);
+                if (position < history.size()) {
+                    line.append(history.get(position));
+                }
+                redraw(prompt, line);
+            } else if (c >= ' ') {
+                line.append(c);
+                output.print(c);
+            }
+            output.flush();
+        }
+    }
+
+    private void complete(String prompt, StringBuilder line) {
+        if (completer == null) {
+            return;
+        }
+        final List<String> candidates = completer.complete(line.toString());
+        if (candidates.isEmpty()) {
+            return;
+        }
+        int start = line.length();
+        while (start > 0 && !Character.isWhitespace(line.charAt(start - 1))) {
+            start --;
+        }
+        final String word = line.substring(start);
+        String common = candidates.get(0);
+        for (String candidate : candidates) {
+            int length = 0;
+            while (length < common.length() && length < candidate.length() && common.charAt(length) == candidate.charAt(length)) {
+                length ++;
+            }
+            common = common.substring(0, length);
+        }
+        if (candidates.size() == 1) {
+            common += " ";
+        }
+        if (common.length() > word.length()) {
+            final String addition = common.substring(word.length());
+            line.append(addition);
+            output.print(addition);
+            return;
+        }
+        output.println();
+        final StringBuilder listing = new StringBuilder();
+        for (String candidate : candidates) {
+            listing.append(candidate).append("  ");
+        }
+        output.println(listing.toString().trim());
+        output.print(prompt);
+        output.print(line);
+    }
+
+    private void redraw(String prompt, StringBuilder line) {
+        output.print("\r" + prompt + line + ESCAPE + "[K");
+    }
+
+    /**
+     * Will run {@code stty} against the controlling terminal
+     * @param arguments    the arguments to {@code stty}
+     * @return the output of {@code stty}, or {@code null} if it failed
+     */
+    private static String stty(String arguments) {
+        try {
+            final Process process = new ProcessBuilder("sh", "-c", "stty " + arguments + " < /dev/tty").start();
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            final String result = reader.readLine();
+            reader.close();
+            return process.waitFor() == 0 ? (result == null ? "" : result.trim()) : null;
+        } catch (Exception e) {
+            log.debug("Could not control the terminal: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the history kept in the given file
+     * @param file       the file
+     * @param limit      the maximum number of entries to keep
+     * @return the history, which is empty if the file does not exist
+     */
+    public static List<String> loadHistory(File file, int limit) {
+        final List<String> history = new ArrayList<String>();
+        if (!file.isFile()) {
+            return history;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        history.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read the history: " + e.getMessage());
+        }
+        if (history.size() > limit) {
+            history.subList(0, history.size() - limit).clear();
+        }
+        return history;
+    }
+
+    /**
+     * Writes the last entries of the history to the given file
+     * @param file       the file
+     * @param history    the history
+     * @param limit      the maximum number of entries to keep
+     */
+    public static void saveHistory(File file, List<String> history, int limit) {
+        final List<String> kept = history.size() > limit ? history.subList(history.size() - limit, history.size()) : history;
+        try {
+            final File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Could not create " + parent);
+            }
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            try {
+                for (String line : kept) {
+                    writer.write(line.replace('\n', ' '));
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write the history: " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+package com.agileapes.nemo.util;
+
+import com.agileapes.nemo.util.output.Grid;
+import com.agileapes.nemo.util.output.GridLayout;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The profiler keeps track of the time spent in, and the memory allocated by, each of the phases the framework
+ * goes through from the moment the {@link com.agileapes.nemo.exec.ExecutorContext} is created up until the action
+ * has been executed. For each phase, the wall-clock time, the CPU time of the current thread, and the number of bytes
+ * allocated by the current thread are recorded, where the JVM supports it.
+ *
+ * Each execution records its phases into a {@link Profile} of its own, bound to the thread carrying out the execution,
+ * so that executions running side by side (e.g. on behalf of separate clients of a daemon, or as parallel lines of a
+ * batch) never see each other's phases. Since whether an execution is to be profiled is only known once its arguments
+ * are in, bootstrapping is only recorded if the {@link #BOOTSTRAP_PROPERTY} system property is set to {@code true}, in
+ * which case the first execution, should it be profiled, takes over the phases recorded from the moment the application
+ * started. Phases taking place outside an execution are otherwise never recorded.
+ *
+ * An execution started while another is in progress on the same thread (e.g. a line run by a batch or a shell)
+ * records its phases into the profile of the enclosing execution, unless it has been asked to be profiled itself
+ * through {@link #FLAG}, in which case it gets a profile of its own.
+ *
+ * Phases may be nested, in which case the breakdown printed via {@link Profile#print(PrintStream)} will show them
+ * indented under the phase during which they took place.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/18, 10:15)
+ */
+public final class Profiler {
+
+    /**
+     * The hidden global flag which will cause the breakdown to be printed after the execution
+     */
+    public static final String FLAG = "--nemo-profile";
+    /**
+     * The system property which, when set to {@code true}, will cause the phases taking place before the first
+     * execution to be recorded, so that they can be included in its breakdown
+     */
+    public static final String BOOTSTRAP_PROPERTY = "nemo.profile.bootstrap";
+    private static final Phase DISABLED = new Phase(null, null, 0);
+    private static final GridLayout BREAKDOWN = GridLayout.compile("* | * | * | *");
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final Method allocatedBytes = getAllocatedBytesMethod();
+    private static final ThreadLocal<Profile> current = new ThreadLocal<Profile>();
+    private static Profile bootstrap = Boolean.getBoolean(BOOTSTRAP_PROPERTY) ? new Profile(null, true) : null;
+
+    private Profiler() {
+    }
+
+    private static Method getAllocatedBytesMethod() {
+        try {
+            final Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+            if (type.isInstance(threads)) {
+                return type.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (Exception ignored) {
+        }
+        return null;
+    }
+
+    private static long getCpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long getAllocatedBytes() {
+        if (allocatedBytes == null) {
+            return -1;
+        }
+        try {
+            return (Long) allocatedBytes.invoke(threads, Thread.currentThread().getId());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the profile into which phases started on the current thread are recorded, or {@code null}
+     */
+    private static Profile getRecording() {
+        final Profile profile = current.get();
+        if (profile != null) {
+            return profile.recording;
+        }
+        synchronized (Profiler.class) {
+            return bootstrap;
+        }
+    }
+
+    /**
+     * Will start recording a new phase
+     * @param name    the name of the phase
+     * @return the phase, which must be {@link Phase#stop() stopped} once it is over
+     */
+    public static Phase start(String name) {
+        final Profile recording = getRecording();
+        if (recording == null) {
+            return DISABLED;
+        }
+        return recording.start(name);
+    }
+
+    /**
+     * @return {@code true} if phases started on the current thread are being recorded
+     */
+    public static boolean isEnabled() {
+        return getRecording() != null;
+    }
+
+    /**
+     * Will begin the profile of an execution on the current thread. The profile must be {@link #end(Profile) ended}
+     * on the same thread once the execution is over.
+     * @param enabled    whether or not the execution is to be profiled on its own
+     * @return the profile of the execution
+     */
+    public static Profile begin(boolean enabled) {
+        final Profile taken;
+        synchronized (Profiler.class) {
+            taken = bootstrap;
+            bootstrap = null;
+        }
+        final Profile previous = current.get();
+        final Profile profile = new Profile(previous, enabled);
+        if (enabled && taken != null) {
+            synchronized (taken.phases) {
+                profile.phases.addAll(taken.phases);
+            }
+        }
+        current.set(profile);
+        return profile;
+    }
+
+    /**
+     * Will end the profile, restoring the profile of the enclosing execution, if any, on the current thread
+     * @param profile    the profile, as returned by {@link #begin(boolean)}
+     */
+    public static void end(Profile profile) {
+        if (profile.previous == null) {
+            current.remove();
+        } else {
+            current.set(profile.previous);
+        }
+    }
+
+    private static String format(long value, int unit) {
+        if (value < 0) {
+            return "n/a";
+        }
+        return String.format("%.3f", (double) value / unit);
+    }
+
+    /**
+     * The profile of a single execution, holding the phases recorded during the execution in the order they began
+     */
+    public static final class Profile {
+
+        private final Profile previous;
+        private final Profile recording;
+        private final List<Phase> phases = new ArrayList<Phase>();
+        private int depth;
+
+        /**
+         * @param previous    the profile of the enclosing execution, if any
+         * @param enabled     whether the phases are to be recorded into this profile, or into that of the enclosing
+         *                    execution
+         */
+        private Profile(Profile previous, boolean enabled) {
+            this.previous = previous;
+            this.recording = enabled ? this : previous == null ? null : previous.recording;
+        }
+
+        private Phase start(String name) {
+            final Phase phase;
+            synchronized (phases) {
+                phase = new Phase(this, name, depth);
+                phases.add(phase);
+                depth = phase.depth + 1;
+            }
+            phase.begin();
+            return phase;
+        }
+
+        /**
+         * Will print the breakdown of the phases recorded so far to the given output
+         * @param output    the output
+         */
+        public void print(PrintStream output) {
+            final Grid grid = new Grid(BREAKDOWN);
+            grid.add("Phase", "Wall (ms)", "CPU (ms)", "Allocated (KB)");
+            grid.line();
+            synchronized (phases) {
+                for (Phase phase : phases) {
+                    final String name = StringUtils.repeat("  ", phase.depth) + phase.name;
+                    if (phase.stopped) {
+                        grid.add(name, format(phase.wallTime, 1000000), format(phase.cpuTime, 1000000), format(phase.allocated, 1024));
+                    } else {
+                        grid.add(name, "n/a", "n/a", "n/a");
+                    }
+                }
+            }
+            output.println(grid.draw());
+        }
+
+    }
+
+    /**
+     * A single phase being profiled
+     */
+    public static final class Phase {
+
+        private final Profile profile;
+        private final String name;
+        private final int depth;
+        private long wallTime = -1;
+        private long cpuTime = -1;
+        private long allocated = -1;
+        private boolean stopped;
+
+        private Phase(Profile profile, String name, int depth) {
+            this.profile = profile;
+            this.name = name;
+            this.depth = depth;
+        }
+
+        private void begin() {
+            allocated = getAllocatedBytes();
+            cpuTime = getCpuTime();
+            wallTime = System.nanoTime();
+        }
+
+        /**
+         * Marks the end of the phase. Calling this method more than once has no effect.
+         */
+        public void stop() {
+            if (name == null || stopped) {
+                return;
+            }
+            final long time = System.nanoTime();
+            final long cpu = getCpuTime();
+            final long bytes = getAllocatedBytes();
+            synchronized (profile.phases) {
+                stopped = true;
+                wallTime = time - wallTime;
+                cpuTime = cpuTime < 0 || cpu < 0 ? -1 : cpu - cpuTime;
+                allocated = allocated < 0 || bytes < 0 ? -1 : bytes - allocated;
+                profile.depth = depth;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.agileapes.nemo.util.match;
+
+import java.util.Arrays;
+
+/**
+ * This class computes the Levenshtein (edit) distance between two strings, bounded by a limit. Only the cells of the
+ * dynamic programming table lying within {@code limit} of its diagonal are computed, and the computation stops as soon
+ * as a whole row exceeds the limit, so that the cost of telling two strings apart depends on the limit rather than on
+ * the length of the strings.
+ *
+ * The rows are computed through {@link #start(int[], int)} and {@link #extend(CharSequence, int[], int[], int, char, int)},
+ * which are also used by the {@link WordIndex} to extend the rows of the table one character at a time as it walks its
+ * trie.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/23, 10:00)
+ */
+public final class Levenshtein {
+
+    static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private Levenshtein() {
+    }
+
+    /**
+     * @param first     the first string
+     * @param second    the second string
+     * @return the edit distance between the two strings
+     */
+    public static int distance(CharSequence first, CharSequence second) {
+        return distance(first, second, Math.max(first.length(), second.length()));
+    }
+
+    /**
+     * @param first     the first string
+     * @param second    the second string
+     * @param limit     the largest distance of interest
+     * @return the edit distance between the two strings, or {@code limit + 1} if the distance exceeds the limit
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    public static int distance(CharSequence first, CharSequence second, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        final CharSequence shorter = first.length() <= second.length() ? first : second;
+        final CharSequence longer = shorter == first ? second : first;
+        final int n = shorter.length();
+        final int m = longer.length();
+        if (m - n > limit) {
+            return limit + 1;
+        }
+        if (n == 0) {
+            return m;
+        }
+        final int band = Math.min(limit, m);
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        start(previous, band);
+        Arrays.fill(current, INFINITY);
+        for (int j = 1; j <= m; j++) {
+            if (extend(shorter, previous, current, j, longer.charAt(j - 1), band) > limit) {
+                return limit + 1;
+            }
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[n] <= limit ? previous[n] : limit + 1;
+    }
+
+    /**
+     * Will fill in the first row of the table, i.e. the distances of the prefixes of a word from the empty string
+     * @param row     the row, having one more cell than the word has characters
+     * @param band    the largest distance from the diagonal at which cells are computed
+     */
+    static void start(int[] row, int band) {
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i <= band ? i : INFINITY;
+        }
+    }
+
+    /**
+     * Will compute the row of the table following the given row, i.e. the distances of the prefixes of the word
+     * from a string one character longer than the string the previous row was computed for. Cells lying further than
+     * {@code band} from the diagonal are not computed, and are taken to be {@link #INFINITY}.
+     * @param word         the word
+     * @param previous     the previous row
+     * @param current      the row to fill in
+     * @param length       the length of the string the row is being computed for
+     * @param character    the last character of that string
+     * @param band         the largest distance from the diagonal at which cells are computed
+     * @return the smallest value in the row
+     */
+    static int extend(CharSequence word, int[] previous, int[] current, int length, char character, int band) {
+        final int n = word.length();
+        final int from = Math.max(1, length - band);
+        final int to = Math.min(n, length + band);
+        current[from - 1] = from == 1 && length <= band ? length : INFINITY;
+        int smallest = current[from - 1];
+        for (int i = from; i <= to; i++) {
+            if (word.charAt(i - 1) == character) {
+                current[i] = previous[i - 1];
+            } else {
+                current[i] = 1 + Math.min(previous[i - 1], Math.min(previous[i], current[i - 1]));
+            }
+            smallest = Math.min(smallest, current[i]);
+        }
+        if (to < n) {
+            current[to + 1] = INFINITY;
+        }
+        return smallest;
+    }
+
+}
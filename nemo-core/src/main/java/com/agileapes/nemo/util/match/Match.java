@@ -0,0 +1,48 @@
+package com.agileapes.nemo.util.match;
+
+/**
+ * A match is a word found to be close to the one being looked up, along with how close it is
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/22, 15:10)
+ */
+public class Match {
+
+    private final String word;
+    private final int distance;
+    private final double score;
+
+    public Match(String word, int distance, double score) {
+        this.word = word;
+        this.distance = distance;
+        this.score = score;
+    }
+
+    /**
+     * @return the word which was matched
+     */
+    public String getWord() {
+        return word;
+    }
+
+    /**
+     * @return the edit distance between the word and the one looked up
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return the edit distance divided by the length of the longer of the two words, which is {@code 0} for an
+     * exact match and at most {@code 1}
+     */
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return word + " (" + distance + ")";
+    }
+
+}
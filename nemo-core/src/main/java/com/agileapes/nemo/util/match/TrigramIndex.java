@@ -0,0 +1,131 @@
+package com.agileapes.nemo.util.match;
+
+import java.util.*;
+
+/**
+ * The trigram index is an immutable index of words, which can be searched for the words closest to a given word. Each
+ * word is padded (two padding characters before it, and one after) and broken down into the runs of three characters
+ * it is made of, and for each such trigram the index keeps the list of the words in which it appears.
+ *
+ * Looking a word up only gathers the words appearing in the lists of its own trigrams, and computes the (bounded)
+ * Levenshtein distance to those words alone, so that the cost of a lookup depends on the length of the word and the
+ * number of words sharing a trigram with it, rather than on the number of words in the index.
+ * Words sharing no trigram at all with the word being looked up are, by the same token, never suggested.
+ *
+ * As with the {@link WordIndex}, words are ranked by their score, i.e. the edit distance divided by the length of the
+ * longer of the two words, then by the distance itself, and then alphabetically.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/23, 10:10)
+ */
+public class TrigramIndex {
+
+    private static final char PADDING = '\0';
+    private static final int[] NONE = new int[0];
+    private final String[] words;
+    private final Map<String, int[]> postings;
+
+    public TrigramIndex(Collection<String> words) {
+        final Set<String> distinct = new LinkedHashSet<String>(words);
+        this.words = distinct.toArray(new String[distinct.size()]);
+        final Map<String, int[]> lists = new HashMap<String, int[]>();
+        final Map<String, Integer> sizes = new HashMap<String, Integer>();
+        for (int i = 0; i < this.words.length; i++) {
+            for (String trigram : getTrigrams(this.words[i])) {
+                int[] list = lists.get(trigram);
+                final int size = list == null ? 0 : sizes.get(trigram);
+                if (list == null) {
+                    list = new int[4];
+                } else if (size == list.length) {
+                    list = Arrays.copyOf(list, size * 2);
+                }
+                list[size] = i;
+                lists.put(trigram, list);
+                sizes.put(trigram, size + 1);
+            }
+        }
+        this.postings = new HashMap<String, int[]>(lists.size() * 2);
+        for (Map.Entry<String, int[]> entry : lists.entrySet()) {
+            postings.put(entry.getKey(), Arrays.copyOf(entry.getValue(), sizes.get(entry.getKey())));
+        }
+    }
+
+    /**
+     * @param word    the word
+     * @return the distinct trigrams of the padded word
+     */
+    private static Set<String> getTrigrams(String word) {
+        final String padded = PADDING + "" + PADDING + word + PADDING;
+        final Set<String> trigrams = new HashSet<String>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * @return the number of words in the index
+     */
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * @param word       the word
+     * @param maximum    the highest acceptable score
+     * @param count      the largest number of matches of interest
+     * @return the matches scoring {@code maximum} or lower, best match first, and at most {@code count} of them
+     */
+    public List<Match> getMatches(String word, double maximum, int count) {
+        if (words.length == 0 || count <= 0) {
+            return Collections.emptyList();
+        }
+        final boolean[] seen = new boolean[words.length];
+        int[] candidates = new int[8];
+        int found = 0;
+        for (String trigram : getTrigrams(word)) {
+            final int[] list = postings.containsKey(trigram) ? postings.get(trigram) : NONE;
+            for (int candidate : list) {
+                if (seen[candidate]) {
+                    continue;
+                }
+                seen[candidate] = true;
+                if (found == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, found * 2);
+                }
+                candidates[found ++] = candidate;
+            }
+        }
+        final List<Match> matches = new ArrayList<Match>();
+        for (int i = 0; i < found; i++) {
+            final String candidate = words[candidates[i]];
+            final int length = Math.max(candidate.length(), word.length());
+            final int limit = (int) Math.floor(maximum * length + 1e-9);
+            if (limit < 0) {
+                continue;
+            }
+            final int distance = Levenshtein.distance(word, candidate, limit);
+            if (distance > limit) {
+                continue;
+            }
+            final double score = length == 0 ? 0 : (double) distance / length;
+            if (score <= maximum) {
+                matches.add(new Match(candidate, distance, score));
+            }
+        }
+        Collections.sort(matches, new Comparator<Match>() {
+            @Override
+            public int compare(Match first, Match second) {
+                if (first.getScore() != second.getScore()) {
+                    return first.getScore() < second.getScore() ? -1 : 1;
+                }
+                if (first.getDistance() != second.getDistance()) {
+                    return first.getDistance() - second.getDistance();
+                }
+                return first.getWord().compareTo(second.getWord());
+            }
+        });
+        return matches.size() > count ? new ArrayList<Match>(matches.subList(0, count)) : matches;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.agileapes.nemo.util.match;
+
+import java.util.Arrays;
+
+/**
+ * The word index is a trie of words which can be searched for the words closest to a given word by their
+ * Levenshtein (edit) distance. As the trie is walked, each node extends the row of the edit distance table of its
+ * parent by a single character, so that words sharing a prefix share the cost of comparing that prefix, and a whole
+ * branch is left out as soon as the smallest value in its row exceeds the distance of interest. Only the cells of each
+ * row lying within that distance of the diagonal are computed. The rows are computed by {@link Levenshtein}.
+ *
+ * Words are matched by their score, i.e. their distance from the word looked up divided by the length of the longer of
+ * the two. Since the score of a word at distance {@code d} from a word of length {@code n} is at least
+ * {@code d / (n + d)}, the index is first searched for words a single edit away, and the distance of interest is only
+ * widened while a word further away could still score lower than the best word found so far. Looking up a word with a
+ * typo in it thus costs about as much as walking the branches of the trie a single edit away from it, no matter how
+ * many words the index holds.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/22, 15:20)
+ */
+public class WordIndex {
+
+    private static final int INFINITY = Levenshtein.INFINITY;
+    private final Node root = new Node();
+    private int size = 0;
+    private int longest = 0;
+
+    private static class Node {
+
+        private char[] characters = new char[0];
+        private Node[] children = new Node[0];
+        private String word;
+
+        private Node getChild(char character) {
+            for (int i = 0; i < characters.length; i++) {
+                if (characters[i] == character) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node addChild(char character) {
+            final Node child = new Node();
+            characters = Arrays.copyOf(characters, characters.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            characters[characters.length - 1] = character;
+            children[children.length - 1] = child;
+            return child;
+        }
+
+    }
+
+    /**
+     * The state of a single search
+     */
+    private static class Search {
+
+        private final String word;
+        private final double maximum;
+        private final int radius;
+        private final int[][] rows;
+        private Match best;
+
+        private Search(String word, double maximum, int radius, int depth) {
+            this.word = word;
+            this.maximum = maximum;
+            this.radius = radius;
+            this.rows = new int[depth + 1][word.length() + 1];
+        }
+
+    }
+
+    /**
+     * Adds the word to the index, unless it is already there
+     * @param word    the word
+     */
+    public synchronized void add(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            final Node child = node.getChild(word.charAt(i));
+            node = child != null ? child : node.addChild(word.charAt(i));
+        }
+        if (node.word == null) {
+            node.word = word;
+            longest = Math.max(longest, word.length());
+            size ++;
+        }
+    }
+
+    /**
+     * @return the number of words in the index
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param length    the length of the word being looked up
+     * @param score     the highest score of interest
+     * @return the largest distance at which a word can still have the given score
+     */
+    private static int getRadius(int length, double score) {
+        if (score >= 1) {
+            return INFINITY;
+        }
+        return (int) Math.floor(score * length / (1 - score) + 1e-9);
+    }
+
+    /**
+     * @param word        the word
+     * @param maximum     the highest acceptable score
+     * @return the match with the lowest score, or {@code null} if no word in the index scores {@code maximum} or
+     * lower. Should there be more than one such word, the one closest to the given word and then the one coming first
+     * alphabetically is returned.
+     */
+    public synchronized Match getClosest(String word, double maximum) {
+        if (size == 0) {
+            return null;
+        }
+        final int limit = Math.min(getRadius(word.length(), maximum), Math.max(word.length(), longest));
+        int radius = Math.min(1, limit);
+        while (true) {
+            final Search search = new Search(word, maximum, radius, longest);
+            Levenshtein.start(search.rows[0], radius);
+            visit(search, root, 0);
+            final Match best = search.best;
+            if (radius >= limit || best != null && best.getScore() <= (double) (radius + 1) / (word.length() + radius + 1)) {
+                return best;
+            }
+            radius = Math.min(limit, 2 * radius);
+        }
+    }
+
+    private static void visit(Search search, Node node, int depth) {
+        final int[] row = search.rows[depth];
+        final int length = search.word.length();
+        if (node.word != null && Math.abs(length - depth) <= search.radius && row[length] <= search.radius) {
+            consider(search, node.word, row[length]);
+        }
+        if (depth == search.rows.length - 1) {
+            return;
+        }
+        final int[] next = search.rows[depth + 1];
+        for (int c = 0; c < node.characters.length; c++) {
+            final int smallest = Levenshtein.extend(search.word, row, next, depth + 1, node.characters[c], search.radius);
+            if (smallest <= search.radius) {
+                visit(search, node.children[c], depth + 1);
+            }
+        }
+    }
+
+    private static void consider(Search search, String word, int distance) {
+        final int length = Math.max(word.length(), search.word.length());
+        final double score = length == 0 ? 0 : (double) distance / length;
+        final Match best = search.best;
+        if (score <= search.maximum && (best == null || score < best.getScore() || score == best.getScore()
+                && (distance < best.getDistance() || distance == best.getDistance() && word.compareTo(best.getWord()) < 0))) {
+            search.best = new Match(word, distance, score);
+        }
+    }
+
+}
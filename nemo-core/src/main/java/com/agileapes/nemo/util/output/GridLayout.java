@@ -0,0 +1,411 @@
+package com.agileapes.nemo.util.output;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The grid layout is the compiled form of a grid pattern (see {@link #compile(String)}), describing how each row of a
+ * {@link Grid} or a {@link GridWriter} is laid out. Layouts are immutable, and can be compiled once and shared among
+ * any number of grids, e.g. by keeping them in static fields.
+ *
+ * The columns of the layout are kept in parallel arrays holding their kind and their width, with the separators and
+ * the pieces of horizontal lines which cross them rendered ahead of time. Rows are rendered by a {@link Renderer},
+ * which renders each cell into a buffer kept for its column, and composes each line of the row in a single buffer
+ * before handing it to the output, so that once the buffers have grown to fit the widest cells, rendering a row does
+ * not allocate anything for its cells.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/23, 16:00)
+ */
+public final class GridLayout {
+
+    /**
+     * A separator, i.e. a vertical line or a space
+     */
+    private static final byte STATIC = 0;
+    private static final byte CENTER = 1;
+    private static final byte LEFT = 2;
+    private static final byte RIGHT = 3;
+    private static final byte WRAP = 4;
+
+    /**
+     * A column whose width depends on its contents
+     */
+    private static final byte GENERIC = 5;
+
+    private static final String LINE = " | ";
+    private static final String SPACE = "  ";
+    private static final char[] SPACES = new char[256];
+    private static final char[] DASHES = new char[256];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+        Arrays.fill(DASHES, '-');
+    }
+
+    private final String pattern;
+    private final byte[] kinds;
+    private final int[] widths;
+    private final String[] separators;
+    private final String[] rules;
+    private final int columns;
+
+    private GridLayout(String pattern, byte[] kinds, int[] widths, String[] separators) {
+        this.pattern = pattern;
+        this.kinds = kinds;
+        this.widths = widths;
+        this.separators = separators;
+        this.rules = new String[kinds.length];
+        int columns = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] == STATIC) {
+                final int width = separators[i].length();
+                final StringBuilder rule = new StringBuilder();
+                rule.append(DASHES, 0, (width - 1) / 2).append('+').append(DASHES, 0, width / 2);
+                rules[i] = rule.toString();
+            } else {
+                columns ++;
+            }
+        }
+        this.columns = columns;
+    }
+
+    /**
+     * Compiles the pattern describing the rows of a grid
+     * @param pattern    this parameter indicates how each row of the table should be organized.
+     *                   The parser will go over the pattern to discover the how each cell should be
+     *                   displayed.
+     *                   <ul>
+     *                   <li><strong><code>' '</code> (single space character)</strong> means a space of two between
+     *                   the two cells around it. It can be also used to add padding around cells. The padding size is
+     *                   constant (2) however.</li>
+     *                   <li><strong><code>|</code></strong> denotes a vertical line. Vertical lines are drawn with a padding
+     *                   of one on either side.</li>
+     *                   <li><strong><code>*</code></strong> means that the width of the cell is determined by the longest
+     *                   string in all the rows in this column. The width is not limited, so be careful to not use this
+     *                   option when displaying strings that are expected to be long, naturally, over display terminals
+     *                   with a limited width.</li>
+     *                   <li><strong><code>c\d+</code></strong> (the character 'c' followed by an integer number) means a cell of the
+     *                   specified width, with its content centered.</li>
+     *                   <li><strong><code>l\d+</code></strong> (the character 'l' followed by an integer number) means a cell of the
+     *                   indicated width, with its content aligned to the left</li>
+     *                   <li><strong><code>r\d+</code></strong> (the character 'r' followed by an integer number) means a cell of the
+     *                   indicated width, with its content aligned to the right</li>
+     *                   <li><strong><code>w\d+</code></strong> (the character 'w' followed by an integer number) means a cell of the
+     *                   specified width, with its content wrapped and justified. Note that using this option is the only
+     *                   way for having cells that span across multiple rows.</li>
+     *                   </ul>
+     *                   With the exception of the <code>w</code> modifier, all cells with a fixed width can only contain
+     *                   strings of a fixed width, with the rest of them truncated.
+     * @return the compiled layout
+     * @throws IllegalArgumentException if the pattern is not valid
+     */
+    public static GridLayout compile(String pattern) {
+        final int length = pattern.length();
+        final byte[] kinds = new byte[length];
+        final int[] widths = new int[length];
+        final String[] separators = new String[length];
+        int count = 0;
+        int i = 0;
+        while (i < length) {
+            final char character = pattern.charAt(i ++);
+            if (character == '|') {
+                separators[count] = LINE;
+                widths[count] = LINE.length();
+            } else if (character == ' ') {
+                separators[count] = SPACE;
+                widths[count] = SPACE.length();
+            } else if (character == '*') {
+                kinds[count] = GENERIC;
+            } else {
+                final byte kind = getKind(character);
+                final int start = i;
+                int width = 0;
+                while (i < length && pattern.charAt(i) >= '0' && pattern.charAt(i) <= '9') {
+                    width = width * 10 + pattern.charAt(i ++) - '0';
+                }
+                if (kind == STATIC || i == start) {
+                    throw new IllegalArgumentException("Invalid grid pattern at " + (start - 1) + ": " + pattern);
+                }
+                kinds[count] = kind;
+                widths[count] = width;
+            }
+            count ++;
+        }
+        return new GridLayout(pattern, Arrays.copyOf(kinds, count), Arrays.copyOf(widths, count), Arrays.copyOf(separators, count));
+    }
+
+    private static byte getKind(char character) {
+        switch (character) {
+            case 'c': return CENTER;
+            case 'l': return LEFT;
+            case 'r': return RIGHT;
+            case 'w': return WRAP;
+            default: return STATIC;
+        }
+    }
+
+    /**
+     * @return the number of cells expected in each row
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @param input    the cells of a row
+     * @throws IllegalArgumentException if the number of cells does not match the layout
+     */
+    void check(String ... input) {
+        if (input.length != columns) {
+            throw new IllegalArgumentException("Expected " + columns + " cells while got " + input.length);
+        }
+    }
+
+    /**
+     * @return {@code true} if the width of any of the columns depends on its contents
+     */
+    boolean isAutomatic() {
+        for (byte kind : kinds) {
+            if (kind == GENERIC) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the widths of the columns, which is {@code 0} for columns whose width depends on their contents
+     * @see #measure(String[], int[])
+     */
+    int[] getWidths() {
+        return widths.clone();
+    }
+
+    /**
+     * Will widen the columns whose width depends on their contents so that they fit the given row
+     * @param row        the row, or {@code null} for a horizontal line
+     * @param lengths    the widths of the columns
+     */
+    void measure(String[] row, int[] lengths) {
+        if (row == null) {
+            return;
+        }
+        int column = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] == GENERIC) {
+                lengths[i] = Math.max(row[column].length(), lengths[i]);
+            }
+            if (kinds[i] != STATIC) {
+                column ++;
+            }
+        }
+    }
+
+    /**
+     * @return a new renderer for rows of this layout. Renderers keep the buffers into which rows are rendered, and
+     * should not be shared among threads.
+     */
+    Renderer newRenderer() {
+        return new Renderer();
+    }
+
+    private static void repeat(StringBuilder builder, char[] characters, int count) {
+        while (count > 0) {
+            final int length = Math.min(count, characters.length);
+            builder.append(characters, 0, length);
+            count -= length;
+        }
+    }
+
+    /**
+     * Renders the contents of a cell, as it is to be laid out over the lines of its row. Wrapped cells are rendered
+     * by the {@link Renderer} itself.
+     * @param i          the position of the column
+     * @param input      the contents of the cell
+     * @param length     the width of the column
+     * @param cell       the buffer to which the cell is rendered
+     */
+    private void render(int i, String input, int length, StringBuilder cell) {
+        final byte kind = kinds[i];
+        final int width = kind == GENERIC ? length : widths[i];
+        final int visible = Math.min(input.length(), width);
+        final int padding = kind == GENERIC ? 0 : width - visible;
+        if (kind == CENTER) {
+            repeat(cell, SPACES, padding / 2);
+        } else if (kind == RIGHT) {
+            repeat(cell, SPACES, padding);
+        }
+        cell.append(input, 0, visible);
+        if (kind == CENTER) {
+            repeat(cell, SPACES, padding - padding / 2);
+        } else if (kind == LEFT) {
+            repeat(cell, SPACES, padding);
+        }
+    }
+
+    /**
+     * @param text        the text
+     * @param position    the position
+     * @return the length of the line break starting at the given position, or {@code 0} if there is none. Line breaks
+     * are any of {@code \r\n}, {@code \n\r}, {@code \n}, and {@code \r}.
+     */
+    private static int getBreak(CharSequence text, int position) {
+        final char character = text.charAt(position);
+        if (character != '\n' && character != '\r') {
+            return 0;
+        }
+        if (position + 1 < text.length()) {
+            final char next = text.charAt(position + 1);
+            if (next != character && (next == '\n' || next == '\r')) {
+                return 2;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @param text    the text
+     * @return the number of lines in the text, not counting any empty lines at its end
+     */
+    private static int getSpan(CharSequence text) {
+        int lines = 1;
+        int line = 0;
+        boolean empty = true;
+        int i = 0;
+        while (i < text.length()) {
+            final int breaking = getBreak(text, i);
+            if (breaking == 0) {
+                empty = false;
+                i ++;
+                continue;
+            }
+            if (!empty) {
+                lines = line + 1;
+            }
+            line ++;
+            empty = true;
+            i += breaking;
+        }
+        return empty ? lines : line + 1;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * The renderer renders rows of the layout, spanning as many lines as the tallest of their cells
+     */
+    final class Renderer {
+
+        private final StringBuilder[] cells = new StringBuilder[kinds.length];
+        private final TextWrapper[] wrappers = new TextWrapper[kinds.length];
+        private final int[] positions = new int[kinds.length];
+        private final int[] ends = new int[kinds.length];
+        private final StringBuilder line = new StringBuilder();
+
+        private Renderer() {
+            for (int i = 0; i < kinds.length; i++) {
+                if (kinds[i] != STATIC) {
+                    cells[i] = new StringBuilder();
+                }
+                if (kinds[i] == WRAP) {
+                    wrappers[i] = new TextWrapper(cells[i], widths[i], 0);
+                }
+            }
+        }
+
+        /**
+         * Will render a single row, or a horizontal line
+         * @param row        the row, or {@code null} for a horizontal line
+         * @param lengths    the widths of the columns. Cells which do not fit the width of their column are
+         *                   truncated.
+         * @param output     the output to which the row is written
+         * @throws IOException if the row cannot be written to the output
+         * @see #getWidths()
+         * @see #measure(String[], int[])
+         */
+        void draw(String[] row, int[] lengths, Appendable output) throws IOException {
+            line.setLength(0);
+            if (row == null) {
+                for (int i = 0; i < kinds.length; i++) {
+                    if (kinds[i] == STATIC) {
+                        line.append(rules[i]);
+                    } else {
+                        repeat(line, DASHES, lengths[i]);
+                    }
+                }
+                output.append(line.append('\n'));
+                return;
+            }
+            int span = 1;
+            int column = 0;
+            for (int i = 0; i < kinds.length; i++) {
+                if (kinds[i] == STATIC) {
+                    continue;
+                }
+                final StringBuilder cell = cells[i];
+                cell.setLength(0);
+                int start = 0;
+                if (kinds[i] == WRAP) {
+                    wrappers[i].print(row[column ++]);
+                    while (start < cell.length() && cell.charAt(start) <= ' ') {
+                        start ++;
+                    }
+                } else {
+                    render(i, row[column ++], lengths[i], cell);
+                }
+                int end = cell.length();
+                while (end > start && cell.charAt(end - 1) <= ' ') {
+                    end --;
+                }
+                if (kinds[i] == WRAP) {
+                    cell.setLength(end);
+                    cell.delete(0, start);
+                    end -= start;
+                }
+                ends[i] = end;
+                positions[i] = 0;
+                span = Math.max(span, getSpan(cell));
+            }
+            for (int current = 0; current < span; current++) {
+                line.setLength(0);
+                for (int i = 0; i < kinds.length; i++) {
+                    if (kinds[i] == STATIC) {
+                        line.append(separators[i]);
+                    } else if (positions[i] < 0) {
+                        repeat(line, SPACES, lengths[i]);
+                    } else {
+                        drawLine(i, current == 0, lengths[i]);
+                    }
+                }
+                output.append(line.append('\n'));
+            }
+        }
+
+        /**
+         * Draws the next line of a cell. The first line is drawn as it is, while the lines after it have any
+         * whitespace before them, and the last line any whitespace after it, trimmed.
+         */
+        private void drawLine(int i, boolean first, int length) {
+            final StringBuilder cell = cells[i];
+            final int start = positions[i];
+            int breaking = start;
+            while (breaking < cell.length() && getBreak(cell, breaking) == 0) {
+                breaking ++;
+            }
+            final int end = first ? breaking : Math.min(breaking, ends[i]);
+            line.append(cell, start, end);
+            repeat(line, SPACES, length - (end - start));
+            int next = breaking < cell.length() ? breaking + getBreak(cell, breaking) : breaking;
+            while (next < ends[i] && cell.charAt(next) <= ' ') {
+                next ++;
+            }
+            positions[i] = next < ends[i] ? next : -1;
+        }
+
+    }
+
+}
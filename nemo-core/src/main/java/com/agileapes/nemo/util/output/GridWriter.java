@@ -0,0 +1,252 @@
+package com.agileapes.nemo.util.output;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The grid writer draws a {@link Grid} row by row, writing each row to the output as soon as it has been added, rather
+ * than keeping all the rows until the grid is drawn. It accepts the same patterns and layouts as {@link Grid}.
+ *
+ * Grids made up only of columns of a fixed width are written out right away. Columns whose width depends on their
+ * contents ({@code *}) are sized in one of two ways:
+ *
+ * <ul>
+ *     <li>by a sample, in which case the rows are held back until the given number of rows has been added, the widths
+ *     are fixed to fit those rows, and every row from then on is written out right away, with any cell which does
+ *     not fit the width of its column truncated;</li>
+ *     <li>exactly ({@link #EXACT}), in which case the rows are held back until the writer is {@link #close() closed}, so
+ *     that every column is as wide as its widest cell. Once more than {@link #DEFAULT_SAMPLE} rows have been added,
+ *     the rows are spilled to a temporary file, which is read back and deleted once the writer is closed, so that
+ *     the rows do not have to be kept in memory.</li>
+ * </ul>
+ *
+ * The writer must always be closed, preferably in a {@code finally} block, to write out the rows it is still holding
+ * back and to remove the temporary file, which is never removed unless the writer is closed. Closing the writer does
+ * not close the output.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/23, 14:00)
+ */
+public class GridWriter implements Flushable, Closeable {
+
+    /**
+     * The number of rows sampled to size the columns, unless otherwise specified
+     */
+    public static final int DEFAULT_SAMPLE = 1000;
+
+    /**
+     * Sizes the columns to fit all the rows added to the grid
+     */
+    public static final int EXACT = -1;
+
+    private static final String CHARSET = "UTF-8";
+    private final GridLayout layout;
+    private final GridLayout.Renderer renderer;
+    private final Appendable output;
+    private final int sample;
+    private final int[] lengths;
+    private final List<String[]> rows = new ArrayList<String[]>();
+    private Spill spill;
+    private boolean started;
+
+    /**
+     * Creates a writer which sizes the columns by the first {@link #DEFAULT_SAMPLE} rows
+     * @param pattern    the pattern of the grid
+     * @param output     the output to which the rows are written
+     */
+    public GridWriter(String pattern, Appendable output) {
+        this(GridLayout.compile(pattern), output, DEFAULT_SAMPLE);
+    }
+
+    /**
+     * Creates a writer which sizes the columns by the first {@link #DEFAULT_SAMPLE} rows
+     * @param layout    the compiled layout of the grid
+     * @param output    the output to which the rows are written
+     */
+    public GridWriter(GridLayout layout, Appendable output) {
+        this(layout, output, DEFAULT_SAMPLE);
+    }
+
+    /**
+     * @param pattern    the pattern of the grid
+     * @param output     the output to which the rows are written
+     * @param sample     the number of rows by which the columns are sized, or {@link #EXACT} to size them by all the
+     *                   rows
+     * @throws IllegalArgumentException if the sample is negative, and is not {@link #EXACT}
+     */
+    public GridWriter(String pattern, Appendable output, int sample) {
+        this(GridLayout.compile(pattern), output, sample);
+    }
+
+    /**
+     * @param layout    the compiled layout of the grid
+     * @param output    the output to which the rows are written
+     * @param sample    the number of rows by which the columns are sized, or {@link #EXACT} to size them by all the
+     *                  rows
+     * @throws IllegalArgumentException if the sample is negative, and is not {@link #EXACT}
+     */
+    public GridWriter(GridLayout layout, Appendable output, int sample) {
+        if (sample < 0 && sample != EXACT) {
+            throw new IllegalArgumentException("Invalid sample size: " + sample);
+        }
+        this.layout = layout;
+        this.renderer = layout.newRenderer();
+        this.output = output;
+        this.sample = sample;
+        this.lengths = layout.getWidths();
+        this.started = sample == 0 || !layout.isAutomatic();
+    }
+
+    /**
+     * Adds a row to the grid, writing it out if the columns have already been sized
+     * @param input    the cells, which must match the pattern of the grid
+     * @throws IOException if the row cannot be written to the output or spilled to disk
+     */
+    public void add(String ... input) throws IOException {
+        layout.check(input);
+        write(input);
+    }
+
+    /**
+     * Adds a horizontal line to the grid
+     * @throws IOException if the line cannot be written to the output or spilled to disk
+     */
+    public void line() throws IOException {
+        write(null);
+    }
+
+    private void write(String[] row) throws IOException {
+        if (started) {
+            renderer.draw(row, lengths, output);
+            return;
+        }
+        layout.measure(row, lengths);
+        if (spill != null) {
+            spill.write(row);
+            return;
+        }
+        rows.add(row);
+        if (sample == EXACT && rows.size() > DEFAULT_SAMPLE) {
+            spill = new Spill();
+            for (String[] held : rows) {
+                spill.write(held);
+            }
+            rows.clear();
+        } else if (sample != EXACT && rows.size() >= sample) {
+            start();
+        }
+    }
+
+    /**
+     * Fixes the widths of the columns, and writes out the rows held back so far
+     */
+    private void start() throws IOException {
+        started = true;
+        for (String[] row : rows) {
+            renderer.draw(row, lengths, output);
+        }
+        rows.clear();
+    }
+
+    /**
+     * Flushes the output, if it can be flushed. Rows held back to size the columns are not written out.
+     * @throws IOException if the output cannot be flushed
+     */
+    @Override
+    public void flush() throws IOException {
+        if (output instanceof Flushable) {
+            ((Flushable) output).flush();
+        }
+    }
+
+    /**
+     * Writes out all the rows still held back, and flushes the output
+     * @throws IOException if the rows cannot be written, or read back from the disk
+     */
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            final Spill spilled = spill;
+            spill = null;
+            started = true;
+            try {
+                spilled.replay(this);
+            } finally {
+                spilled.delete();
+            }
+        } else if (!started) {
+            start();
+        }
+        flush();
+    }
+
+    /**
+     * The spill is the temporary file to which the rows are written once there are too many of them to keep in
+     * memory. Each row is written as its number of cells (or {@code -1} for a horizontal line), followed by the
+     * length of each cell in bytes and the cell itself, encoded as UTF-8.
+     */
+    private static class Spill {
+
+        private final File file;
+        private final DataOutputStream output;
+        private long size = 0;
+
+        private Spill() throws IOException {
+            file = File.createTempFile("nemo-grid", ".tmp");
+            try {
+                output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            } catch (IOException e) {
+                file.delete();
+                throw e;
+            }
+        }
+
+        private void write(String[] row) throws IOException {
+            if (row == null) {
+                output.writeInt(-1);
+            } else {
+                output.writeInt(row.length);
+                for (String cell : row) {
+                    final byte[] bytes = cell.getBytes(CHARSET);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+            }
+            size ++;
+        }
+
+        /**
+         * Writes all the spilled rows out through the given writer
+         */
+        private void replay(GridWriter writer) throws IOException {
+            output.close();
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                for (long i = 0; i < size; i++) {
+                    final int count = input.readInt();
+                    if (count < 0) {
+                        writer.write(null);
+                        continue;
+                    }
+                    final String[] row = new String[count];
+                    for (int j = 0; j < count; j++) {
+                        final byte[] bytes = new byte[input.readInt()];
+                        input.readFully(bytes);
+                        row[j] = new String(bytes, CHARSET);
+                    }
+                    writer.write(row);
+                }
+            } finally {
+                input.close();
+            }
+        }
+
+        private void delete() throws IOException {
+            output.close();
+            file.delete();
+        }
+
+    }
+
+}
@@ -0,0 +1,297 @@
+package com.agileapes.nemo.util.output;
+
+import java.io.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The output sink is the output handed to actions in place of the raw output of the application. Rather than pushing
+ * every line to its target as soon as it has been printed, the sink gathers the encoded output in large buffers, and
+ * only writes a buffer to the target once it is full, or once the sink is flushed. The line separator is encoded once,
+ * when the sink is created, rather than every time a line is ended.
+ *
+ * The buffers can be written either on the thread printing to the sink, or on a writer thread of the sink's own. In
+ * the latter case, full buffers are queued for the writer, and at most {@code backlog} of them can be waiting to be
+ * written before printing to the sink blocks, so that an action producing output faster than it can be written does
+ * not pile it up in memory. Should the writer fail, the output printed from then on is discarded, and the failure is
+ * reported through {@link #checkError()}.
+ *
+ * Flushing the sink writes out everything printed so far, and waits for it to reach the target, so that anything
+ * printed to the sink is in order with anything printed straight to the target after the sink has been flushed.
+ * Closing the sink flushes it and stops its writer, but does not close the target.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/23, 20:00)
+ */
+public class OutputSink extends PrintStream {
+
+    /**
+     * The system property setting the backlog of the sink writing to the standard output, see
+     * {@link #forStandardOutput()}
+     */
+    public static final String BACKLOG_PROPERTY = "nemo.output.backlog";
+
+    /**
+     * The size of the buffers of the sink, unless otherwise specified
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final byte[] lineSeparator;
+
+    /**
+     * Creates a sink writing to the target on the thread printing to it, through a single buffer of
+     * {@link #DEFAULT_BUFFER_SIZE} bytes
+     * @param target    the target
+     */
+    public OutputSink(OutputStream target) {
+        this(target, DEFAULT_BUFFER_SIZE, 0);
+    }
+
+    /**
+     * @param target        the target
+     * @param bufferSize    the size of each buffer, in bytes
+     * @param backlog       the largest number of full buffers waiting to be written to the target, or {@code 0} if
+     *                      the buffers are to be written on the thread printing to the sink
+     */
+    public OutputSink(OutputStream target, int bufferSize, int backlog) {
+        super(new Channel(target, bufferSize, backlog), false);
+        this.lineSeparator = System.getProperty("line.separator").getBytes();
+    }
+
+    /**
+     * @param target        the target
+     * @param bufferSize    the size of each buffer, in bytes
+     * @param backlog       the largest number of full buffers waiting to be written to the target, or {@code 0} if
+     *                      the buffers are to be written on the thread printing to the sink
+     * @param encoding      the name of the character encoding of the output
+     * @throws UnsupportedEncodingException if the encoding is not supported
+     */
+    public OutputSink(OutputStream target, int bufferSize, int backlog, String encoding) throws UnsupportedEncodingException {
+        super(new Channel(target, bufferSize, backlog), false, encoding);
+        this.lineSeparator = System.getProperty("line.separator").getBytes(encoding);
+    }
+
+    /**
+     * @return a new sink writing to the standard output, with the backlog given through {@link #BACKLOG_PROPERTY}
+     * ({@code 0}, i.e. no writer thread, by default)
+     */
+    public static OutputSink forStandardOutput() {
+        return new OutputSink(System.out, DEFAULT_BUFFER_SIZE, Integer.getInteger(BACKLOG_PROPERTY, 0));
+    }
+
+    @Override
+    public void println() {
+        write(lineSeparator, 0, lineSeparator.length);
+    }
+
+    @Override
+    public void println(String x) {
+        synchronized (this) {
+            print(x);
+            println();
+        }
+    }
+
+    @Override
+    public void println(Object x) {
+        final String value = String.valueOf(x);
+        synchronized (this) {
+            print(value);
+            println();
+        }
+    }
+
+    /**
+     * A chunk of output handed to the writer thread. Chunks without data stand for requests to flush the target, or,
+     * once the sink is closed, to stop the writer.
+     */
+    private static class Chunk {
+
+        private final byte[] data;
+        private final int length;
+        private final CountDownLatch done;
+        private final boolean last;
+
+        private Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+            this.done = null;
+            this.last = false;
+        }
+
+        private Chunk(boolean last) {
+            this.data = null;
+            this.length = 0;
+            this.done = new CountDownLatch(1);
+            this.last = last;
+        }
+
+    }
+
+    /**
+     * The channel is the stream underlying the sink, which gathers the encoded output and hands it to the target,
+     * either directly or through the writer thread
+     */
+    private static class Channel extends OutputStream implements Runnable {
+
+        private final OutputStream target;
+        private final int size;
+        private final BlockingQueue<Chunk> pending;
+        private final BlockingQueue<byte[]> recycled;
+        private final Thread writer;
+        private byte[] buffer;
+        private int count = 0;
+        private volatile IOException failure;
+
+        private Channel(OutputStream target, int size, int backlog) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("Buffer size must be positive: " + size);
+            }
+            this.target = target;
+            this.size = size;
+            this.buffer = new byte[size];
+            if (backlog > 0) {
+                pending = new ArrayBlockingQueue<Chunk>(backlog);
+                recycled = new ArrayBlockingQueue<byte[]>(backlog + 1);
+                writer = new Thread(this, "nemo-output");
+                writer.setDaemon(true);
+                writer.start();
+            } else {
+                pending = null;
+                recycled = null;
+                writer = null;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                handOff();
+            }
+            buffer[count ++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    handOff();
+                }
+                final int copied = Math.min(length, buffer.length - count);
+                System.arraycopy(bytes, offset, buffer, count, copied);
+                count += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        /**
+         * Hands the buffer to the target, and starts a new one
+         */
+        private void handOff() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            if (writer == null) {
+                target.write(buffer, 0, count);
+                count = 0;
+                return;
+            }
+            check();
+            enqueue(new Chunk(buffer, count));
+            final byte[] next = recycled.poll();
+            buffer = next != null ? next : new byte[size];
+            count = 0;
+        }
+
+        private void enqueue(Chunk chunk) throws IOException {
+            try {
+                pending.put(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the output to be written");
+            }
+        }
+
+        private void await(Chunk chunk) throws IOException {
+            try {
+                chunk.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the output to be written");
+            }
+        }
+
+        private void check() throws IOException {
+            final IOException failure = this.failure;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            handOff();
+            if (writer == null) {
+                target.flush();
+                return;
+            }
+            final Chunk request = new Chunk(false);
+            enqueue(request);
+            await(request);
+            check();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer == null) {
+                flush();
+                return;
+            }
+            if (!writer.isAlive()) {
+                return;
+            }
+            handOff();
+            final Chunk request = new Chunk(true);
+            enqueue(request);
+            await(request);
+            check();
+        }
+
+        /**
+         * The loop of the writer thread
+         */
+        @Override
+        public void run() {
+            while (true) {
+                final Chunk chunk;
+                try {
+                    chunk = pending.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    if (chunk.data != null) {
+                        if (failure == null) {
+                            target.write(chunk.data, 0, chunk.length);
+                        }
+                        recycled.offer(chunk.data);
+                    } else if (failure == null) {
+                        target.flush();
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                }
+                if (chunk.done != null) {
+                    chunk.done.countDown();
+                }
+                if (chunk.last) {
+                    return;
+                }
+            }
+        }
+
+    }
+
+}
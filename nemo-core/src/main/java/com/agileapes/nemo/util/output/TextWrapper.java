@@ -1,70 +1,270 @@
 package com.agileapes.nemo.util.output;
 
-import org.apache.commons.lang.StringUtils;
-
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Reader;
 
 /**
  * This class helps with hard-wrapping text so that it can be printed in an environment with
  * limited display width.
  *
+ * The text is read once, from start to end, and each line is justified and written to the output as soon as the text
+ * following it has been read far enough to tell where the line breaks. At most a couple of lines' worth of the text
+ * is held at any time (whitespace beyond that is squeezed, as it could never be part of a line), so that wrapping
+ * takes time linear in the length of the text, and memory bound by the width of the lines, whether the text is given
+ * as a {@link CharSequence} or read from a {@link Reader}.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (6/17/13, 4:10 PM)
  */
 public class TextWrapper {
 
     private static final String STOP_CHARS = " \t\r\n,./`~=+-|\\[]{}";
-    private final PrintStream output;
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final int BLOCK_SIZE = 8192;
+    private final Appendable output;
     private final int width;
     private final int indentation;
 
     public TextWrapper(PrintStream output, int width, int indentation) {
+        this((Appendable) output, width, indentation);
+    }
+
+    public TextWrapper(Appendable output, int width, int indentation) {
         this.output = output;
         this.width = width;
         this.indentation = indentation;
     }
 
-    public void print(String text) {
+    /**
+     * The source of the text being wrapped
+     */
+    private static abstract class Source {
+
+        /**
+         * @return the next character, or {@code -1} if the text has been exhausted
+         */
+        abstract int read() throws IOException;
+
+    }
+
+    private static class SequenceSource extends Source {
+
+        private final CharSequence text;
+        private int position = 0;
+
+        private SequenceSource(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        int read() {
+            return position < text.length() ? text.charAt(position ++) : -1;
+        }
+
+    }
+
+    private static class ReaderSource extends Source {
+
+        private final Reader reader;
+        private final char[] block = new char[BLOCK_SIZE];
+        private int position = 0;
+        private int limit = 0;
+
+        private ReaderSource(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        int read() throws IOException {
+            while (position == limit) {
+                limit = reader.read(block);
+                position = 0;
+                if (limit < 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return block[position ++];
+        }
+
+    }
+
+    /**
+     * Wraps the text, writing it to the output
+     * @param text    the text
+     */
+    public void print(CharSequence text) {
+        try {
+            wrap(new SequenceSource(text));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write wrapped text to the output", e);
+        }
+    }
+
+    /**
+     * Wraps the text read from the reader, writing it to the output. The reader is read through to its end, but is
+     * not closed.
+     * @param reader    the reader
+     * @throws IOException if the text cannot be read, or written to the output
+     */
+    public void print(Reader reader) throws IOException {
+        wrap(new ReaderSource(reader));
+    }
+
+    private static boolean isStop(char character) {
+        return STOP_CHARS.indexOf(character) >= 0;
+    }
+
+    private static boolean isBlank(char character) {
+        return character <= ' ';
+    }
+
+    /**
+     * @return {@code true} if the character separates the words of a line being justified, i.e. it matches
+     * {@code \s}
+     */
+    private static boolean isSpace(char character) {
+        return character == ' ' || character == '\t' || character == '\n' || character == '\u000B'
+                || character == '\f' || character == '\r';
+    }
+
+    private void wrap(Source source) throws IOException {
+        final StringBuilder text = new StringBuilder();
+        //the text is only trimmed once the first line has been cut from it
+        boolean exhausted = fill(source, text, false);
         while (text.length() > width) {
             int i = width;
-            while (i > 0 && !STOP_CHARS.contains(String.valueOf(text.charAt(i)))) {
+            while (i > 0 && !isStop(text.charAt(i))) {
                 i --;
             }
             if (i == 0) {
                 i = width - 1;
             }
-            String line = text.substring(0, i);
-            if (line.length() < width) {
-                final String[] split = line.split("\\s+");
-                final int spaces = split.length - 1;
-                if (spaces > 0) {
-                    int difference = width - line.length();
-                    final String pad = StringUtils.repeat(" ", Math.max(1, (int) Math.round((double) difference / spaces)));
-                    line = "";
-                    for (int j = 0; j < split.length - 1; j ++) {
-                        line += split[j] + pad;
-                        difference -= pad.length();
-                        if (j == split.length - 2) {
-                            if (difference > 0) {
-                                line += StringUtils.repeat(" ", difference);
-                            }
-                            line += split[split.length - 1];
-                        }
-                    }
+            justify(text, i);
+            if (!isStop(text.charAt(i))) {
+                output.append('-');
+            }
+            int start = i;
+            while (start < text.length() && isBlank(text.charAt(start))) {
+                start ++;
+            }
+            text.delete(0, start);
+            if (!exhausted) {
+                exhausted = fill(source, text, true);
+            }
+            if (exhausted) {
+                trimEnd(text);
+            }
+            if (text.length() > 0) {
+                output.append(LINE_SEPARATOR);
+                for (int j = 0; j < indentation; j++) {
+                    output.append(' ');
                 }
             }
-            output.print(line);
-            if (!STOP_CHARS.contains(String.valueOf(text.charAt(i)))) {
-                output.print("-");
+        }
+        if (text.length() > 0) {
+            trimEnd(text);
+            int start = 0;
+            while (start < text.length() && isBlank(text.charAt(start))) {
+                start ++;
+            }
+            output.append(text, start, text.length()).append(LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * Reads the text until there is more than a line's worth of it, ending with a character which is not blank, or
+     * until the text has been exhausted. Whitespace running longer than a line is squeezed to the length of a line.
+     * @param source     the source of the text
+     * @param text       the text read so far
+     * @param trimmed    whether or not the text is to be trimmed, in which case blank text at its start is skipped,
+     *                   and text which is blank up to its end does not count
+     * @return {@code true} if the text has been exhausted
+     */
+    private boolean fill(Source source, StringBuilder text, boolean trimmed) throws IOException {
+        int run = 0;
+        while (run < text.length() && isBlank(text.charAt(text.length() - 1 - run))) {
+            run ++;
+        }
+        while (text.length() <= width || trimmed && run > 0) {
+            final int read = source.read();
+            if (read < 0) {
+                return true;
+            }
+            final char character = (char) read;
+            if (trimmed && text.length() == 0 && isBlank(character)) {
+                continue;
             }
-            text = text.substring(i).trim();
-            if (!text.isEmpty()) {
-                output.println();
-                output.print(StringUtils.repeat(" ", indentation));
+            if (!isBlank(character)) {
+                run = 0;
+            } else if (run ++ > width) {
+                continue;
             }
+            text.append(character);
         }
-        if (!text.isEmpty()) {
-            output.println(text.trim());
+        return false;
+    }
+
+    private static void trimEnd(StringBuilder text) {
+        int end = text.length();
+        while (end > 0 && isBlank(text.charAt(end - 1))) {
+            end --;
+        }
+        text.setLength(end);
+    }
+
+    /**
+     * Writes the first {@code length} characters of the text as a single line, spreading its words so that the line
+     * spans the whole width, unless it already does
+     */
+    private void justify(CharSequence text, int length) throws IOException {
+        if (length >= width) {
+            output.append(text, 0, length);
+            return;
+        }
+        //the line is broken into segments as `split("\\s+")` would, i.e. with a leading empty segment if the line
+        //starts with whitespace, and with no segments for the whitespace at its end
+        int words = 0;
+        for (int i = 0; i < length; i++) {
+            if (!isSpace(text.charAt(i)) && (i == 0 || isSpace(text.charAt(i - 1)))) {
+                words ++;
+            }
+        }
+        final boolean leading = length > 0 && isSpace(text.charAt(0));
+        final int segments = words == 0 ? (length == 0 ? 1 : 0) : words + (leading ? 1 : 0);
+        final int spaces = segments - 1;
+        if (spaces <= 0) {
+            output.append(text, 0, length);
+            return;
+        }
+        int difference = width - length;
+        final int pad = Math.max(1, (int) Math.round((double) difference / spaces));
+        int position = 0;
+        for (int segment = 0; segment < segments; segment++) {
+            int end = position;
+            while (end < length && !isSpace(text.charAt(end))) {
+                end ++;
+            }
+            output.append(text, position, end);
+            if (segment == segments - 1) {
+                break;
+            }
+            pad(pad);
+            difference -= pad;
+            if (segment == segments - 2 && difference > 0) {
+                pad(difference);
+            }
+            position = end;
+            while (position < length && isSpace(text.charAt(position))) {
+                position ++;
+            }
+        }
+    }
+
+    private void pad(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            output.append(' ');
         }
     }
 
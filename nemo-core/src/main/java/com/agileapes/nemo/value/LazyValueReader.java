@@ -0,0 +1,116 @@
+package com.agileapes.nemo.value;
+
+import com.agileapes.couteau.context.error.RegistryException;
+import com.agileapes.couteau.context.value.ValueReader;
+import com.agileapes.couteau.context.value.ValueReaderContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The lazy value reader stands in for the value reader context of the executor context, and holds off the creation and
+ * registration of the default value readers until a value reader is actually needed, which is either when a value of
+ * a type not covered by {@link ValueConverters} is read, when a converter fails to read a value, or when another value
+ * reader is registered. The default readers are always registered ahead of any other reader, so that they take
+ * precedence just as they would had they been registered up front.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/21, 10:20)
+ */
+public class LazyValueReader implements ValueReader {
+
+    private static final Log log = LogFactory.getLog(LazyValueReader.class);
+    private final ValueReaderContext context;
+    private final Registrar registrar;
+    private final List<ValueReader> readers = new CopyOnWriteArrayList<ValueReader>();
+    private volatile boolean initialized = false;
+    private boolean initializing = false;
+
+    /**
+     * Registers the value readers handed to it with the value reader context
+     */
+    public interface Registrar {
+
+        void register(ValueReader reader) throws RegistryException;
+
+    }
+
+    /**
+     * @param context      the value reader context
+     * @param registrar    the registrar through which the default readers are registered with the context
+     */
+    public LazyValueReader(ValueReaderContext context, Registrar registrar) {
+        this.context = context;
+        this.registrar = registrar;
+    }
+
+    /**
+     * Will create and register the default value readers, unless they have already been registered
+     */
+    public void initialize() {
+        if (initialized) {
+            return;
+        }
+        synchronized (this) {
+            //the registration of a default reader may well call back into this reader on the same thread
+            if (initialized || initializing) {
+                return;
+            }
+            initializing = true;
+            try {
+                log.debug("Registering the default value readers");
+                for (ValueReader reader : ValueConverters.getDefaultReaders()) {
+                    try {
+                        registrar.register(reader);
+                    } catch (RegistryException e) {
+                        log.error("Failed to register value reader " + reader.getClass().getName() + ": " + e.getMessage());
+                    }
+                }
+                //only published once all the default readers are in place, so that no other thread goes past the
+                //check above while they are still being registered
+                initialized = true;
+            } finally {
+                initializing = false;
+            }
+        }
+    }
+
+    /**
+     * Will keep track of a value reader registered with the context, so that it can be {@link #find(Class) found}
+     * without going through the context
+     * @param reader    the reader
+     */
+    public void added(ValueReader reader) {
+        readers.add(reader);
+    }
+
+    /**
+     * @param type    the type
+     * @return the reader which the context would use for reading values of the given type, or {@code null} if that
+     * cannot be determined without going through the context
+     */
+    public ValueReader find(Class<?> type) {
+        initialize();
+        for (ValueReader reader : readers) {
+            if (reader.handles(type)) {
+                return reader;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean handles(Class<?> type) {
+        initialize();
+        return context.handles(type);
+    }
+
+    @Override
+    public <E> E read(String text, Class<E> type) {
+        initialize();
+        return context.read(text, type);
+    }
+
+}
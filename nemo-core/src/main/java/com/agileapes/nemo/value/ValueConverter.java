@@ -0,0 +1,20 @@
+package com.agileapes.nemo.value;
+
+/**
+ * A value converter turns the textual value of an option into a value of the one type it was compiled for. Converters
+ * are compiled once for each type of option (see {@link ValueConverters}), so that binding an option does not involve
+ * looking for a value reader able to handle its type.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/21, 10:00)
+ */
+public interface ValueConverter {
+
+    /**
+     * @param text    the textual value
+     * @return the converted value
+     * @throws Exception if the value cannot be converted
+     */
+    Object convert(String text) throws Exception;
+
+}
@@ -0,0 +1,223 @@
+package com.agileapes.nemo.value;
+
+import com.agileapes.couteau.context.value.ValueReader;
+import com.agileapes.couteau.context.value.impl.*;
+import com.agileapes.nemo.exec.ClientEnvironment;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class compiles {@link ValueConverter value converters} for option types.
+ *
+ * Strings, primitives and their wrappers, enums, files, and URLs, all of which are handled by the default value readers
+ * (which always take precedence over readers registered later on) are converted directly, with enum constants looked up
+ * through a table built once for each enum, by their name or, failing that, by their name regardless of case (unless
+ * that would be ambiguous). Should the direct conversion fail, the value is handed to the value reader
+ * instead, so that values accepted by the readers but not by the direct conversion are still accepted. Values of any
+ * other type are read by the value reader handling that type, which is looked up once, the first time it is needed.
+ *
+ * Relative paths given to options of the types {@link File} and {@link URL} are resolved against the working directory
+ * of the client on whose behalf the option is being bound (see {@link ClientEnvironment#current()}), which is not
+ * necessarily that of the current JVM.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/21, 10:40)
+ */
+public final class ValueConverters {
+
+    private ValueConverters() {
+    }
+
+    /**
+     * @return new instances of the value readers every executor context starts out with
+     */
+    public static List<ValueReader> getDefaultReaders() {
+        return Arrays.<ValueReader>asList(new ClassValueReader(), new DateValueReader(), new EnumValueReader(),
+                new FileValueReader(), new PrimitiveValueReader(), new UrlValueReader());
+    }
+
+    /**
+     * @param type      the type of the option
+     * @param reader    the value reader through which values are read when they cannot be converted directly
+     * @return the converter
+     */
+    public static ValueConverter compile(final Class<?> type, final ValueReader reader) {
+        final ValueConverter direct = getDirectConverter(type);
+        final ValueConverter fallback = getReaderConverter(type, reader);
+        if (direct == null) {
+            return fallback;
+        }
+        return new ValueConverter() {
+            @Override
+            public Object convert(String text) throws Exception {
+                final Object converted;
+                try {
+                    converted = direct.convert(text);
+                } catch (Exception e) {
+                    return fallback.convert(text);
+                }
+                return converted == null ? fallback.convert(text) : converted;
+            }
+        };
+    }
+
+    private static ValueConverter getReaderConverter(final Class<?> type, final ValueReader reader) {
+        if (reader instanceof LazyValueReader) {
+            //we resolve the converter lazily, so that the default readers are only created if needed
+            return new ValueConverter() {
+
+                private volatile ValueReader resolved;
+
+                @Override
+                public Object convert(String text) throws Exception {
+                    ValueReader target = resolved;
+                    if (target == null) {
+                        target = ((LazyValueReader) reader).find(type);
+                        resolved = target = target == null ? reader : target;
+                    }
+                    return target.read(text, type);
+                }
+
+            };
+        }
+        return new ValueConverter() {
+            @Override
+            public Object convert(String text) throws Exception {
+                return reader.read(text, type);
+            }
+        };
+    }
+
+    /**
+     * @param type    the type
+     * @return a converter which converts the value without consulting a value reader, or {@code null} if there is
+     * no such converter for the type. The converter may return {@code null} if it cannot tell how the value should be
+     * converted.
+     */
+    private static ValueConverter getDirectConverter(final Class<?> type) {
+        if (String.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return text;
+                }
+            };
+        }
+        if (int.class.equals(type) || Integer.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return Integer.valueOf(text);
+                }
+            };
+        }
+        if (long.class.equals(type) || Long.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return Long.valueOf(text);
+                }
+            };
+        }
+        if (short.class.equals(type) || Short.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return Short.valueOf(text);
+                }
+            };
+        }
+        if (byte.class.equals(type) || Byte.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return Byte.valueOf(text);
+                }
+            };
+        }
+        if (double.class.equals(type) || Double.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return Double.valueOf(text);
+                }
+            };
+        }
+        if (float.class.equals(type) || Float.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return Float.valueOf(text);
+                }
+            };
+        }
+        if (boolean.class.equals(type) || Boolean.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    if ("true".equalsIgnoreCase(text)) {
+                        return Boolean.TRUE;
+                    } else if ("false".equalsIgnoreCase(text)) {
+                        return Boolean.FALSE;
+                    }
+                    return null;
+                }
+            };
+        }
+        if (char.class.equals(type) || Character.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return text.length() == 1 ? text.charAt(0) : null;
+                }
+            };
+        }
+        if (type.isEnum()) {
+            final Map<String, Object> constants = new HashMap<String, Object>();
+            final Map<String, Object> folded = new HashMap<String, Object>();
+            final Set<String> ambiguous = new HashSet<String>();
+            for (Object constant : type.getEnumConstants()) {
+                final String name = ((Enum) constant).name();
+                constants.put(name, constant);
+                final String key = name.toLowerCase(Locale.ENGLISH);
+                if (folded.put(key, constant) != null) {
+                    ambiguous.add(key);
+                }
+            }
+            folded.keySet().removeAll(ambiguous);
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    final Object constant = constants.get(text);
+                    return constant != null ? constant : folded.get(text.toLowerCase(Locale.ENGLISH));
+                }
+            };
+        }
+        if (File.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return ClientEnvironment.current().resolve(text);
+                }
+            };
+        }
+        if (URL.class.equals(type)) {
+            return new ValueConverter() {
+                @Override
+                public Object convert(String text) throws Exception {
+                    return ClientEnvironment.current().resolveUrl(text);
+                }
+            };
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.agileapes.nemo.disassemble.impl;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/25, 12:20)
+ */
+public class DescriptorSnapshotTest {
+
+    private static final String STRATEGY = "sample.Strategy";
+    private File file;
+
+    public static class FirstAction {
+    }
+
+    public static class SecondAction {
+    }
+
+    public enum Level {
+        LOW, HIGH
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        file = File.createTempFile("nemo", ".snapshot");
+        Assert.assertTrue(file.delete());
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    private static DescriptorSnapshot.Option option() {
+        final Properties metadata = new Properties();
+        metadata.put("help", "The level");
+        metadata.put("default", Level.HIGH);
+        metadata.put("choices", new String[]{"low", "high"});
+        return new DescriptorSnapshot.Option("level", 'l', 2, true, Level.class, "field:level", metadata);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final DescriptorSnapshot snapshot = new DescriptorSnapshot(file);
+        snapshot.setOptions(FirstAction.class, STRATEGY, Arrays.asList(option(),
+                new DescriptorSnapshot.Option("count", null, null, false, int.class, "method:setCount", null)));
+        snapshot.setStrategy(SecondAction.class, STRATEGY);
+        Assert.assertTrue(snapshot.isDirty());
+        snapshot.flush();
+        Assert.assertFalse(snapshot.isDirty());
+        Assert.assertTrue(file.isFile());
+        final DescriptorSnapshot restored = new DescriptorSnapshot(file);
+        Assert.assertEquals(restored.getStrategy(FirstAction.class), STRATEGY);
+        Assert.assertEquals(restored.getStrategy(SecondAction.class), STRATEGY);
+        Assert.assertNull(restored.getOptions(SecondAction.class, STRATEGY));
+        Assert.assertNull(restored.getOptions(FirstAction.class, "other.Strategy"));
+        final List<DescriptorSnapshot.Option> options = restored.getOptions(FirstAction.class, STRATEGY);
+        Assert.assertNotNull(options);
+        Assert.assertEquals(options.size(), 2);
+        final DescriptorSnapshot.Option level = options.get(0);
+        Assert.assertEquals(level.getName(), "level");
+        Assert.assertEquals(level.getAlias(), (Character) 'l');
+        Assert.assertEquals(level.getIndex(), (Integer) 2);
+        Assert.assertTrue(level.isRequired());
+        Assert.assertEquals(level.getType(), Level.class);
+        Assert.assertEquals(level.getBinding(), "field:level");
+        Assert.assertEquals(level.getMetadata().get("help"), "The level");
+        Assert.assertEquals(level.getMetadata().get("default"), Level.HIGH);
+        Assert.assertEquals((Object[]) level.getMetadata().get("choices"), new String[]{"low", "high"});
+        final DescriptorSnapshot.Option count = options.get(1);
+        Assert.assertEquals(count.getName(), "count");
+        Assert.assertNull(count.getAlias());
+        Assert.assertNull(count.getIndex());
+        Assert.assertFalse(count.isRequired());
+        Assert.assertEquals(count.getType(), int.class);
+        Assert.assertEquals(count.getBinding(), "method:setCount");
+    }
+
+    @Test
+    public void testRepeatedFlush() throws Exception {
+        final DescriptorSnapshot snapshot = new DescriptorSnapshot(file);
+        snapshot.setOptions(FirstAction.class, STRATEGY, Collections.singletonList(option()));
+        snapshot.flush();
+        final DescriptorSnapshot reopened = new DescriptorSnapshot(file);
+        Assert.assertNotNull(reopened.getOptions(FirstAction.class, STRATEGY));
+        reopened.setStrategy(SecondAction.class, STRATEGY);
+        reopened.flush();
+        reopened.setStrategy(SecondAction.class, "other.Strategy");
+        reopened.flush();
+        Assert.assertEquals(reopened.getOptions(FirstAction.class, STRATEGY).size(), 1);
+        final DescriptorSnapshot restored = new DescriptorSnapshot(file);
+        Assert.assertEquals(restored.getOptions(FirstAction.class, STRATEGY).size(), 1);
+        Assert.assertEquals(restored.getStrategy(SecondAction.class), "other.Strategy");
+    }
+
+    @Test
+    public void testMissingFile() throws Exception {
+        final DescriptorSnapshot snapshot = new DescriptorSnapshot(file);
+        Assert.assertNull(snapshot.getStrategy(FirstAction.class));
+        Assert.assertNull(snapshot.getOptions(FirstAction.class, STRATEGY));
+        Assert.assertFalse(snapshot.isDirty());
+    }
+
+    @Test
+    public void testChangedClass() throws Exception {
+        final URL location = FirstAction.class.getResource("DescriptorSnapshotTest$FirstAction.class");
+        Assert.assertNotNull(location);
+        if (!"file".equals(location.getProtocol())) {
+            //the stamp is only taken for classes loaded from the file system
+            return;
+        }
+        final File classFile = new File(location.toURI());
+        final long modified = classFile.lastModified();
+        final DescriptorSnapshot snapshot = new DescriptorSnapshot(file);
+        snapshot.setStrategy(FirstAction.class, STRATEGY);
+        snapshot.flush();
+        try {
+            Assert.assertTrue(classFile.setLastModified(modified + 10000));
+            Assert.assertNull(new DescriptorSnapshot(file).getStrategy(FirstAction.class));
+        } finally {
+            classFile.setLastModified(modified);
+        }
+        Assert.assertEquals(new DescriptorSnapshot(file).getStrategy(FirstAction.class), STRATEGY);
+    }
+
+    @Test
+    public void testSharedFile() throws Exception {
+        final DescriptorSnapshot first = new DescriptorSnapshot(file);
+        final DescriptorSnapshot second = new DescriptorSnapshot(file);
+        Assert.assertNull(first.getStrategy(FirstAction.class));
+        Assert.assertNull(second.getStrategy(SecondAction.class));
+        first.setStrategy(FirstAction.class, STRATEGY);
+        second.setStrategy(SecondAction.class, STRATEGY);
+        first.flush();
+        //the second snapshot was loaded before the first was written out, and must not drop what it recorded
+        second.flush();
+        final DescriptorSnapshot restored = new DescriptorSnapshot(file);
+        Assert.assertEquals(restored.getStrategy(FirstAction.class), STRATEGY);
+        Assert.assertEquals(restored.getStrategy(SecondAction.class), STRATEGY);
+    }
+
+    @Test
+    public void testPruneUnusedClasspaths() throws Exception {
+        final File root = File.createTempFile("nemo", ".cache");
+        Assert.assertTrue(root.delete());
+        final long old = System.currentTimeMillis() - 60L * 24 * 60 * 60 * 1000;
+        final File unused = snapshotDirectory(root, "0123456789abcdef", old);
+        final File recent = snapshotDirectory(root, "fedcba9876543210", System.currentTimeMillis());
+        final File foreign = snapshotDirectory(root, "keep", old);
+        final String enabled = System.getProperty(DescriptorSnapshot.ENABLED_PROPERTY);
+        final String previous = System.getProperty(DescriptorSnapshot.DIRECTORY_PROPERTY);
+        System.setProperty(DescriptorSnapshot.ENABLED_PROPERTY, "true");
+        System.setProperty(DescriptorSnapshot.DIRECTORY_PROPERTY, root.getPath());
+        try {
+            final DescriptorSnapshot snapshot = DescriptorSnapshot.forClasspath();
+            snapshot.setStrategy(FirstAction.class, STRATEGY);
+            snapshot.flush();
+            Assert.assertFalse(unused.exists());
+            Assert.assertTrue(recent.isDirectory());
+            Assert.assertTrue(foreign.isDirectory());
+        } finally {
+            restore(DescriptorSnapshot.ENABLED_PROPERTY, enabled);
+            restore(DescriptorSnapshot.DIRECTORY_PROPERTY, previous);
+            delete(root);
+        }
+    }
+
+    private static void restore(String property, String value) {
+        if (value == null) {
+            System.clearProperty(property);
+        } else {
+            System.setProperty(property, value);
+        }
+    }
+
+    private static File snapshotDirectory(File root, String name, long modified) throws Exception {
+        final File directory = new File(root, name);
+        Assert.assertTrue(directory.mkdirs());
+        Assert.assertTrue(new File(directory, "old.snapshot").createNewFile());
+        Assert.assertTrue(directory.setLastModified(modified));
+        return directory;
+    }
+
+    private static void delete(File file) {
+        final File[] files = file.listFiles();
+        for (File child : files == null ? new File[0] : files) {
+            delete(child);
+        }
+        file.delete();
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.agileapes.nemo.exec;
+
+import com.agileapes.nemo.api.Command;
+import com.agileapes.nemo.error.BatchSyntaxException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/25, 12:40)
+ */
+public class BatchRunnerTest {
+
+    /**
+     * Prints its name once it has waited for the given delay, or fails if it has been told to
+     */
+    @Command("action --name [--delay] [--fail]")
+    public static class SleepAction {
+
+        private PrintStream output;
+        private String name;
+        private int delay;
+        private boolean fail;
+
+        public void execute() throws Exception {
+            Thread.sleep(delay);
+            if (fail) {
+                throw new IllegalStateException("failed " + name);
+            }
+            output.println(name);
+        }
+
+    }
+
+    private static String batch(int... delays) {
+        final StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < delays.length; i++) {
+            batch.append("sleep --name ").append((char) ('a' + i)).append(" --delay ").append(delays[i]).append("\n");
+        }
+        return batch.toString();
+    }
+
+    private static BatchRunner runner(int parallelism) throws Exception {
+        final ExecutorContext context = new ExecutorContext();
+        context.setDescriptorSnapshot(null);
+        context.addAction("sleep", SleepAction.class);
+        final BatchRunner runner = new BatchRunner(context);
+        runner.setParallelism(parallelism);
+        return runner;
+    }
+
+    @DataProvider
+    public Object[][] shellLines() {
+        return new Object[][]{
+                {"hello --name x", new String[]{"hello", "--name", "x"}},
+                {"  hello \t  world  ", new String[]{"hello", "world"}},
+                {"", new String[0]},
+                {"hello --name \"Good Guy\"", new String[]{"hello", "--name", "Good Guy"}},
+                {"hello 'Good Guy'", new String[]{"hello", "Good Guy"}},
+                {"a\"b c\"d", new String[]{"ab cd"}},
+                {"a \"\" ''", new String[]{"a", "", ""}},
+                {"a\\ b c", new String[]{"a b", "c"}},
+                {"'a\\b' \"a\\b\" \"a\\\"b\" \"a\\\\b\"", new String[]{"a\\b", "a\\b", "a\"b", "a\\b"}},
+                {"\"it's\" 'say \"hi\"'", new String[]{"it's", "say \"hi\""}}
+        };
+    }
+
+    @Test(dataProvider = "shellLines")
+    public void testShell(String line, String[] expected) throws Exception {
+        Assert.assertEquals(BatchRunner.split(line), expected);
+    }
+
+    @DataProvider
+    public Object[][] jsonLines() {
+        return new Object[][]{
+                {"[\"hello\", \"--name\", \"Good Guy\"]", new String[]{"hello", "--name", "Good Guy"}},
+                {"[]", new String[0]},
+                {"[ ]  ", new String[0]},
+                {"[\"a\",\"b\"]", new String[]{"a", "b"}},
+                {"[\"\"]", new String[]{""}},
+                {"[\"a\\nb\", \"\\t\", \"\\u0041\\u00e9\", \"\\\"q\\\"\", \"\\\\\", \"\\/\"]", new String[]{"a\nb", "\t", "A\u00e9", "\"q\"", "\\", "/"}}
+        };
+    }
+
+    @Test(dataProvider = "jsonLines")
+    public void testJson(String line, String[] expected) throws Exception {
+        Assert.assertEquals(BatchRunner.split(line), expected);
+    }
+
+    @DataProvider
+    public Object[][] malformedLines() {
+        return new Object[][]{
+                {"hello \"Good Guy"},
+                {"hello 'Good Guy"},
+                {"hello \\"},
+                {"[\"hello\""},
+                {"[\"hello\" \"world\"]"},
+                {"[\"hello\"] extra"},
+                {"[hello]"},
+                {"[\"a\", ]"},
+                {"[\"\\x\"]"},
+                {"[\"\\u00\"]"},
+                {"[\"\\uzzzz\"]"},
+                {"[\"unterminated]"}
+        };
+    }
+
+    @Test(dataProvider = "malformedLines", expectedExceptions = BatchSyntaxException.class)
+    public void testMalformed(String line) throws Exception {
+        BatchRunner.split(line);
+    }
+
+    @Test
+    public void testParallelOrdered() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final BatchRunner.Summary summary = runner(3).run(new StringReader(batch(300, 0, 150)),
+                new PrintStream(output, true), new PrintStream(report, true));
+        Assert.assertTrue(summary.isSuccessful());
+        Assert.assertEquals(summary.getTotal(), 3);
+        Assert.assertEquals(output.toString().replace("\r", ""), "a\nb\nc\n");
+        Assert.assertTrue(report.toString().matches("(?s)line 1: .*line 2: .*line 3: .*"), report.toString());
+    }
+
+    @Test
+    public void testParallelInCompletionOrder() throws Exception {
+        final BatchRunner runner = runner(3);
+        runner.setOrdered(false);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final BatchRunner.Summary summary = runner.run(new StringReader(batch(300, 0, 150)),
+                new PrintStream(output, true), new PrintStream(report, true));
+        Assert.assertEquals(summary.getTotal(), 3);
+        Assert.assertEquals(output.toString().replace("\r", ""), "b\nc\na\n");
+        Assert.assertTrue(report.toString().matches("(?s)line 2: .*line 3: .*line 1: .*"), report.toString());
+    }
+
+    @Test
+    public void testParallelStopsOnFailure() throws Exception {
+        final int lines = 40;
+        final int[] delays = new int[lines - 1];
+        Arrays.fill(delays, 50);
+        final String input = "sleep --name failing --fail true\n" + batch(delays);
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final BatchRunner.Summary summary = runner(2).run(new StringReader(input),
+                new PrintStream(new ByteArrayOutputStream(), true), new PrintStream(report, true));
+        Assert.assertEquals(summary.getFailed(), 1);
+        //invocations already started are reported, but no more are started once the failure is in
+        Assert.assertTrue(summary.getTotal() < lines, summary.toString());
+        Assert.assertTrue(report.toString().startsWith("line 1: exit " + BatchRunner.FAILURE), report.toString());
+    }
+
+    @Test
+    public void testParallelKeepGoing() throws Exception {
+        final BatchRunner runner = runner(2);
+        runner.setKeepGoing(true);
+        final String input = "sleep --name failing --fail true\n" + batch(0, 0, 0, 0);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final BatchRunner.Summary summary = runner.run(new StringReader(input),
+                new PrintStream(output, true), new PrintStream(new ByteArrayOutputStream(), true));
+        Assert.assertEquals(summary.getTotal(), 5);
+        Assert.assertEquals(summary.getFailed(), 1);
+        Assert.assertEquals(output.toString().replace("\r", ""), "a\nb\nc\nd\n");
+    }
+
+}
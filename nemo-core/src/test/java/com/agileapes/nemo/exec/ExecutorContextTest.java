@@ -0,0 +1,116 @@
+package com.agileapes.nemo.exec;
+
+import com.agileapes.nemo.action.impl.SmartAction;
+import com.agileapes.nemo.api.Command;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/26, 14:10)
+ */
+public class ExecutorContextTest {
+
+    private static CyclicBarrier barrier;
+
+    /**
+     * Waits for as many executions as the barrier has parties to be under way, then prints its name
+     */
+    @Command("action --name")
+    public static class EchoAction {
+
+        private PrintStream output;
+        private String name;
+
+        public void execute() throws Exception {
+            final String before = name;
+            barrier.await(5, TimeUnit.SECONDS);
+            output.println(before + " " + name);
+        }
+
+    }
+
+    private ExecutorContext context;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        context = new ExecutorContext();
+        context.setDescriptorSnapshot(null);
+        context.addAction("echo", EchoAction.class);
+    }
+
+    @Test
+    public void testConcurrentExecutionsKeepTheirOptions() throws Exception {
+        final int threads = 2;
+        barrier = new CyclicBarrier(threads);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[threads];
+        final List<Thread> started = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final String name = "client" + i;
+            outputs[i] = output;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        context.execute(new PrintStream(output, true), "echo", "--name", name);
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+        for (Thread thread : started) {
+            thread.join();
+        }
+        Assert.assertTrue(errors.isEmpty(), errors.toString());
+        for (int i = 0; i < threads; i++) {
+            Assert.assertEquals(outputs[i].toString().trim(), "client" + i + " client" + i);
+        }
+    }
+
+    @Test
+    public void testOutputIsRestored() throws Exception {
+        barrier = new CyclicBarrier(1);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        context.execute(new PrintStream(output, true), "echo", "--name", "x");
+        Assert.assertEquals(output.toString().trim(), "x x");
+        Assert.assertNull(context.getOutput());
+    }
+
+    @Test
+    public void testNestedClaimsGetTheirOwnInstance() throws Exception {
+        final SmartAction<?> action = (SmartAction<?>) context.getActionContext().get("echo");
+        final SmartAction<?>.Invocation outer = action.claim();
+        try {
+            final SmartAction<?>.Invocation inner = action.claim();
+            try {
+                Assert.assertNotSame(inner.getAction(), outer.getAction());
+                outer.setOption("name", "outer");
+                inner.setOption("name", "inner");
+                Assert.assertEquals(((EchoAction) outer.getAction()).name, "outer");
+                Assert.assertEquals(((EchoAction) inner.getAction()).name, "inner");
+            } finally {
+                inner.release();
+            }
+        } finally {
+            outer.release();
+        }
+        //once released, the primary instance is available to the next claim right away
+        final SmartAction<?>.Invocation next = action.claim();
+        next.release();
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.agileapes.nemo.exec.daemon;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/26, 16:40)
+ */
+public class DaemonProtocolTest {
+
+    private static DataInputStream input(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static String readAll(InputStream input) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4];
+        int read;
+        while ((read = input.read(buffer, 0, buffer.length)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toString(DaemonProtocol.CHARSET);
+    }
+
+    @Test
+    public void testRequestRoundTrip() throws Exception {
+        final Map<String, String> variables = new LinkedHashMap<String, String>();
+        variables.put("HOME", "/home/user");
+        variables.put("EMPTY", "");
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DaemonProtocol.writeRequest(new DataOutputStream(bytes), "0123456789abcdef",
+                new String[]{"hello", "--name", "\u00e9t\u00e9", ""}, "/work", variables);
+        final DataInputStream input = input(bytes);
+        Assert.assertEquals(DaemonProtocol.readToken(input), "0123456789abcdef");
+        Assert.assertEquals(DaemonProtocol.readArguments(input), new String[]{"hello", "--name", "\u00e9t\u00e9", ""});
+        Assert.assertEquals(DaemonProtocol.readString(input), "/work");
+        Assert.assertEquals(DaemonProtocol.readVariables(input), variables);
+        Assert.assertEquals(input.read(), -1);
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Not a nemo client")
+    public void testWrongMagic() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeInt(DaemonProtocol.MAGIC + 1);
+        DaemonProtocol.readToken(input(bytes));
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Malformed token")
+    public void testOversizedToken() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(DaemonProtocol.MAGIC);
+        output.writeInt(Integer.MAX_VALUE);
+        DaemonProtocol.readToken(input(bytes));
+    }
+
+    @Test
+    public void testInputFrames() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        for (String frame : new String[]{"ab", "cdefgh", "i", ""}) {
+            output.writeInt(frame.length());
+            output.writeBytes(frame);
+        }
+        output.writeBytes("rest");
+        final DataInputStream connection = input(bytes);
+        final DaemonProtocol.FrameInputStream frames = new DaemonProtocol.FrameInputStream(connection);
+        Assert.assertEquals(frames.read(), 'a');
+        Assert.assertEquals(frames.read(new byte[4], 0, 0), 0);
+        Assert.assertEquals(readAll(frames), "bcdefghi");
+        Assert.assertEquals(frames.read(), -1);
+        Assert.assertEquals(frames.available(), 0);
+        //nothing past the end of the input is read off the connection
+        Assert.assertEquals(readAll(connection), "rest");
+    }
+
+    @Test(expectedExceptions = EOFException.class)
+    public void testTruncatedInputFrame() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(10);
+        output.writeBytes("abc");
+        readAll(new DaemonProtocol.FrameInputStream(input(bytes)));
+    }
+
+    @Test
+    public void testOutputFrames() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream connection = new DataOutputStream(bytes);
+        final OutputStream out = new DaemonProtocol.FrameOutputStream(connection, DaemonProtocol.STDOUT);
+        final OutputStream err = new DaemonProtocol.FrameOutputStream(connection, DaemonProtocol.STDERR);
+        out.write("out".getBytes(DaemonProtocol.CHARSET));
+        err.write('!');
+        out.write(new byte[0]);
+        out.write("xyz".getBytes(DaemonProtocol.CHARSET), 1, 2);
+        out.flush();
+        final DataInputStream input = input(bytes);
+        final byte[] channels = {DaemonProtocol.STDOUT, DaemonProtocol.STDERR, DaemonProtocol.STDOUT};
+        final String[] payloads = {"out", "!", "yz"};
+        for (int i = 0; i < channels.length; i++) {
+            Assert.assertEquals(input.readByte(), channels[i]);
+            final byte[] payload = new byte[input.readInt()];
+            input.readFully(payload);
+            Assert.assertEquals(new String(payload, DaemonProtocol.CHARSET), payloads[i]);
+        }
+        Assert.assertEquals(input.read(), -1);
+    }
+
+    @Test
+    public void testTokenFile() throws Exception {
+        final File file = File.createTempFile("nemo", ".token");
+        try {
+            final String token = DaemonProtocol.writeToken(file);
+            Assert.assertEquals(token.length(), 32);
+            Assert.assertEquals(DaemonProtocol.readToken(file), token);
+            Assert.assertTrue(DaemonProtocol.matches(token, DaemonProtocol.readToken(file)));
+            Assert.assertFalse(DaemonProtocol.matches(token, token.substring(1)));
+            Assert.assertFalse(token.equals(DaemonProtocol.writeToken(file)));
+        } finally {
+            file.delete();
+        }
+    }
+
+}
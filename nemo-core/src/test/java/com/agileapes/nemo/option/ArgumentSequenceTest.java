@@ -0,0 +1,144 @@
+package com.agileapes.nemo.option;
+
+import com.agileapes.nemo.error.ArgumentFileException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/25, 10:40)
+ */
+public class ArgumentSequenceTest {
+
+    private File directory;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = File.createTempFile("nemo-arguments", "");
+        Assert.assertTrue(directory.delete());
+        Assert.assertTrue(directory.mkdir());
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private void write(String name, String content) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, name)), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private ArgumentSequence sequence(String input, String... arguments) throws Exception {
+        return new Options.Builder(arguments).build().getPositionals(directory, new ByteArrayInputStream(input.getBytes("UTF-8")));
+    }
+
+    private static List<String> collect(ArgumentSequence sequence) {
+        final List<String> values = new ArrayList<String>();
+        try {
+            for (String value : sequence) {
+                values.add(value);
+            }
+        } finally {
+            sequence.close();
+        }
+        return values;
+    }
+
+    private static List<String> list(String... values) {
+        final List<String> list = new ArrayList<String>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    @Test
+    public void testValuesInOrder() throws Exception {
+        write("list.txt", "b\nc\n");
+        final List<String> values = collect(sequence("", "a", "--name", "x", "@list.txt", "d"));
+        Assert.assertEquals(values, list("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void testArgumentFileLines() throws Exception {
+        write("list.txt", "first\r\n\nsecond value\n\n\nthird");
+        Assert.assertEquals(collect(sequence("", "@list.txt")), list("first", "second value", "third"));
+    }
+
+    @Test
+    public void testAbsolutePath() throws Exception {
+        write("list.txt", "value");
+        final String path = new File(directory, "list.txt").getAbsolutePath();
+        final ArgumentSequence sequence = new Options.Builder("@" + path).build().getPositionals(null, null);
+        Assert.assertEquals(collect(sequence), list("value"));
+    }
+
+    @Test
+    public void testStandardInput() throws Exception {
+        Assert.assertEquals(collect(sequence("./a\0./b c\0\0./d\n", "-@")), list("./a", "./b c", "./d\n"));
+    }
+
+    @Test
+    public void testLongFile() throws Exception {
+        final StringBuilder content = new StringBuilder();
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            content.append("value-").append(i).append('\n');
+            expected.add("value-" + i);
+        }
+        write("list.txt", content.toString());
+        Assert.assertEquals(collect(sequence("", "@list.txt")), expected);
+    }
+
+    @Test
+    public void testNext() throws Exception {
+        final ArgumentSequence sequence = sequence("", "a", "b");
+        Assert.assertTrue(sequence.hasNext());
+        Assert.assertTrue(sequence.hasNext());
+        Assert.assertEquals(sequence.next(), "a");
+        Assert.assertEquals(sequence.next(), "b");
+        Assert.assertFalse(sequence.hasNext());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        write("list.txt", "b\nc\n");
+        final ArgumentSequence sequence = sequence("", "a", "@list.txt", "d");
+        Assert.assertEquals(sequence.next(), "a");
+        Assert.assertEquals(sequence.next(), "b");
+        sequence.close();
+        Assert.assertFalse(sequence.hasNext());
+    }
+
+    @Test(expectedExceptions = ArgumentFileException.class)
+    public void testMissingFile() throws Exception {
+        collect(sequence("", "a", "@missing.txt"));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testIteratedTwice() throws Exception {
+        final ArgumentSequence sequence = sequence("", "a");
+        final Iterator<String> iterator = sequence.iterator();
+        Assert.assertEquals(iterator.next(), "a");
+        sequence.iterator();
+    }
+
+}
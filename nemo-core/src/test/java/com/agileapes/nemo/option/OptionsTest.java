@@ -0,0 +1,145 @@
+package com.agileapes.nemo.option;
+
+import com.agileapes.nemo.error.InvalidArgumentSyntaxException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/25, 10:20)
+ */
+public class OptionsTest {
+
+    private static List<String> positionals(String... arguments) throws Exception {
+        final Options options = new Options.Builder(arguments).build();
+        final ArgumentSequence sequence = options.getPositionals(new File("."), new ByteArrayInputStream(new byte[0]));
+        final List<String> values = new ArrayList<String>();
+        try {
+            while (sequence.hasNext()) {
+                values.add(sequence.next());
+            }
+        } finally {
+            sequence.close();
+        }
+        return values;
+    }
+
+    @Test
+    public void testTokens() throws Exception {
+        final Options options = new Options.Builder("--name", "x", "-v", "-ab", "first", "--flag", "--last").build();
+        Assert.assertEquals(options.size(), 7);
+        Assert.assertEquals(options.getKind(0), Options.NAME);
+        Assert.assertEquals(options.getName(0), "name");
+        Assert.assertEquals(options.getValue(0), "x");
+        Assert.assertEquals(options.getKind(1), Options.ALIAS);
+        Assert.assertEquals(options.getAlias(1), 'v');
+        Assert.assertEquals(options.getValue(1), Options.Builder.DEFAULT_FLAG_VALUE);
+        Assert.assertEquals(options.getKind(2), Options.ALIAS);
+        Assert.assertEquals(options.getAlias(2), 'a');
+        Assert.assertEquals(options.getValue(2), Options.Builder.DEFAULT_FLAG_VALUE);
+        Assert.assertEquals(options.getKind(3), Options.ALIAS);
+        Assert.assertEquals(options.getAlias(3), 'b');
+        Assert.assertEquals(options.getKind(4), Options.INDEX);
+        Assert.assertEquals(options.getIndex(4), 0);
+        Assert.assertEquals(options.getValue(4), "first");
+        Assert.assertEquals(options.getKind(5), Options.NAME);
+        Assert.assertEquals(options.getName(5), "flag");
+        Assert.assertEquals(options.getValue(5), Options.Builder.DEFAULT_FLAG_VALUE);
+        Assert.assertEquals(options.getKind(6), Options.NAME);
+        Assert.assertEquals(options.getName(6), "last");
+        Assert.assertEquals(options.getValue(6), Options.Builder.DEFAULT_FLAG_VALUE);
+    }
+
+    @Test
+    public void testMaps() throws Exception {
+        final Options options = new Options.Builder("--name", "a", "-n", "b", "zero", "--name", "c", "one").build();
+        Assert.assertEquals(options.getOptions().size(), 1);
+        Assert.assertEquals(options.getOptions().get("name"), "c");
+        Assert.assertEquals(options.getAliases().size(), 1);
+        Assert.assertEquals(options.getAliases().get('n'), "b");
+        Assert.assertEquals(options.getIndexes().size(), 2);
+        Assert.assertEquals(options.getIndexes().get(0), "zero");
+        Assert.assertEquals(options.getIndexes().get(1), "one");
+    }
+
+    @Test
+    public void testGrowth() throws Exception {
+        final Options options = new Options.Builder("-abcdefghij", "--name").build();
+        Assert.assertEquals(options.size(), 11);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(options.getKind(i), Options.ALIAS);
+            Assert.assertEquals(options.getAlias(i), (char) ('a' + i));
+        }
+        Assert.assertEquals(options.getName(10), "name");
+    }
+
+    @Test
+    public void testArgumentFiles() throws Exception {
+        final Options options = new Options.Builder("@list.txt", "-@", "value").build();
+        Assert.assertEquals(options.size(), 3);
+        Assert.assertEquals(options.getKind(0), Options.FILE);
+        Assert.assertEquals(options.getPath(0), "list.txt");
+        Assert.assertEquals(options.getKind(1), Options.FILE);
+        Assert.assertNull(options.getPath(1));
+        Assert.assertEquals(options.getKind(2), Options.INDEX);
+        Assert.assertEquals(options.getIndex(2), 0);
+        Assert.assertEquals(options.getIndexes().get(0), "value");
+    }
+
+    @Test(expectedExceptions = InvalidArgumentSyntaxException.class)
+    public void testLoneDash() throws Exception {
+        new Options.Builder("value", "-").build();
+    }
+
+    @Test(expectedExceptions = InvalidArgumentSyntaxException.class)
+    public void testLoneDoubleDash() throws Exception {
+        new Options.Builder("--").build();
+    }
+
+    @Test
+    public void testEscapedArgumentFile() throws Exception {
+        final List<String> values = positionals("@@value", "@@", "@@@x");
+        Assert.assertEquals(values.size(), 3);
+        Assert.assertEquals(values.get(0), "@value");
+        Assert.assertEquals(values.get(1), "@");
+        Assert.assertEquals(values.get(2), "@@x");
+    }
+
+    @Test
+    public void testEscapedArgumentIsIndexed() throws Exception {
+        final Options options = new Options.Builder("first", "@@second").build();
+        Assert.assertEquals(options.size(), 2);
+        Assert.assertEquals(options.getKind(1), Options.INDEX);
+        Assert.assertEquals(options.getIndex(1), 1);
+        Assert.assertEquals(options.getValue(1), "@second");
+        Assert.assertEquals(options.getIndexes().get(1), "@second");
+    }
+
+    @Test
+    public void testEscapeLeavesArgumentsAlone() throws Exception {
+        final String[] arguments = {"@@value"};
+        new Options.Builder(arguments).build();
+        Assert.assertEquals(arguments[0], "@@value");
+    }
+
+    @Test
+    public void testOptionValuesAreNotEscaped() throws Exception {
+        final Options options = new Options.Builder("--name", "@@value", "-n", "@file").build();
+        Assert.assertEquals(options.getOptions().get("name"), "@@value");
+        Assert.assertEquals(options.getAliases().get('n'), "@file");
+        Assert.assertTrue(positionals("--name", "@@value").isEmpty());
+    }
+
+    @Test
+    public void testLonePrefixIsAValue() throws Exception {
+        final List<String> values = positionals("@");
+        Assert.assertEquals(values.size(), 1);
+        Assert.assertEquals(values.get(0), "@");
+    }
+
+}
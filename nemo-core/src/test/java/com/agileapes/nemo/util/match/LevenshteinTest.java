@@ -0,0 +1,73 @@
+package com.agileapes.nemo.util.match;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/25, 11:00)
+ */
+public class LevenshteinTest {
+
+    @Test
+    public void testDistance() throws Exception {
+        Assert.assertEquals(Levenshtein.distance("kitten", "sitting"), 3);
+        Assert.assertEquals(Levenshtein.distance("sitting", "kitten"), 3);
+        Assert.assertEquals(Levenshtein.distance("flaw", "lawn"), 2);
+        Assert.assertEquals(Levenshtein.distance("help", "help"), 0);
+        Assert.assertEquals(Levenshtein.distance("", "abc"), 3);
+        Assert.assertEquals(Levenshtein.distance("abc", ""), 3);
+        Assert.assertEquals(Levenshtein.distance("", ""), 0);
+    }
+
+    @Test
+    public void testWithinLimit() throws Exception {
+        Assert.assertEquals(Levenshtein.distance("kitten", "sitting", 3), 3);
+        Assert.assertEquals(Levenshtein.distance("kitten", "sitting", 10), 3);
+        Assert.assertEquals(Levenshtein.distance("help", "help", 0), 0);
+    }
+
+    @Test
+    public void testBeyondLimit() throws Exception {
+        Assert.assertEquals(Levenshtein.distance("kitten", "sitting", 2), 3);
+        Assert.assertEquals(Levenshtein.distance("kitten", "sitting", 1), 2);
+        Assert.assertEquals(Levenshtein.distance("help", "hemp", 0), 1);
+        Assert.assertEquals(Levenshtein.distance("a", "abcdefgh", 2), 3);
+        Assert.assertEquals(Levenshtein.distance("abcdefgh", "hgfedcba", 4), 5);
+    }
+
+    @Test
+    public void testAgainstFullTable() throws Exception {
+        final String[] words = {"", "a", "ab", "ba", "abc", "acb", "help", "hello", "shell", "completion", "complete"};
+        for (String first : words) {
+            for (String second : words) {
+                final int distance = full(first, second);
+                Assert.assertEquals(Levenshtein.distance(first, second), distance, first + "/" + second);
+                for (int limit = 0; limit <= 10; limit++) {
+                    Assert.assertEquals(Levenshtein.distance(first, second, limit), Math.min(distance, limit + 1), first + "/" + second + "@" + limit);
+                }
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeLimit() throws Exception {
+        Levenshtein.distance("a", "b", -1);
+    }
+
+    private static int full(String first, String second) {
+        final int[][] table = new int[first.length() + 1][second.length() + 1];
+        for (int i = 0; i <= first.length(); i++) {
+            for (int j = 0; j <= second.length(); j++) {
+                if (i == 0 || j == 0) {
+                    table[i][j] = i + j;
+                } else {
+                    final int substitution = table[i - 1][j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                    table[i][j] = Math.min(substitution, Math.min(table[i - 1][j], table[i][j - 1]) + 1);
+                }
+            }
+        }
+        return table[first.length()][second.length()];
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.agileapes.nemo.util.match;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/25, 11:20)
+ */
+public class TrigramIndexTest {
+
+    private static TrigramIndex index(String... words) {
+        return new TrigramIndex(Arrays.asList(words));
+    }
+
+    @Test
+    public void testSize() throws Exception {
+        Assert.assertEquals(index("name", "names", "name").size(), 2);
+        Assert.assertEquals(new TrigramIndex(Collections.<String>emptyList()).size(), 0);
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        final List<Match> matches = index("verbose", "version", "verb", "output").getMatches("verbos", 0.6, 10);
+        Assert.assertEquals(matches.size(), 3);
+        Assert.assertEquals(matches.get(0).getWord(), "verbose");
+        Assert.assertEquals(matches.get(0).getDistance(), 1);
+        Assert.assertEquals(matches.get(1).getWord(), "verb");
+        Assert.assertEquals(matches.get(1).getDistance(), 2);
+        Assert.assertEquals(matches.get(2).getWord(), "version");
+        Assert.assertEquals(matches.get(2).getDistance(), 3);
+    }
+
+    @Test
+    public void testTie() throws Exception {
+        final List<Match> matches = index("name2", "name1", "name3").getMatches("name", 0.5, 10);
+        Assert.assertEquals(matches.size(), 3);
+        Assert.assertEquals(matches.get(0).getWord(), "name1");
+        Assert.assertEquals(matches.get(1).getWord(), "name2");
+        Assert.assertEquals(matches.get(2).getWord(), "name3");
+    }
+
+    @Test
+    public void testCount() throws Exception {
+        final List<Match> matches = index("name1", "name2", "name3").getMatches("name", 0.5, 2);
+        Assert.assertEquals(matches.size(), 2);
+        Assert.assertTrue(index("name1").getMatches("name", 0.5, 0).isEmpty());
+    }
+
+    @Test
+    public void testMaximum() throws Exception {
+        Assert.assertTrue(index("output").getMatches("outptu", 0.2, 10).isEmpty());
+        Assert.assertEquals(index("output").getMatches("outptu", 0.4, 10).size(), 1);
+        Assert.assertTrue(index("output").getMatches("output", -1, 10).isEmpty());
+    }
+
+    @Test
+    public void testNoSharedTrigram() throws Exception {
+        Assert.assertTrue(index("ab").getMatches("ba", 1, 10).isEmpty());
+    }
+
+}
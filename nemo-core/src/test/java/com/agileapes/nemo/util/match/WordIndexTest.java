@@ -0,0 +1,95 @@
+package com.agileapes.nemo.util.match;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/25, 11:10)
+ */
+public class WordIndexTest {
+
+    private static WordIndex index(String... words) {
+        final WordIndex index = new WordIndex();
+        for (String word : words) {
+            index.add(word);
+        }
+        return index;
+    }
+
+    @Test
+    public void testSize() throws Exception {
+        final WordIndex index = index("help", "hello", "help", "");
+        Assert.assertEquals(index.size(), 3);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        Assert.assertNull(new WordIndex().getClosest("help", 1));
+    }
+
+    @Test
+    public void testExactMatch() throws Exception {
+        final Match match = index("help", "hello", "shell").getClosest("hello", 0.5);
+        Assert.assertNotNull(match);
+        Assert.assertEquals(match.getWord(), "hello");
+        Assert.assertEquals(match.getDistance(), 0);
+        Assert.assertEquals(match.getScore(), 0, 0);
+    }
+
+    @Test
+    public void testTypo() throws Exception {
+        final Match match = index("install", "uninstall", "list", "status").getClosest("instal", 0.5);
+        Assert.assertNotNull(match);
+        Assert.assertEquals(match.getWord(), "install");
+        Assert.assertEquals(match.getDistance(), 1);
+        Assert.assertEquals(match.getScore(), 1.0 / 7, 1e-9);
+    }
+
+    @Test
+    public void testFarWord() throws Exception {
+        final Match match = index("a", "completion").getClosest("compltn", 0.5);
+        Assert.assertNotNull(match);
+        Assert.assertEquals(match.getWord(), "completion");
+        Assert.assertEquals(match.getDistance(), 3);
+    }
+
+    @Test
+    public void testNothingClose() throws Exception {
+        Assert.assertNull(index("install", "status").getClosest("xyz", 0.5));
+    }
+
+    @Test
+    public void testTie() throws Exception {
+        final Match match = index("bat", "cat", "hat").getClosest("rat", 0.5);
+        Assert.assertNotNull(match);
+        Assert.assertEquals(match.getWord(), "bat");
+    }
+
+    @Test
+    public void testAgainstLevenshtein() throws Exception {
+        final String[] words = {"help", "hello", "shell", "history", "batch", "complete", "completion", "exit", "quit"};
+        final WordIndex index = index(words);
+        final String[] queries = {"hlep", "helo", "hstory", "btach", "compelte", "xit", "qit", "shel", "z"};
+        for (String query : queries) {
+            Match expected = null;
+            for (String word : words) {
+                final int distance = Levenshtein.distance(query, word);
+                final double score = (double) distance / Math.max(query.length(), word.length());
+                if (score <= 0.6 && (expected == null || score < expected.getScore() || score == expected.getScore()
+                        && (distance < expected.getDistance() || distance == expected.getDistance() && word.compareTo(expected.getWord()) < 0))) {
+                    expected = new Match(word, distance, score);
+                }
+            }
+            final Match actual = index.getClosest(query, 0.6);
+            if (expected == null) {
+                Assert.assertNull(actual, query);
+            } else {
+                Assert.assertNotNull(actual, query);
+                Assert.assertEquals(actual.getWord(), expected.getWord(), query);
+                Assert.assertEquals(actual.getDistance(), expected.getDistance(), query);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.agileapes.nemo.util.output;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/25, 11:40)
+ */
+public class GridLayoutTest {
+
+    private static String draw(String pattern, String[]... rows) {
+        final Grid grid = new Grid(pattern);
+        for (String[] row : rows) {
+            if (row == null) {
+                grid.line();
+            } else {
+                grid.add(row);
+            }
+        }
+        return grid.draw();
+    }
+
+    @Test
+    public void testColumns() throws Exception {
+        Assert.assertEquals(GridLayout.compile("l5|r5|c5").getColumns(), 3);
+        Assert.assertEquals(GridLayout.compile(" * w10 ").getColumns(), 2);
+        Assert.assertEquals(GridLayout.compile("l12r3").getColumns(), 2);
+        Assert.assertEquals(GridLayout.compile("").getColumns(), 0);
+    }
+
+    @Test
+    public void testAlignment() throws Exception {
+        Assert.assertEquals(draw("l5|r5|c5", new String[]{"ab", "cd", "ef"}), "ab    |    cd |  ef  \n");
+        Assert.assertEquals(draw("r4 l4", new String[]{"a", "b"}), "   a  b   \n");
+    }
+
+    @Test
+    public void testTruncation() throws Exception {
+        Assert.assertEquals(draw("l5|r5|c5", new String[]{"ab", "cd", "ef"}, new String[]{"abcdefg", "x", "xyz"}),
+                "ab    |    cd |  ef  \nabcde |     x |  xyz \n");
+    }
+
+    @Test
+    public void testWrapping() throws Exception {
+        Assert.assertEquals(draw("w10 *", new String[]{"the quick brown fox jumps", "x"}),
+                "the quick   x\nbrown fox    \njumps        \n");
+    }
+
+    @DataProvider
+    public Object[][] invalidPatterns() {
+        return new Object[][]{{"x5"}, {"l"}, {"l5|r"}, {"lx"}, {"c-1"}, {"*|w"}};
+    }
+
+    @Test(dataProvider = "invalidPatterns", expectedExceptions = IllegalArgumentException.class,
+            expectedExceptionsMessageRegExp = "Invalid grid pattern at .*")
+    public void testInvalidPattern(String pattern) throws Exception {
+        GridLayout.compile(pattern);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTooFewCells() throws Exception {
+        new Grid("l5|r5").add("a");
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.agileapes.nemo.util.output;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FilenameFilter;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/26, 15:20)
+ */
+public class GridWriterTest {
+
+    private static final String[][] ROWS = {
+            {"name", "size", "description"},
+            null,
+            {"first", "12", "the quick brown fox jumps"},
+            {"a much longer name", "1234567", "x"},
+            {"", "", ""}
+    };
+
+    private static String draw(String pattern, String[]... rows) {
+        final Grid grid = new Grid(pattern);
+        for (String[] row : rows) {
+            if (row == null) {
+                grid.line();
+            } else {
+                grid.add(row);
+            }
+        }
+        return grid.draw();
+    }
+
+    private static void add(GridWriter writer, String[]... rows) throws Exception {
+        for (String[] row : rows) {
+            if (row == null) {
+                writer.line();
+            } else {
+                writer.add(row);
+            }
+        }
+    }
+
+    private static int countSpills() {
+        final String[] spills = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter() {
+            @Override
+            public boolean accept(File directory, String name) {
+                return name.startsWith("nemo-grid") && name.endsWith(".tmp");
+            }
+        });
+        return spills == null ? 0 : spills.length;
+    }
+
+    @Test
+    public void testExactMatchesGrid() throws Exception {
+        final StringBuilder output = new StringBuilder();
+        final GridWriter writer = new GridWriter("* | l6 | w8", output, GridWriter.EXACT);
+        add(writer, ROWS);
+        Assert.assertEquals(output.length(), 0);
+        writer.close();
+        Assert.assertEquals(output.toString(), draw("* | l6 | w8", ROWS));
+    }
+
+    @Test
+    public void testSampleFixesWidths() throws Exception {
+        final StringBuilder output = new StringBuilder();
+        final GridWriter writer = new GridWriter("* | *", output, 2);
+        writer.add("ab", "c");
+        Assert.assertEquals(output.length(), 0);
+        writer.add("d", "ef");
+        //the columns have been sized by the sample, so the rows are written out right away from now on
+        Assert.assertEquals(output.toString(), draw("l2 | l2", new String[]{"ab", "c"}, new String[]{"d", "ef"}));
+        writer.add("abcdef", "xyz");
+        writer.close();
+        Assert.assertEquals(output.toString(), draw("l2 | l2", new String[]{"ab", "c"}, new String[]{"d", "ef"},
+                new String[]{"abcdef", "xyz"}));
+    }
+
+    @Test
+    public void testFixedWidthsAreWrittenRightAway() throws Exception {
+        final StringBuilder output = new StringBuilder();
+        final GridWriter writer = new GridWriter("l5 | r5", output, GridWriter.EXACT);
+        writer.add("ab", "cd");
+        Assert.assertEquals(output.toString(), draw("l5 | r5", new String[]{"ab", "cd"}));
+        writer.close();
+    }
+
+    @Test
+    public void testShortInputIsWrittenOnClose() throws Exception {
+        final StringBuilder output = new StringBuilder();
+        final GridWriter writer = new GridWriter("* | *", output);
+        add(writer, new String[]{"a", "bcd"}, null, new String[]{"efgh", "i"});
+        Assert.assertEquals(output.length(), 0);
+        writer.close();
+        Assert.assertEquals(output.toString(), draw("* | *", new String[]{"a", "bcd"}, null, new String[]{"efgh", "i"}));
+    }
+
+    @Test
+    public void testSpillAndReplay() throws Exception {
+        final int count = GridWriter.DEFAULT_SAMPLE + 500;
+        final String[][] rows = new String[count][];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new String[]{"row " + i, i % 7 == 0 ? "\u00e9t\u00e9 " + i : Integer.toString(i * i)};
+        }
+        rows[count / 2] = null;
+        final int spills = countSpills();
+        final StringBuilder output = new StringBuilder();
+        final GridWriter writer = new GridWriter("* | r10", output, GridWriter.EXACT);
+        try {
+            add(writer, rows);
+            Assert.assertEquals(countSpills(), spills + 1);
+        } finally {
+            writer.close();
+        }
+        Assert.assertEquals(countSpills(), spills);
+        Assert.assertEquals(output.toString(), draw("* | r10", rows));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTooManyCells() throws Exception {
+        new GridWriter("l5 | r5", new StringBuilder()).add("a", "b", "c");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidSample() throws Exception {
+        new GridWriter("* | *", new StringBuilder(), -2);
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.agileapes.nemo.util.output;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/26, 16:05)
+ */
+public class OutputSinkTest {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * Keeps track of what is written to it, on which thread, and of whether it has been flushed or closed
+     */
+    private static class Target extends OutputStream {
+
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final int failAfter;
+        private volatile Thread writer;
+        private volatile int writes;
+        private volatile int flushes;
+        private volatile boolean closed;
+
+        private Target(int failAfter) {
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+            writer = Thread.currentThread();
+            if (writes ++ == failAfter) {
+                throw new IOException("target failed");
+            }
+            written.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() {
+            flushes ++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private synchronized String getWritten() {
+            return written.toString();
+        }
+
+    }
+
+    private static String text(int length) {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void testHeldUntilFlushed() throws Exception {
+        final Target target = new Target(-1);
+        final OutputSink sink = new OutputSink(target, 64, 0);
+        sink.print("abc");
+        sink.println("def");
+        Assert.assertEquals(target.getWritten(), "");
+        sink.flush();
+        Assert.assertEquals(target.getWritten(), "abcdef" + LINE_SEPARATOR);
+        Assert.assertEquals(target.writer, Thread.currentThread());
+        Assert.assertEquals(target.flushes, 1);
+    }
+
+    @Test
+    public void testFullBuffersAreWritten() throws Exception {
+        final Target target = new Target(-1);
+        final OutputSink sink = new OutputSink(target, 8, 0);
+        sink.print(text(20));
+        Assert.assertEquals(target.getWritten(), text(16));
+        sink.close();
+        Assert.assertEquals(target.getWritten(), text(20));
+        Assert.assertFalse(target.closed);
+    }
+
+    @Test
+    public void testWriterThreadFlush() throws Exception {
+        final Target target = new Target(-1);
+        final OutputSink sink = new OutputSink(target, 8, 2);
+        final String text = text(1000);
+        sink.print(text);
+        sink.flush();
+        //flushing waits for everything printed so far to reach the target
+        Assert.assertEquals(target.getWritten(), text);
+        Assert.assertEquals(target.flushes, 1);
+        Assert.assertNotNull(target.writer);
+        Assert.assertNotSame(target.writer, Thread.currentThread());
+        Assert.assertFalse(sink.checkError());
+        sink.close();
+    }
+
+    @Test
+    public void testWriterThreadClose() throws Exception {
+        final Target target = new Target(-1);
+        final OutputSink sink = new OutputSink(target, 8, 2);
+        sink.println(text(30));
+        sink.close();
+        Assert.assertEquals(target.getWritten(), text(30) + LINE_SEPARATOR);
+        Assert.assertFalse(target.closed);
+        final Thread writer = target.writer;
+        writer.join(5000);
+        Assert.assertFalse(writer.isAlive());
+        //closing a closed sink has no effect
+        sink.close();
+        Assert.assertFalse(sink.checkError());
+    }
+
+    @Test
+    public void testWriterThreadFailure() throws Exception {
+        final Target target = new Target(1);
+        final OutputSink sink = new OutputSink(target, 8, 2);
+        sink.print(text(100));
+        sink.flush();
+        Assert.assertTrue(sink.checkError());
+        //the output printed once the writer has failed is discarded
+        final int writes = target.writes;
+        sink.print(text(100));
+        sink.close();
+        Assert.assertEquals(target.writes, writes);
+        Assert.assertEquals(target.getWritten(), text(8));
+    }
+
+    @Test
+    public void testFailureWithoutWriterThread() throws Exception {
+        final Target target = new Target(0);
+        final OutputSink sink = new OutputSink(target, 8, 0);
+        sink.print(text(4));
+        Assert.assertEquals(target.writes, 0);
+        sink.flush();
+        Assert.assertEquals(target.writes, 1);
+        Assert.assertTrue(sink.checkError());
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.agileapes.nemo.util.output;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+
+/**
+ * The expected outputs are those of the wrapper as it was before it was rewritten to read the text in a single pass.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/25, 12:00)
+ */
+public class TextWrapperTest {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    @DataProvider
+    public Object[][] texts() {
+        return new Object[][]{
+                {"The quick brown fox jumps over the lazy dog", 20, 0, "The quick brown fox\njumps over the lazy\ndog\n"},
+                {"The quick brown fox jumps over the lazy dog", 20, 4, "The quick brown fox\n    jumps over the lazy\n    dog\n"},
+                {"short", 20, 2, "short\n"},
+                {"a,b,c,d,e,f,g,h,i,j,k,l,m,n,o,p", 10, 0, "a,b,c,d,e\n,f,g,h,i,j\n,k,l,m,n,o\n,p\n"},
+                {"supercalifragilisticexpialidocious word", 10, 0, "supercali-\nfragilist-\nicexpiali-\ndocious\nword\n"},
+                {"first paragraph\nsecond   line\twith   tabs", 15, 0, "first paragraph\nsecond  line\nwith   tabs\n"},
+                {"path/to/some/file.txt and http://example.com/a-b", 12, 2, "path/to/some\n  /file.txt\n  and  http:/\n  /example.com\n  /a-b\n"},
+                {"", 10, 0, ""}
+        };
+    }
+
+    @Test(dataProvider = "texts")
+    public void testSequence(String text, int width, int indentation, String expected) throws Exception {
+        final StringBuilder output = new StringBuilder();
+        new TextWrapper(output, width, indentation).print(text);
+        Assert.assertEquals(output.toString(), expected.replace("\n", LINE_SEPARATOR));
+    }
+
+    @Test(dataProvider = "texts")
+    public void testReader(String text, int width, int indentation, String expected) throws Exception {
+        final StringBuilder output = new StringBuilder();
+        new TextWrapper(output, width, indentation).print(new StringReader(text));
+        Assert.assertEquals(output.toString(), expected.replace("\n", LINE_SEPARATOR));
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.agileapes.nemo.value;
+
+import com.agileapes.couteau.context.value.ValueReader;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/26, 12:05)
+ */
+public class LazyValueReaderTest {
+
+    @Test
+    public void testDefaultsAreRegisteredOnce() throws Exception {
+        final List<ValueReader> registered = new ArrayList<ValueReader>();
+        final LazyValueReader lazy = new LazyValueReader(null, new LazyValueReader.Registrar() {
+            @Override
+            public void register(ValueReader reader) {
+                registered.add(reader);
+            }
+        });
+        Assert.assertTrue(registered.isEmpty());
+        lazy.initialize();
+        lazy.initialize();
+        Assert.assertEquals(registered.size(), ValueConverters.getDefaultReaders().size());
+    }
+
+    @Test
+    public void testReentrantInitialization() throws Exception {
+        final AtomicInteger registered = new AtomicInteger();
+        final LazyValueReader[] lazy = new LazyValueReader[1];
+        lazy[0] = new LazyValueReader(null, new LazyValueReader.Registrar() {
+            @Override
+            public void register(ValueReader reader) {
+                registered.incrementAndGet();
+                lazy[0].added(reader);
+                //looking a reader up while the defaults are being registered must not start over
+                lazy[0].find(String.class);
+            }
+        });
+        lazy[0].initialize();
+        Assert.assertEquals(registered.get(), ValueConverters.getDefaultReaders().size());
+    }
+
+    @Test
+    public void testConcurrentInitialization() throws Exception {
+        final int threads = 4;
+        final int defaults = ValueConverters.getDefaultReaders().size();
+        final List<ValueReader> registered = Collections.synchronizedList(new ArrayList<ValueReader>());
+        final LazyValueReader lazy = new LazyValueReader(null, new LazyValueReader.Registrar() {
+            @Override
+            public void register(ValueReader reader) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                registered.add(reader);
+            }
+        });
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Thread> started = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    lazy.initialize();
+                    seen.add(registered.size());
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : started) {
+            thread.join();
+        }
+        Assert.assertEquals(registered.size(), defaults);
+        //no thread may return from initialize() before all the default readers have been registered
+        Assert.assertEquals(seen, Collections.nCopies(threads, defaults));
+    }
+
+}
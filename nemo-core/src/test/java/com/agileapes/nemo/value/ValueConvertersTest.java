@@ -0,0 +1,104 @@
+package com.agileapes.nemo.value;
+
+import com.agileapes.couteau.context.value.ValueReader;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/26, 11:40)
+ */
+public class ValueConvertersTest {
+
+    public static enum Color {
+        RED, GREEN
+    }
+
+    /**
+     * Records the values it is asked to read, and reads them all as the same value
+     */
+    private static class RecordingReader implements ValueReader {
+
+        private final List<String> read = new ArrayList<String>();
+        private final Object value;
+
+        private RecordingReader(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean handles(Class<?> type) {
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <E> E read(String text, Class<E> type) {
+            read.add(text);
+            return (E) value;
+        }
+
+    }
+
+    @Test
+    public void testDirectConversion() throws Exception {
+        final RecordingReader reader = new RecordingReader(null);
+        Assert.assertEquals(ValueConverters.compile(int.class, reader).convert("12"), 12);
+        Assert.assertEquals(ValueConverters.compile(Long.class, reader).convert("-3"), -3L);
+        Assert.assertEquals(ValueConverters.compile(boolean.class, reader).convert("TRUE"), Boolean.TRUE);
+        Assert.assertEquals(ValueConverters.compile(char.class, reader).convert("x"), 'x');
+        Assert.assertEquals(ValueConverters.compile(String.class, reader).convert("text"), "text");
+        Assert.assertEquals(ValueConverters.compile(Color.class, reader).convert("GREEN"), Color.GREEN);
+        Assert.assertEquals(ValueConverters.compile(Color.class, reader).convert("green"), Color.GREEN);
+        Assert.assertTrue(reader.read.isEmpty());
+    }
+
+    @Test
+    public void testFallbackOnFailure() throws Exception {
+        final RecordingReader reader = new RecordingReader(16);
+        Assert.assertEquals(ValueConverters.compile(int.class, reader).convert("0x10"), 16);
+        Assert.assertEquals(reader.read.size(), 1);
+        Assert.assertEquals(reader.read.get(0), "0x10");
+    }
+
+    @Test
+    public void testFallbackOnUndecidedValue() throws Exception {
+        final RecordingReader reader = new RecordingReader(Boolean.TRUE);
+        Assert.assertEquals(ValueConverters.compile(boolean.class, reader).convert("yes"), Boolean.TRUE);
+        final RecordingReader colors = new RecordingReader(Color.RED);
+        Assert.assertEquals(ValueConverters.compile(Color.class, colors).convert("crimson"), Color.RED);
+        Assert.assertEquals(reader.read.size(), 1);
+        Assert.assertEquals(colors.read.size(), 1);
+    }
+
+    @Test
+    public void testOtherTypesGoThroughReader() throws Exception {
+        final StringBuilder value = new StringBuilder("value");
+        final RecordingReader reader = new RecordingReader(value);
+        Assert.assertSame(ValueConverters.compile(StringBuilder.class, reader).convert("text"), value);
+        Assert.assertEquals(reader.read.size(), 1);
+    }
+
+    @Test
+    public void testLazyReaderIsLookedUpOnce() throws Exception {
+        final RecordingReader first = new RecordingReader("first");
+        final RecordingReader second = new RecordingReader("second");
+        final LazyValueReader lazy = new LazyValueReader(null, new LazyValueReader.Registrar() {
+            @Override
+            public void register(ValueReader reader) {
+            }
+        });
+        lazy.added(first);
+        final ValueConverter converter = ValueConverters.compile(StringBuilder.class, lazy);
+        Assert.assertEquals(converter.convert("a"), "first");
+        //readers added later on come after the first one, and the converter sticks with the reader it found
+        lazy.added(second);
+        Assert.assertEquals(converter.convert("b"), "first");
+        Assert.assertEquals(first.read.size(), 2);
+        Assert.assertTrue(second.read.isEmpty());
+    }
+
+}
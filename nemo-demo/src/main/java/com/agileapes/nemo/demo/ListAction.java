@@ -18,7 +18,8 @@ package com.agileapes.nemo.demo;
 import com.agileapes.nemo.action.Action;
 import com.agileapes.nemo.api.Help;
 import com.agileapes.nemo.api.Option;
-import com.agileapes.nemo.util.output.Grid;
+import com.agileapes.nemo.util.output.GridLayout;
+import com.agileapes.nemo.util.output.GridWriter;
 
 import java.io.File;
 
@@ -29,13 +30,16 @@ import java.io.File;
 @Help(value = "Lists the files in the current directory")
 public class ListAction extends Action {
 
+    private static final GridLayout NUMBERED = GridLayout.compile("r5 l6 *");
+    private static final GridLayout PLAIN = GridLayout.compile("l6 *");
+
     @Option(alias = 'x')
     @Help(value = "Prints sequential file numbers prior to file path")
     private boolean numbers;
 
     @Override
     public void execute() throws Exception {
-        final File current = new File(".");
+        final File current = getEnvironment().resolve(".");
         final File[] files = current.listFiles();
         if (files == null) {
             throw new Exception("Could not get the list of files under current directory");
@@ -43,20 +47,24 @@ public class ListAction extends Action {
         int i = 0;
         output.println("There are " + files.length + " files under " + current.getAbsolutePath());
         output.println();
-        final Grid grid = new Grid(numbers ? "r5 l6 *" : "l6 *");
-        if (numbers) {
-            grid.add("#", "Size", "Name");
-        } else {
-            grid.add("Size", "Name");
-        }
-        grid.line();
-        for (File file : files) {
+        final GridWriter grid = new GridWriter(numbers ? NUMBERED : PLAIN, output);
+        try {
             if (numbers) {
-                grid.add(Integer.toString(++i), Long.toString(file.length()), file.getName());
+                grid.add("#", "Size", "Name");
             } else {
-                grid.add(Long.toString(file.length()), file.getName());
+                grid.add("Size", "Name");
             }
+            grid.line();
+            for (File file : files) {
+                if (numbers) {
+                    grid.add(Integer.toString(++i), Long.toString(file.length()), file.getName());
+                } else {
+                    grid.add(Long.toString(file.length()), file.getName());
+                }
+            }
+        } finally {
+            grid.close();
         }
-        output.println(grid.draw());
+        output.println();
     }
 }
@@ -0,0 +1,216 @@
+package com.agileapes.nemo.processor;
+
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.SimpleAnnotationValueVisitor6;
+import javax.lang.model.util.Types;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class writes Java expressions which will reconstruct, at runtime, the same metadata that
+ * {@link com.agileapes.nemo.util.AnnotationPropertyBuilder} would have extracted from annotations
+ * through reflection.
+ *
+ * The expressions rely on the {@link #HELPERS} being present in the generated class.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/14, 11:52)
+ */
+class AnnotationWriter {
+
+    static final String HELPERS = "" +
+            "    private static Map<String, Object> map(Object... entries) {\n" +
+            "        final Map<String, Object> map = new HashMap<String, Object>();\n" +
+            "        for (int i = 0; i < entries.length; i += 2) {\n" +
+            "            map.put((String) entries[i], entries[i + 1]);\n" +
+            "        }\n" +
+            "        return Collections.unmodifiableMap(map);\n" +
+            "    }\n\n" +
+            "    private static Properties properties(Object... entries) {\n" +
+            "        final Properties properties = new Properties();\n" +
+            "        for (int i = 0; i < entries.length; i += 2) {\n" +
+            "            properties.put(entries[i], entries[i + 1]);\n" +
+            "        }\n" +
+            "        return properties;\n" +
+            "    }\n\n";
+
+    private final Elements elements;
+    private final Types types;
+
+    AnnotationWriter(Elements elements, Types types) {
+        this.elements = elements;
+        this.types = types;
+    }
+
+    /**
+     * @param annotations    the annotations
+     * @return an expression of type {@link java.util.Properties} holding the values of all the annotations
+     * retained at runtime
+     */
+    String write(List<? extends AnnotationMirror> annotations) {
+        final StringBuilder builder = new StringBuilder("properties(");
+        boolean first = true;
+        for (AnnotationMirror annotation : annotations) {
+            final Retention retention = annotation.getAnnotationType().asElement().getAnnotation(Retention.class);
+            if (retention == null || retention.value() != RetentionPolicy.RUNTIME) {
+                continue;
+            }
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(literal("@" + ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()));
+            builder.append(", ").append(write(annotation));
+        }
+        return builder.append(")").toString();
+    }
+
+    private String write(AnnotationMirror annotation) {
+        final StringBuilder builder = new StringBuilder("map(");
+        final Iterator<? extends Map.Entry<? extends ExecutableElement, ? extends AnnotationValue>> iterator = elements.getElementValuesWithDefaults(annotation).entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry = iterator.next();
+            builder.append(literal(entry.getKey().getSimpleName().toString())).append(", ");
+            builder.append(write(entry.getValue(), entry.getKey().getReturnType()));
+            if (iterator.hasNext()) {
+                builder.append(", ");
+            }
+        }
+        return builder.append(")").toString();
+    }
+
+    private String write(AnnotationValue value, final TypeMirror type) {
+        return value.accept(new SimpleAnnotationValueVisitor6<String, Void>() {
+
+            @Override
+            public String visitBoolean(boolean b, Void aVoid) {
+                return String.valueOf(b);
+            }
+
+            @Override
+            public String visitByte(byte b, Void aVoid) {
+                return "(byte) " + b;
+            }
+
+            @Override
+            public String visitChar(char c, Void aVoid) {
+                return literal(c);
+            }
+
+            @Override
+            public String visitDouble(double d, Void aVoid) {
+                if (Double.isNaN(d)) {
+                    return "Double.NaN";
+                } else if (Double.isInfinite(d)) {
+                    return d > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+                }
+                return d + "d";
+            }
+
+            @Override
+            public String visitFloat(float f, Void aVoid) {
+                if (Float.isNaN(f)) {
+                    return "Float.NaN";
+                } else if (Float.isInfinite(f)) {
+                    return f > 0 ? "Float.POSITIVE_INFINITY" : "Float.NEGATIVE_INFINITY";
+                }
+                return f + "f";
+            }
+
+            @Override
+            public String visitInt(int i, Void aVoid) {
+                return String.valueOf(i);
+            }
+
+            @Override
+            public String visitLong(long i, Void aVoid) {
+                return i + "L";
+            }
+
+            @Override
+            public String visitShort(short s, Void aVoid) {
+                return "(short) " + s;
+            }
+
+            @Override
+            public String visitString(String s, Void aVoid) {
+                return literal(s);
+            }
+
+            @Override
+            public String visitType(TypeMirror t, Void aVoid) {
+                return types.erasure(t) + ".class";
+            }
+
+            @Override
+            public String visitEnumConstant(VariableElement c, Void aVoid) {
+                return ((TypeElement) c.getEnclosingElement()).getQualifiedName() + "." + c.getSimpleName();
+            }
+
+            @Override
+            public String visitAnnotation(AnnotationMirror a, Void aVoid) {
+                return write(a);
+            }
+
+            @Override
+            public String visitArray(List<? extends AnnotationValue> values, Void aVoid) {
+                final TypeMirror component = type.getKind() == TypeKind.ARRAY ? ((ArrayType) type).getComponentType() : null;
+                final boolean annotations = component == null || component.getKind() == TypeKind.DECLARED
+                        && types.asElement(component).getKind() == ElementKind.ANNOTATION_TYPE;
+                final StringBuilder builder = new StringBuilder("new ");
+                builder.append(annotations ? "Object" : types.erasure(component).toString()).append("[] {");
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) {
+                        builder.append(", ");
+                    }
+                    builder.append(write(values.get(i), component));
+                }
+                return builder.append("}").toString();
+            }
+
+        }, null);
+    }
+
+    static String literal(char value) {
+        return "'" + (value == '\'' ? "\\'" : escape(value)) + "'";
+    }
+
+    static String literal(String value) {
+        final StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            builder.append(c == '"' ? "\\\"" : escape(c));
+        }
+        return builder.append("\"").toString();
+    }
+
+    private static String escape(char c) {
+        switch (c) {
+            case '\\':
+                return "\\\\";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\t':
+                return "\\t";
+            case '\b':
+                return "\\b";
+            case '\f':
+                return "\\f";
+            default:
+                if (c < ' ' || c > '~') {
+                    return String.format("\\u%04x", (int) c);
+                }
+                return String.valueOf(c);
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.agileapes.nemo.processor;
+
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * This class holds everything the processor needs to know about a single option to write its entry
+ * into the generated option table.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/14, 11:40)
+ */
+class OptionModel {
+
+    private final String name;
+    private final Character alias;
+    private final Integer index;
+    private final boolean required;
+    private final TypeMirror type;
+    private final String reader;
+    private final String writer;
+    private final String primitiveWriter;
+    private final String metadata;
+
+    OptionModel(String name, Character alias, Integer index, boolean required, TypeMirror type, String reader, String writer, String primitiveWriter, String metadata) {
+        this.name = name;
+        this.alias = alias;
+        this.index = index;
+        this.required = required;
+        this.type = type;
+        this.reader = reader;
+        this.writer = writer;
+        this.primitiveWriter = primitiveWriter;
+        this.metadata = metadata;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Character getAlias() {
+        return alias;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    public TypeMirror getType() {
+        return type;
+    }
+
+    /**
+     * @return the expression which will read the value of the option from a variable named {@code action}
+     */
+    public String getReader() {
+        return reader;
+    }
+
+    /**
+     * @return the statement which will write a variable named {@code value} to the option of a variable
+     * named {@code action}
+     */
+    public String getWriter() {
+        return writer;
+    }
+
+    /**
+     * @return the statement which will write a variable named {@code value}, holding a value of the very type of
+     * the option rather than a boxed one, to the option of a variable named {@code action}
+     */
+    public String getPrimitiveWriter() {
+        return primitiveWriter;
+    }
+
+    /**
+     * @return the expression which will construct the metadata for the option
+     */
+    public String getMetadata() {
+        return metadata;
+    }
+
+}
@@ -0,0 +1,270 @@
+package com.agileapes.nemo.processor;
+
+import com.agileapes.nemo.action.Action;
+import com.agileapes.nemo.api.Command;
+import com.agileapes.nemo.api.Option;
+import com.agileapes.nemo.option.OptionTable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * This processor will generate an {@link OptionTable} for every concrete descendant of {@link Action} that
+ * is compiled alongside it. The generated table holds the descriptors for all options marked with
+ * {@link Option} throughout the hierarchy of the action, as well as code to read and write their values
+ * directly, so that {@link com.agileapes.nemo.disassemble.impl.AnnotatedFieldsDisassembleStrategy} will not
+ * have to resort to reflection at runtime.
+ *
+ * Options are accessed through their fields if they are visible to the package of the action, and through
+ * their accessor methods otherwise. Should an option be accessible in neither way (e.g. a private field
+ * without a getter and a setter) no table is generated for the action, and it will be described through
+ * reflection, as before.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/14, 11:02)
+ */
+@SupportedAnnotationTypes("*")
+public class OptionTableProcessor extends ProcessingSupport {
+
+    private static final String OPTION = Option.class.getCanonicalName();
+    private static final String COMMAND = Command.class.getCanonicalName();
+    private final Set<String> generated = new HashSet<String>();
+    private AnnotationWriter annotationWriter;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        annotationWriter = new AnnotationWriter(elements, types);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final TypeElement action = getActionElement();
+        if (action == null) {
+            return false;
+        }
+        for (TypeElement type : getTypes(roundEnv.getRootElements())) {
+            if (isAction(type, action) && generated.add(type.getQualifiedName().toString())) {
+                final List<OptionModel> options = getOptions(type);
+                if (options != null) {
+                    write(type, options);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isAction(TypeElement type, TypeElement action) {
+        return isInstantiable(type) && getAnnotation(type, COMMAND) == null && isSubtype(type, action);
+    }
+
+    /**
+     * @param type    the action type
+     * @return the options of the action, or {@code null} if at least one option cannot be accessed from the
+     * generated code
+     */
+    private List<OptionModel> getOptions(TypeElement type) {
+        final PackageElement target = getPackage(type);
+        final List<OptionModel> options = new ArrayList<OptionModel>();
+        final Set<String> names = new HashSet<String>();
+        TypeElement current = type;
+        while (current != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                final AnnotationMirror annotation = getAnnotation(field, OPTION);
+                if (annotation == null || field.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                final String name = field.getSimpleName().toString();
+                if (!names.add(name)) {
+                    continue;
+                }
+                final String reader = getReader(type, current, field, target);
+                final String writer = getWriter(type, current, field, target, "(" + getBoxedName(field.asType()) + ") value");
+                if (reader == null || writer == null) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "Option '" + name + "' is not accessible from package "
+                            + target.getQualifiedName() + "; " + type.getQualifiedName() + " will be described through reflection at runtime", field);
+                    return null;
+                }
+                final Map<String, Object> values = getValues(annotation);
+                final char alias = (Character) values.get("alias");
+                final int index = (Integer) values.get("index");
+                options.add(new OptionModel(name, alias != ' ' ? alias : null, index >= 0 ? index : null,
+                        (Boolean) values.get("required"), types.erasure(field.asType()), reader, writer,
+                        getWriter(type, current, field, target, "value"), annotationWriter.write(field.getAnnotationMirrors())));
+            }
+            current = getSuperclass(current);
+        }
+        return options;
+    }
+
+    /**
+     * @param type         the action type
+     * @param declaring    the type declaring the field; the getter is looked for in this type and in those of its
+     *                     subclasses the action type extends, since none of its superclasses can reach the field
+     * @param field        the field backing the option
+     * @param target       the package of the generated table
+     * @return the expression reading the value, or {@code null} if the option cannot be read
+     */
+    private String getReader(TypeElement type, TypeElement declaring, VariableElement field, PackageElement target) {
+        if (isAccessible(field, target)) {
+            return "action." + field.getSimpleName();
+        }
+        final String property = capitalize(field.getSimpleName().toString());
+        final boolean flag = field.asType().getKind() == TypeKind.BOOLEAN;
+        for (TypeElement current = type; current != null; current = current.equals(declaring) ? null : getSuperclass(current)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                final String name = method.getSimpleName().toString();
+                if ((name.equals("get" + property) || flag && name.equals("is" + property)) && method.getParameters().isEmpty()
+                        && !method.getModifiers().contains(Modifier.STATIC) && isAccessible(method, target)
+                        && types.isSameType(method.getReturnType(), field.asType())) {
+                    return "action." + name + "()";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param type         the action type
+     * @param declaring    the type declaring the field; the setter is looked for in the same types as the getter (see
+     *                     {@link #getReader(TypeElement, TypeElement, VariableElement, PackageElement)})
+     * @param field        the field backing the option
+     * @param target       the package of the generated table
+     * @param cast         the expression through which the value is written
+     * @return the statement writing the value, or {@code null} if the option cannot be written
+     */
+    private String getWriter(TypeElement type, TypeElement declaring, VariableElement field, PackageElement target, String cast) {
+        if (isAccessible(field, target) && !field.getModifiers().contains(Modifier.FINAL)) {
+            return "action." + field.getSimpleName() + " = " + cast;
+        }
+        final String name = "set" + capitalize(field.getSimpleName().toString());
+        for (TypeElement current = type; current != null; current = current.equals(declaring) ? null : getSuperclass(current)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                if (method.getSimpleName().toString().equals(name) && method.getParameters().size() == 1
+                        && !method.getModifiers().contains(Modifier.STATIC) && isAccessible(method, target)
+                        && types.isSameType(method.getParameters().get(0).asType(), field.asType())) {
+                    return "action." + name + "(" + cast + ")";
+                }
+            }
+        }
+        return null;
+    }
+
+    private String getBoxedName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass(types.getPrimitiveType(type.getKind())).getQualifiedName().toString();
+        }
+        return types.erasure(type).toString();
+    }
+
+    /**
+     * Writes the setter through which options of the given primitive type are written without being boxed. Should
+     * the setter be called for an option of any other type, the value is handed over to {@code set()}.
+     */
+    private static void writePrimitiveSetter(StringBuilder code, String actionType, List<OptionModel> options, TypeKind kind, String method, String type) {
+        code.append("    @Override\n");
+        code.append("    public void ").append(method).append("(").append(actionType).append(" action, int position, ").append(type).append(" value) {\n");
+        code.append("        switch (position) {\n");
+        for (int i = 0; i < options.size(); i++) {
+            if (options.get(i).getType().getKind() == kind) {
+                code.append("            case ").append(i).append(":\n");
+                code.append("                ").append(options.get(i).getPrimitiveWriter()).append(";\n");
+                code.append("                return;\n");
+            }
+        }
+        code.append("            default:\n");
+        code.append("                set(action, position, (Object) value);\n");
+        code.append("        }\n");
+        code.append("    }\n\n");
+    }
+
+    private void write(TypeElement type, List<OptionModel> options) {
+        final String packageName = getPackage(type).getQualifiedName().toString();
+        final String binaryName = elements.getBinaryName(type).toString();
+        final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + OptionTable.SUFFIX;
+        final String actionType = types.erasure(type.asType()).toString();
+        final StringBuilder code = new StringBuilder();
+        code.append("// Generated by ").append(getClass().getCanonicalName()).append(". Do not edit.\n");
+        if (!packageName.isEmpty()) {
+            code.append("package ").append(packageName).append(";\n\n");
+        }
+        code.append("import com.agileapes.nemo.error.OptionDefinitionException;\n");
+        code.append("import com.agileapes.nemo.option.OptionDescriptor;\n");
+        code.append("import com.agileapes.nemo.option.OptionTable;\n\n");
+        code.append("import java.util.Collections;\n");
+        code.append("import java.util.HashMap;\n");
+        code.append("import java.util.Map;\n");
+        code.append("import java.util.Properties;\n\n");
+        code.append("@SuppressWarnings(\"unchecked\")\n");
+        code.append("public final class ").append(simpleName).append(" implements OptionTable<").append(actionType).append("> {\n\n");
+        code.append("    @Override\n");
+        code.append("    public OptionDescriptor[] describe(").append(actionType).append(" action) throws OptionDefinitionException {\n");
+        code.append("        return new OptionDescriptor[] {\n");
+        for (OptionModel option : options) {
+            code.append("                new OptionDescriptor(").append(AnnotationWriter.literal(option.getName())).append(", ")
+                    .append(option.getAlias() == null ? "null" : AnnotationWriter.literal(option.getAlias())).append(", ")
+                    .append(option.getIndex() == null ? "null" : String.valueOf(option.getIndex())).append(", ")
+                    .append(option.isRequired()).append(", ")
+                    .append(option.getType()).append(".class, ")
+                    .append(option.getReader()).append(", ")
+                    .append(option.getMetadata()).append("),\n");
+        }
+        code.append("        };\n");
+        code.append("    }\n\n");
+        code.append("    @Override\n");
+        code.append("    public Object get(").append(actionType).append(" action, int position) {\n");
+        code.append("        switch (position) {\n");
+        for (int i = 0; i < options.size(); i++) {
+            code.append("            case ").append(i).append(":\n");
+            code.append("                return ").append(options.get(i).getReader()).append(";\n");
+        }
+        code.append("            default:\n");
+        code.append("                throw new IndexOutOfBoundsException(\"No option at position \" + position);\n");
+        code.append("        }\n");
+        code.append("    }\n\n");
+        code.append("    @Override\n");
+        code.append("    public void set(").append(actionType).append(" action, int position, Object value) {\n");
+        code.append("        switch (position) {\n");
+        for (int i = 0; i < options.size(); i++) {
+            code.append("            case ").append(i).append(":\n");
+            code.append("                ").append(options.get(i).getWriter()).append(";\n");
+            code.append("                return;\n");
+        }
+        code.append("            default:\n");
+        code.append("                throw new IndexOutOfBoundsException(\"No option at position \" + position);\n");
+        code.append("        }\n");
+        code.append("    }\n\n");
+        writePrimitiveSetter(code, actionType, options, TypeKind.INT, "setInt", "int");
+        writePrimitiveSetter(code, actionType, options, TypeKind.LONG, "setLong", "long");
+        writePrimitiveSetter(code, actionType, options, TypeKind.DOUBLE, "setDouble", "double");
+        writePrimitiveSetter(code, actionType, options, TypeKind.BOOLEAN, "setBoolean", "boolean");
+        code.append("    @Override\n");
+        code.append("    public Properties getMetadata() {\n");
+        code.append("        return ").append(annotationWriter.write(elements.getAllAnnotationMirrors(type))).append(";\n");
+        code.append("    }\n\n");
+        code.append(AnnotationWriter.HELPERS);
+        code.append("}\n");
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? simpleName : packageName + "." + simpleName, type);
+            final Writer writer = file.openWriter();
+            try {
+                writer.write(code.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write option table: " + e.getMessage(), type);
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.agileapes.nemo.processor;
+
+import com.agileapes.nemo.action.Action;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.*;
+
+/**
+ * This is the common ground for the processors in this module, providing them with the means to discover
+ * actions and to inspect their members.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/15, 9:30)
+ */
+abstract class ProcessingSupport extends AbstractProcessor {
+
+    protected Elements elements;
+    protected Types types;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * @return the element for {@link Action} or {@code null} if it is not available to the compiler
+     */
+    protected TypeElement getActionElement() {
+        return elements.getTypeElement(Action.class.getCanonicalName());
+    }
+
+    /**
+     * @param elements    the root elements
+     * @return all the types declared by the elements, including nested types
+     */
+    protected List<TypeElement> getTypes(Collection<? extends Element> elements) {
+        final List<TypeElement> list = new ArrayList<TypeElement>();
+        for (TypeElement type : ElementFilter.typesIn(elements)) {
+            list.add(type);
+            list.addAll(getTypes(type.getEnclosedElements()));
+        }
+        return list;
+    }
+
+    /**
+     * @param type    the type
+     * @return {@code true} if the type is a class that can be instantiated from outside its own package
+     */
+    protected boolean isInstantiable(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+            return false;
+        }
+        return isAccessible(type, getPackage(type));
+    }
+
+    protected boolean isSubtype(TypeElement type, TypeElement parent) {
+        return parent != null && types.isSubtype(types.erasure(type.asType()), types.erasure(parent.asType()));
+    }
+
+    protected boolean isAccessible(Element element, PackageElement target) {
+        final Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            final Element enclosing = element.getEnclosingElement();
+            return !(enclosing instanceof TypeElement) || isAccessible(enclosing, target);
+        }
+        return getPackage(element).equals(target);
+    }
+
+    protected TypeElement getSuperclass(TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    protected PackageElement getPackage(Element element) {
+        return elements.getPackageOf(element);
+    }
+
+    /**
+     * @param type    the type
+     * @return the name of the type as would be returned by {@link Class#getName()} at runtime
+     */
+    protected String getRuntimeName(TypeMirror type) {
+        final TypeMirror erasure = types.erasure(type);
+        if (erasure.getKind().isPrimitive()) {
+            return erasure.toString();
+        }
+        if (erasure.getKind() == TypeKind.ARRAY) {
+            return "[" + getDescriptor(((ArrayType) erasure).getComponentType());
+        }
+        return elements.getBinaryName((TypeElement) types.asElement(erasure)).toString();
+    }
+
+    private String getDescriptor(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "Z";
+            case BYTE:
+                return "B";
+            case CHAR:
+                return "C";
+            case SHORT:
+                return "S";
+            case INT:
+                return "I";
+            case LONG:
+                return "J";
+            case FLOAT:
+                return "F";
+            case DOUBLE:
+                return "D";
+            case ARRAY:
+                return "[" + getDescriptor(((ArrayType) type).getComponentType());
+            default:
+                return "L" + getRuntimeName(type) + ";";
+        }
+    }
+
+    protected Map<String, Object> getValues(AnnotationMirror annotation) {
+        final Map<String, Object> values = new HashMap<String, Object>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(annotation).entrySet()) {
+            values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+        }
+        return values;
+    }
+
+    protected static AnnotationMirror getAnnotation(Element element, String type) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(type)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    protected static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+}
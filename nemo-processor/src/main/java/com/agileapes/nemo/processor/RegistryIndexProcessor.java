@@ -0,0 +1,335 @@
+package com.agileapes.nemo.processor;
+
+import com.agileapes.nemo.action.impl.RegistryIndex;
+import com.agileapes.nemo.api.Command;
+import com.agileapes.nemo.api.Help;
+import com.agileapes.nemo.api.Option;
+import com.agileapes.nemo.disassemble.impl.CommandParser;
+import com.agileapes.nemo.error.CommandSyntaxError;
+import com.agileapes.nemo.exec.ExecutorContext;
+import com.agileapes.nemo.option.OptionDescriptor;
+
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * This processor writes the registry index (see {@link RegistryIndex}) for all the actions compiled alongside
+ * it, so that they can be registered with the executor context without having to be instantiated and described
+ * up front.
+ *
+ * Every {@link Command} declaration is parsed here through the same {@link CommandParser} that is used at runtime,
+ * which means that a malformed command grammar, or one referring to a property the action does not have, will fail
+ * the build instead of the first run of the application.
+ *
+ * Since incremental builds only hand the processor the sources which have changed, the index found in the class
+ * output is read before anything is processed, and the targets it holds are carried over into the new index, unless
+ * their classes have been compiled anew (in which case they are indexed afresh) or can no longer be found.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/15, 10:05)
+ */
+@SupportedAnnotationTypes("*")
+public class RegistryIndexProcessor extends ProcessingSupport {
+
+    private static final String OPTION = Option.class.getCanonicalName();
+    private static final String COMMAND = Command.class.getCanonicalName();
+    private static final String HELP = Help.class.getCanonicalName();
+    private final Properties index = new Properties();
+    private final Map<String, TypeElement> targets = new LinkedHashMap<String, TypeElement>();
+    private final Set<String> compiled = new HashSet<String>();
+    private Properties previous;
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!targets.isEmpty() || previous != null && !previous.isEmpty()) {
+                write();
+            }
+            return false;
+        }
+        final TypeElement action = getActionElement();
+        if (action == null) {
+            return false;
+        }
+        if (previous == null) {
+            previous = read();
+        }
+        for (TypeElement type : getTypes(roundEnv.getRootElements())) {
+            compiled.add(elements.getBinaryName(type).toString());
+            if (!isInstantiable(type)) {
+                continue;
+            }
+            final AnnotationMirror command = getAnnotation(type, COMMAND);
+            if (command == null && !isSubtype(type, action)) {
+                continue;
+            }
+            if (!hasDefaultConstructor(type)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, type.getQualifiedName() + " has no accessible default constructor and will not be indexed", type);
+                continue;
+            }
+            final String target = getTargetName(type);
+            if (targets.containsKey(target)) {
+                if (!targets.get(target).equals(type)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Target '" + target + "' is already taken by "
+                            + targets.get(target).getQualifiedName() + "; " + type.getQualifiedName() + " will not be indexed", type);
+                }
+                continue;
+            }
+            final boolean indexed;
+            if (command != null) {
+                indexed = indexCommand(target, type, (String) getValues(command).get("value"));
+            } else {
+                indexed = indexAction(target, type);
+            }
+            if (indexed) {
+                targets.put(target, type);
+                index.setProperty(RegistryIndex.TYPE.key(target), elements.getBinaryName(type).toString());
+                addHelp(RegistryIndex.HELP.key(target), type);
+            }
+        }
+        return false;
+    }
+
+    private boolean indexCommand(String target, TypeElement type, String statement) {
+        final CommandParser parser;
+        try {
+            parser = new CommandParser(statement);
+        } catch (CommandSyntaxError e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Malformed command definition \"" + statement + "\": " + e.getMessage(), type);
+            return false;
+        }
+        final List<String> names = new ArrayList<String>();
+        boolean valid = true;
+        for (OptionDescriptor option : parser.getOptions()) {
+            final Element reader = getReader(type, option.getName());
+            final Element writer = getWriter(type, option.getName());
+            if (reader == null || writer == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "No " + (reader == null ? "reader" : "writer")
+                        + " found for option '" + option.getName() + "' of command \"" + statement + "\"", type);
+                valid = false;
+                continue;
+            }
+            final TypeMirror optionType = reader instanceof ExecutableElement ? ((ExecutableElement) reader).getReturnType() : reader.asType();
+            addOption(target, option.getName(), option.getAlias(), option.getIndex(), option.isRequired(), optionType, reader);
+            names.add(option.getName());
+        }
+        if (valid) {
+            addTarget(target, parser.isDefaultAction(), parser.isInternal(), names);
+        }
+        return valid;
+    }
+
+    private boolean indexAction(String target, TypeElement type) {
+        final List<String> names = new ArrayList<String>();
+        TypeElement current = type;
+        while (current != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                final AnnotationMirror annotation = getAnnotation(field, OPTION);
+                final String name = field.getSimpleName().toString();
+                if (annotation == null || field.getModifiers().contains(Modifier.STATIC) || names.contains(name)) {
+                    continue;
+                }
+                final Map<String, Object> values = getValues(annotation);
+                final char alias = (Character) values.get("alias");
+                final int position = (Integer) values.get("index");
+                addOption(target, name, alias != ' ' ? alias : null, position >= 0 ? position : null,
+                        (Boolean) values.get("required"), field.asType(), field);
+                names.add(name);
+            }
+            current = getSuperclass(current);
+        }
+        addTarget(target, false, false, names);
+        return true;
+    }
+
+    private void addTarget(String target, boolean defaultAction, boolean internal, List<String> options) {
+        index.setProperty(RegistryIndex.DEFAULT.key(target), String.valueOf(defaultAction));
+        index.setProperty(RegistryIndex.INTERNAL.key(target), String.valueOf(internal));
+        index.setProperty(RegistryIndex.OPTIONS.key(target), join(options));
+    }
+
+    private void addOption(String target, String name, Character alias, Integer position, boolean required, TypeMirror type, Element annotated) {
+        if (alias != null) {
+            index.setProperty(RegistryIndex.OPTION_ALIAS.key(target, name), String.valueOf(alias));
+        }
+        if (position != null) {
+            index.setProperty(RegistryIndex.OPTION_INDEX.key(target, name), String.valueOf(position));
+        }
+        index.setProperty(RegistryIndex.OPTION_REQUIRED.key(target, name), String.valueOf(required));
+        index.setProperty(RegistryIndex.OPTION_TYPE.key(target, name), getRuntimeName(type));
+        addHelp(RegistryIndex.OPTION_HELP.key(target, name), annotated);
+    }
+
+    private void addHelp(String key, Element element) {
+        final AnnotationMirror help = getAnnotation(element, HELP);
+        if (help == null) {
+            return;
+        }
+        final Map<String, Object> values = getValues(help);
+        index.setProperty(key, (String) values.get("value"));
+        final String description = (String) values.get("description");
+        if (!description.isEmpty()) {
+            index.setProperty(key + RegistryIndex.DESCRIPTION, description);
+        }
+    }
+
+    /**
+     * Looks up the element through which the option will be read at runtime, honoring the precedence of accessor
+     * methods over fields as described in {@link com.agileapes.nemo.disassemble.impl.CommandStatementDisassembleStrategy}
+     */
+    private Element getReader(TypeElement type, String property) {
+        final String capitalized = capitalize(property);
+        for (TypeElement current = type; current != null; current = getSuperclass(current)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                final String name = method.getSimpleName().toString();
+                if (method.getParameters().isEmpty() && !method.getModifiers().contains(Modifier.STATIC)
+                        && method.getReturnType().getKind() != TypeKind.VOID
+                        && (name.equals("get" + capitalized) || name.equals("is" + capitalized) && method.getReturnType().getKind() == TypeKind.BOOLEAN)) {
+                    return method;
+                }
+            }
+        }
+        return getField(type, property);
+    }
+
+    private Element getWriter(TypeElement type, String property) {
+        final String name = "set" + capitalize(property);
+        for (TypeElement current = type; current != null; current = getSuperclass(current)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == 1
+                        && !method.getModifiers().contains(Modifier.STATIC)) {
+                    return method;
+                }
+            }
+        }
+        return getField(type, property);
+    }
+
+    private VariableElement getField(TypeElement type, String property) {
+        for (TypeElement current = type; current != null; current = getSuperclass(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals(property) && !field.getModifiers().contains(Modifier.STATIC)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasDefaultConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) {
+                return constructor.getModifiers().contains(Modifier.PUBLIC);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the name under which {@link ExecutorContext#addAction(Class)} would have registered the type
+     */
+    private static String getTargetName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        if (name.endsWith(ExecutorContext.ACTION_SUFFIX)) {
+            name = name.substring(0, name.length() - ExecutorContext.ACTION_SUFFIX.length());
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String join(List<String> items) {
+        final StringBuilder builder = new StringBuilder();
+        for (String item : items) {
+            if (builder.length() > 0) {
+                builder.append(RegistryIndex.SEPARATOR);
+            }
+            builder.append(item);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the index written by an earlier build to the class output, or an empty index if there is none
+     */
+    private Properties read() {
+        final Properties properties = new Properties();
+        try {
+            final FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", RegistryIndex.LOCATION);
+            final InputStream stream = file.openInputStream();
+            try {
+                properties.load(stream);
+            } finally {
+                stream.close();
+            }
+        } catch (IOException ignored) {
+            //there is no earlier index
+        } catch (IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Ignoring the malformed registry index left by an earlier build: " + e.getMessage());
+            properties.clear();
+        }
+        return properties;
+    }
+
+    /**
+     * Carries over the targets of the earlier index whose classes have not been compiled in this build, but can still
+     * be found
+     */
+    private void merge() {
+        final String targetList = previous == null ? null : previous.getProperty(RegistryIndex.TARGETS);
+        if (targetList == null || targetList.isEmpty()) {
+            return;
+        }
+        final Map<String, TypeElement> merged = new LinkedHashMap<String, TypeElement>();
+        for (String target : targetList.split(RegistryIndex.SEPARATOR)) {
+            final String type = previous.getProperty(RegistryIndex.TYPE.key(target));
+            if (type == null || targets.containsKey(target) || compiled.contains(type)
+                    || elements.getTypeElement(type.replace('$', '.')) == null) {
+                continue;
+            }
+            final String prefix = RegistryIndex.getPrefix(target);
+            for (String key : previous.stringPropertyNames()) {
+                if (key.startsWith(prefix)) {
+                    index.setProperty(key, previous.getProperty(key));
+                }
+            }
+            merged.put(target, null);
+        }
+        merged.putAll(targets);
+        targets.clear();
+        targets.putAll(merged);
+    }
+
+    private void write() {
+        merge();
+        final List<Element> originating = new ArrayList<Element>();
+        for (TypeElement type : targets.values()) {
+            if (type != null) {
+                originating.add(type);
+            }
+        }
+        index.setProperty(RegistryIndex.TARGETS, join(new ArrayList<String>(targets.keySet())));
+        try {
+            final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", RegistryIndex.LOCATION,
+                    originating.toArray(new Element[originating.size()]));
+            final OutputStream stream = file.openOutputStream();
+            try {
+                index.store(stream, "Generated by " + getClass().getCanonicalName() + ". Do not edit.");
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write the registry index: " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.agileapes.nemo.processor;
+
+import javax.annotation.processing.Processor;
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * The compilation runs the system compiler over a handful of sources held in memory, with the given processors
+ * attached, and keeps the diagnostics and the output so that tests can inspect them.
+ *
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/24, 11:10)
+ */
+class Compilation {
+
+    private final File root;
+    private final File classes;
+    private final File sources;
+    private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+    private final boolean successful;
+
+    /**
+     * @param processors    the processors to run
+     * @param units         pairs of qualified type names and their source code
+     */
+    Compilation(Processor[] processors, String... units) throws IOException {
+        this(createRoot(), processors, units);
+    }
+
+    /**
+     * Compiles the sources into the output of an earlier compilation, the way an incremental build would, with the
+     * classes compiled earlier on the classpath
+     * @param previous      the earlier compilation
+     * @param processors    the processors to run
+     * @param units         pairs of qualified type names and their source code
+     */
+    Compilation(Compilation previous, Processor[] processors, String... units) throws IOException {
+        this(previous.root, processors, units);
+    }
+
+    private Compilation(File root, Processor[] processors, String... units) throws IOException {
+        this.root = root;
+        classes = new File(root, "classes");
+        sources = new File(root, "generated");
+        if (!classes.isDirectory() && !classes.mkdir() || !sources.isDirectory() && !sources.mkdir()) {
+            throw new IOException("Could not create the output directories under " + root);
+        }
+        final List<JavaFileObject> files = new ArrayList<JavaFileObject>();
+        for (int i = 0; i < units.length; i += 2) {
+            files.add(new Source(units[i], units[i + 1]));
+        }
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<JavaFileObject>();
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(collector, null, null);
+        try {
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, collector,
+                    Arrays.asList("-classpath", classes.getPath() + File.pathSeparator + System.getProperty("java.class.path"), "-d", classes.getPath(), "-s", sources.getPath()),
+                    null, files);
+            task.setProcessors(Arrays.asList(processors));
+            successful = task.call();
+        } finally {
+            fileManager.close();
+        }
+        diagnostics = collector.getDiagnostics();
+    }
+
+    private static File createRoot() throws IOException {
+        final File root = File.createTempFile("nemo-processor", "");
+        if (!root.delete() || !root.mkdir()) {
+            throw new IOException("Could not create the output directory " + root);
+        }
+        return root;
+    }
+
+    boolean isSuccessful() {
+        return successful;
+    }
+
+    /**
+     * @param kind    the kind of diagnostics
+     * @return the messages of all the diagnostics of the given kind
+     */
+    List<String> getMessages(Diagnostic.Kind kind) {
+        final List<String> messages = new ArrayList<String>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            if (diagnostic.getKind() == kind) {
+                messages.add(diagnostic.getMessage(Locale.ENGLISH));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * @param path    the path of a file relative to the class output
+     * @return the file
+     */
+    File getClassOutput(String path) {
+        return new File(classes, path);
+    }
+
+    /**
+     * @param path    the path of a file relative to the generated sources
+     * @return the file
+     */
+    File getSourceOutput(String path) {
+        return new File(sources, path);
+    }
+
+    /**
+     * Deletes the output of the compilation
+     */
+    void delete() {
+        delete(root);
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static class Source extends SimpleJavaFileObject {
+
+        private final String code;
+
+        private Source(String name, String code) {
+            super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.agileapes.nemo.processor;
+
+import com.agileapes.nemo.option.OptionTable;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/24, 11:25)
+ */
+public class OptionTableProcessorTest {
+
+    private static final String TABLE = "sample/SampleAction" + OptionTable.SUFFIX;
+    private Compilation compilation;
+
+    private Compilation compile(String members) throws Exception {
+        compilation = new Compilation(new Processor[]{new OptionTableProcessor()}, "sample.SampleAction",
+                "package sample;\n" +
+                "import com.agileapes.nemo.api.Option;\n" +
+                "public class SampleAction extends com.agileapes.nemo.action.Action {\n" +
+                members + "\n" +
+                "    @Override\n" +
+                "    public void execute() {}\n" +
+                "}\n");
+        return compilation;
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        if (compilation != null) {
+            compilation.delete();
+            compilation = null;
+        }
+    }
+
+    @Test
+    public void testVisibleField() throws Exception {
+        final Compilation compilation = compile("    @Option(alias = 'n') String name;\n    @Option int count;");
+        Assert.assertTrue(compilation.isSuccessful());
+        Assert.assertTrue(compilation.getSourceOutput(TABLE + ".java").isFile());
+        Assert.assertTrue(compilation.getClassOutput(TABLE + ".class").isFile());
+    }
+
+    @Test
+    public void testPrivateFieldWithAccessors() throws Exception {
+        final Compilation compilation = compile("    @Option private String name;\n" +
+                "    public String getName() { return name; }\n" +
+                "    public void setName(String name) { this.name = name; }");
+        Assert.assertTrue(compilation.isSuccessful());
+        Assert.assertTrue(compilation.getClassOutput(TABLE + ".class").isFile());
+    }
+
+    @Test
+    public void testPrivateFieldProducesNoTable() throws Exception {
+        final Compilation compilation = compile("    @Option private String name;");
+        Assert.assertTrue(compilation.isSuccessful());
+        Assert.assertFalse(compilation.getSourceOutput(TABLE + ".java").exists());
+        Assert.assertFalse(compilation.getClassOutput(TABLE + ".class").exists());
+        Assert.assertFalse(compilation.getMessages(Diagnostic.Kind.NOTE).isEmpty());
+    }
+
+    @Test
+    public void testPrivateFieldWithoutWriterProducesNoTable() throws Exception {
+        final Compilation compilation = compile("    @Option private String name;\n" +
+                "    public String getName() { return name; }");
+        Assert.assertTrue(compilation.isSuccessful());
+        Assert.assertFalse(compilation.getSourceOutput(TABLE + ".java").exists());
+    }
+
+    @Test
+    public void testInheritedFieldWithAccessorsInSubclass() throws Exception {
+        compilation = new Compilation(new Processor[]{new OptionTableProcessor()},
+                "base.BaseAction",
+                "package base;\n" +
+                "import com.agileapes.nemo.api.Option;\n" +
+                "public abstract class BaseAction extends com.agileapes.nemo.action.Action {\n" +
+                "    @Option protected String name;\n" +
+                "}\n",
+                "sample.SampleAction",
+                "package sample;\n" +
+                "public class SampleAction extends base.BaseAction {\n" +
+                "    public String getName() { return name; }\n" +
+                "    public void setName(String name) { this.name = name; }\n" +
+                "    @Override\n" +
+                "    public void execute() {}\n" +
+                "}\n");
+        Assert.assertTrue(compilation.isSuccessful());
+        Assert.assertTrue(compilation.getClassOutput(TABLE + ".class").isFile());
+    }
+
+}
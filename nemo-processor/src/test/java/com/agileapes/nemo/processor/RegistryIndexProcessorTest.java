@@ -0,0 +1,136 @@
+package com.agileapes.nemo.processor;
+
+import com.agileapes.nemo.action.impl.RegistryIndex;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
+ * @since 1.0 (2013/11/24, 11:40)
+ */
+public class RegistryIndexProcessorTest {
+
+    private Compilation compilation;
+
+    private Compilation compile(String name, String code) throws Exception {
+        compilation = new Compilation(new Processor[]{new RegistryIndexProcessor()}, name, code);
+        return compilation;
+    }
+
+    private static String command(String statement, String members) {
+        return "package sample;\n" +
+                "@com.agileapes.nemo.api.Command(\"" + statement + "\")\n" +
+                "public class SampleCommand {\n" +
+                members + "\n" +
+                "    public void execute() {}\n" +
+                "}\n";
+    }
+
+    private static void assertError(Compilation compilation, String message) {
+        Assert.assertFalse(compilation.isSuccessful());
+        final List<String> errors = compilation.getMessages(Diagnostic.Kind.ERROR);
+        for (String error : errors) {
+            if (error.contains(message)) {
+                return;
+            }
+        }
+        Assert.fail("No error containing \"" + message + "\" among " + errors);
+    }
+
+    private static String command(String type, String statement, String members) {
+        return "package sample;\n" +
+                "@com.agileapes.nemo.api.Command(\"" + statement + "\")\n" +
+                "public class " + type + " {\n" +
+                members + "\n" +
+                "    public void execute() {}\n" +
+                "}\n";
+    }
+
+    private static Properties load(Compilation compilation) throws Exception {
+        final Properties index = new Properties();
+        final InputStream stream = new FileInputStream(compilation.getClassOutput(RegistryIndex.LOCATION));
+        try {
+            index.load(stream);
+        } finally {
+            stream.close();
+        }
+        return index;
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        if (compilation != null) {
+            compilation.delete();
+            compilation = null;
+        }
+    }
+
+    @Test
+    public void testIndexWritten() throws Exception {
+        final Compilation compilation = compile("sample.SampleCommand", command("action --n|name", "    private String name;"));
+        Assert.assertTrue(compilation.isSuccessful());
+        Assert.assertTrue(compilation.getClassOutput(RegistryIndex.LOCATION).isFile());
+        final Properties index = load(compilation);
+        Assert.assertEquals(index.getProperty(RegistryIndex.TARGETS), "sampleCommand");
+        Assert.assertEquals(index.getProperty(RegistryIndex.TYPE.key("sampleCommand")), "sample.SampleCommand");
+        Assert.assertEquals(index.getProperty(RegistryIndex.OPTIONS.key("sampleCommand")), "name");
+        Assert.assertEquals(index.getProperty(RegistryIndex.OPTION_ALIAS.key("sampleCommand", "name")), "n");
+        Assert.assertEquals(index.getProperty(RegistryIndex.OPTION_TYPE.key("sampleCommand", "name")), "java.lang.String");
+    }
+
+    @Test
+    public void testIncrementalBuild() throws Exception {
+        compilation = new Compilation(new Processor[]{new RegistryIndexProcessor()},
+                "sample.FirstCommand", command("FirstCommand", "action --name", "    private String name;"),
+                "sample.SecondCommand", command("SecondCommand", "action --size", "    private int size;"));
+        Assert.assertTrue(compilation.isSuccessful());
+        Assert.assertEquals(load(compilation).getProperty(RegistryIndex.TARGETS), "firstCommand,secondCommand");
+        //only the second command is recompiled, with an option added to it
+        final Compilation incremental = new Compilation(compilation, new Processor[]{new RegistryIndexProcessor()},
+                "sample.SecondCommand", command("SecondCommand", "action --size --depth", "    private int size;\n    private long depth;"));
+        Assert.assertTrue(incremental.isSuccessful());
+        Properties index = load(incremental);
+        Assert.assertEquals(index.getProperty(RegistryIndex.TARGETS), "firstCommand,secondCommand");
+        Assert.assertEquals(index.getProperty(RegistryIndex.TYPE.key("firstCommand")), "sample.FirstCommand");
+        Assert.assertEquals(index.getProperty(RegistryIndex.OPTIONS.key("firstCommand")), "name");
+        Assert.assertEquals(index.getProperty(RegistryIndex.OPTION_TYPE.key("firstCommand", "name")), "java.lang.String");
+        Assert.assertEquals(index.getProperty(RegistryIndex.OPTIONS.key("secondCommand")), "size,depth");
+        //the first command is removed, and the second is no longer an action
+        Assert.assertTrue(compilation.getClassOutput("sample/FirstCommand.class").delete());
+        final Compilation removal = new Compilation(compilation, new Processor[]{new RegistryIndexProcessor()},
+                "sample.SecondCommand", "package sample;\npublic class SecondCommand {}\n",
+                "sample.ThirdCommand", command("ThirdCommand", "action", ""));
+        Assert.assertTrue(removal.isSuccessful());
+        index = load(removal);
+        Assert.assertEquals(index.getProperty(RegistryIndex.TARGETS), "thirdCommand");
+        Assert.assertNull(index.getProperty(RegistryIndex.TYPE.key("firstCommand")));
+        Assert.assertNull(index.getProperty(RegistryIndex.OPTIONS.key("secondCommand")));
+    }
+
+    @Test
+    public void testMalformedCommand() throws Exception {
+        assertError(compile("sample.SampleCommand", command("action [--name", "    private String name;")),
+                "Malformed command definition");
+    }
+
+    @Test
+    public void testMissingReader() throws Exception {
+        assertError(compile("sample.SampleCommand", command("action --name", "")),
+                "No reader found for option 'name'");
+    }
+
+    @Test
+    public void testMissingWriter() throws Exception {
+        assertError(compile("sample.SampleCommand", command("action --name", "    public String getName() { return null; }")),
+                "No writer found for option 'name'");
+    }
+
+}
@@ -4,29 +4,32 @@ import com.agileapes.couteau.basics.api.Transformer;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 
 import java.util.Collections;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * The action discoverer will take in a bean factory, and based on a certain criteria discern which beans
  * should be put aside as actions to be registered with the executor context
  *
+ * Discoverers are expected to work off of the bean definitions alone, and must not cause any of the beans
+ * to be created; the actions are only instantiated once the executor actually calls upon them.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (6/15/13, 4:57 PM)
  */
-public abstract class ActionDiscoverer implements Transformer<ConfigurableListableBeanFactory, Map<String, Object>> {
+public abstract class ActionDiscoverer implements Transformer<ConfigurableListableBeanFactory, Set<String>> {
 
     @Override
-    public Map<String, Object> map(ConfigurableListableBeanFactory factory) {
-        final Map<String, Object> map = discover(factory);
-        return map == null ? Collections.<String, Object>emptyMap() : Collections.unmodifiableMap(map);
+    public Set<String> map(ConfigurableListableBeanFactory factory) {
+        final Set<String> names = discover(factory);
+        return names == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(names);
     }
 
     /**
      * This method will be used to give the discoverer a chance to look seep through the bean
      * factory and determine which beans should be uncovered.
      * @param factory    the bean factory for the application
-     * @return a map of action names to action objects
+     * @return the names of the beans which are actions
      */
-    protected abstract Map<String, Object> discover(ConfigurableListableBeanFactory factory);
+    protected abstract Set<String> discover(ConfigurableListableBeanFactory factory);
 
 }
@@ -6,7 +6,8 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 
 import java.lang.annotation.Annotation;
-import java.util.Map;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * This is a generically configurable action discoverer that will turn up all actions which have
@@ -25,11 +26,16 @@ public class AnnotatedActionDiscoverer extends ActionDiscoverer {
     }
 
     @Override
-    protected Map<String, Object> discover(ConfigurableListableBeanFactory factory) {
+    protected Set<String> discover(ConfigurableListableBeanFactory factory) {
         log.info("Looking for beans annotated with @" + annotation.getSimpleName());
-        final Map<String, Object> map = factory.getBeansWithAnnotation(annotation);
-        log.info("Discovered " + map.size() + " action(s)");
-        return map;
+        final Set<String> names = new LinkedHashSet<String>();
+        for (String name : factory.getBeanDefinitionNames()) {
+            if (!factory.getBeanDefinition(name).isAbstract() && factory.findAnnotationOnBean(name, annotation) != null) {
+                names.add(name);
+            }
+        }
+        log.info("Discovered " + names.size() + " action(s)");
+        return names;
     }
 
 }
@@ -5,7 +5,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 
-import java.util.Map;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * This is intended as a discovery scheme that will turn up all actions that are descendants of a certain
@@ -24,12 +26,11 @@ public class TypedActionDiscoverer extends ActionDiscoverer {
     }
 
     @Override
-    protected Map<String, Object> discover(ConfigurableListableBeanFactory factory) {
+    protected Set<String> discover(ConfigurableListableBeanFactory factory) {
         log.info("Looking for actions extending " + type.getCanonicalName());
-        //noinspection unchecked
-        final Map<String, Object> map = (Map<String, Object>) factory.getBeansOfType(type, false, true);
-        log.info("Discovered " + map.size() + " action(s)");
-        return map;
+        final Set<String> names = new LinkedHashSet<String>(Arrays.asList(factory.getBeanNamesForType(type, false, false)));
+        log.info("Discovered " + names.size() + " action(s)");
+        return names;
     }
 
 }
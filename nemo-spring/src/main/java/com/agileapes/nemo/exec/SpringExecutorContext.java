@@ -3,21 +3,29 @@ package com.agileapes.nemo.exec;
 import com.agileapes.couteau.context.error.RegistryException;
 import com.agileapes.couteau.context.spring.SpringConfigurableContext;
 import com.agileapes.couteau.context.value.ValueReader;
+import com.agileapes.nemo.action.ActionDeclaration;
 import com.agileapes.nemo.contract.ActionDiscoverer;
+import com.agileapes.nemo.contract.Supplier;
 import com.agileapes.nemo.disassemble.DisassembleStrategy;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.FatalBeanException;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.TypedStringValue;
 
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 /**
  * This extension to {@link ExecutorContext} allows users to instantiate all their nemo-related beans through
  * Spring, without having to manually wire actions or anything else.
  *
+ * Actions are registered from the bean definitions alone; their beans are marked as lazy and are only created
+ * through the bean factory once the executor calls upon their targets, so that starting the application does not
+ * require every action (and everything it depends on) to be instantiated.
+ *
  * @author Mohammad Milad Naseri (m.m.naseri@gmail.com)
  * @since 1.0 (2013/6/12, 3:12)
  */
@@ -29,7 +37,7 @@ public class SpringExecutorContext extends ExecutorContext implements SpringConf
 
     private Set<Object> handleStrategies(ConfigurableListableBeanFactory beanFactory) {
         final Set<Object> newItems = new HashSet<Object>();
-        final String[] names = beanFactory.getBeanNamesForType(DisassembleStrategy.class, false, true);
+        final String[] names = beanFactory.getBeanNamesForType(DisassembleStrategy.class, false, false);
         log.info("Looking for strategies ...");
         for (String name : names) {
             try {
@@ -47,7 +55,7 @@ public class SpringExecutorContext extends ExecutorContext implements SpringConf
     private Set<Object> handleValueReaders(ConfigurableListableBeanFactory beanFactory) {
         final Set<Object> newItems = new HashSet<Object>();
         log.info("Looking for value readers ...");
-        final String[] names = beanFactory.getBeanNamesForType(ValueReader.class, false, true);
+        final String[] names = beanFactory.getBeanNamesForType(ValueReader.class, false, false);
         for (String name : names) {
             try {
                 final ValueReader valueReader = beanFactory.getBean(name, ValueReader.class);
@@ -61,26 +69,26 @@ public class SpringExecutorContext extends ExecutorContext implements SpringConf
         return newItems;
     }
 
-    private Set<Object> handleActions(ConfigurableListableBeanFactory beanFactory) {
-        final Set<Object> newItems = new HashSet<Object>();
+    private Set<String> handleActions(ConfigurableListableBeanFactory beanFactory) {
+        final Set<String> newItems = new HashSet<String>();
         log.info("Looking for actions ...");
         for (ActionDiscoverer discoverer : discoverers) {
             log.info("Attempting to find new actions using " + discoverer.getClass().getCanonicalName());
-            final Map<String, Object> map = discoverer.map(beanFactory);
+            final Set<String> names = discoverer.map(beanFactory);
             int found = newItems.size();
-            for (Map.Entry<String, Object> entry : map.entrySet()) {
-                if (newItems.add(entry.getValue())) {
+            for (String beanName : names) {
+                if (newItems.add(beanName)) {
                     try {
-                        String name = entry.getKey();
+                        String name = beanName;
                         if (name.startsWith(ACTION_PREFIX)) {
                             name = name.substring(ACTION_PREFIX.length());
                         }
-                        addAction(name, entry.getValue());
+                        addAction(name, declare(beanFactory, beanName));
                     } catch (RegistryException e) {
                         throw new FatalBeanException("Failed to register action", e);
                     }
                 } else {
-                    log.warn("Ignoring action <" + entry.getKey() + "> because it was already discovered by another discoverer");
+                    log.warn("Ignoring action <" + beanName + "> because it was already discovered by another discoverer");
                 }
             }
             found = newItems.size() - found;
@@ -89,6 +97,44 @@ public class SpringExecutorContext extends ExecutorContext implements SpringConf
         return newItems;
     }
 
+    /**
+     * Declares the action held by the given bean without creating the bean. The bean definition is marked as
+     * lazy, so that Spring will not instantiate it up front either; the bean is only looked up once the action is
+     * resolved by the executor.
+     */
+    private static ActionDeclaration declare(final ConfigurableListableBeanFactory beanFactory, final String beanName) {
+        final Class<?> type = beanFactory.getType(beanName);
+        if (type == null) {
+            throw new FatalBeanException("Could not determine the type of action <" + beanName + ">");
+        }
+        final ActionDeclaration declaration = new ActionDeclaration(type, new Supplier<Object>() {
+            @Override
+            public Object get() throws Exception {
+                return beanFactory.getBean(beanName);
+            }
+        });
+        if (beanFactory.containsBeanDefinition(beanName)) {
+            final BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+            definition.setLazyInit(true);
+            if (Boolean.parseBoolean(getPropertyValue(definition, "defaultAction"))) {
+                declaration.setDefaultAction(true);
+            }
+            if (Boolean.parseBoolean(getPropertyValue(definition, "internal"))) {
+                declaration.setInternal(true);
+            }
+        }
+        return declaration;
+    }
+
+    private static String getPropertyValue(BeanDefinition definition, String property) {
+        final PropertyValue propertyValue = definition.getPropertyValues().getPropertyValue(property);
+        if (propertyValue == null) {
+            return null;
+        }
+        final Object value = propertyValue.getValue();
+        return value instanceof TypedStringValue ? ((TypedStringValue) value).getValue() : value == null ? null : value.toString();
+    }
+
     @Override
     public void configure(ConfigurableListableBeanFactory beanFactory) {
         log.info("Starting to look through Spring's application context");